@@ -0,0 +1,50 @@
+package com.asnworks.meditrack.benchmarks;
+
+import org.apache.avro.specific.SpecificRecord;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Hospital;
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * Representative records used by the benchmarks.
+ */
+final class BenchmarkData {
+
+	private BenchmarkData() {
+	}
+
+	static Patient patient(int id) {
+		return new Patient(id, "Firstname" + id % 500, "Lastname" + id % 900, 18 + id % 80, id % 2 == 0 ? "Male" : "Female",
+				id + " Main Street, Springfield", "95915" + String.format("%05d", id % 100000), "user" + id + "@example.com");
+	}
+
+	static Doctor doctor(int id) {
+		return new Doctor(id, "MRN" + String.format("%08d", id), "Firstname" + id % 500, "Lastname" + id % 900,
+				id % 2 == 0 ? "Male" : "Female", "Cardiology", id + " Clinic Road, Springfield", "95915" + String.format("%05d", id % 100000),
+				"doctor" + id + "@example.com");
+	}
+
+	static Hospital hospital(int id) {
+		return new Hospital(id, "General", "Hospital " + id, "Springfield", "IL", "95915" + String.format("%05d", id % 100000),
+				"info" + id + "@example.com");
+	}
+
+	/**
+	 * @param name simple name of the record class: Patient, Doctor or Hospital
+	 * @return a record of the named type
+	 */
+	static SpecificRecord record(String name) {
+		if ("Patient".equals(name)) {
+			return patient(12345);
+		}
+		if ("Doctor".equals(name)) {
+			return doctor(12345);
+		}
+		if ("Hospital".equals(name)) {
+			return hospital(12345);
+		}
+		throw new IllegalArgumentException("Unknown record " + name);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.asnworks.meditrack.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.file.DataFileWriter;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asnworks.meditrack.duct.utils.ArchiveFormat;
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+/**
+ * Appending patients to a {@link DataFileWriter} with each supported codec. The file is written to a stream that discards the data, so
+ * the score is the cost of encoding, block compression and framing per record.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DataFileWriterBenchmark {
+
+	private static final int BATCH = 1000;
+
+	@Param({ "null", "deflate", "snappy", "bzip2", "xz" })
+	public String codec;
+
+	@Param({ "64000" })
+	public int syncInterval;
+
+	private final Patient[] patients = new Patient[BATCH];
+	private DataFileWriter<Patient> writer;
+	private CountingOutputStream out;
+
+	@Setup(Level.Trial)
+	public void createPatients() {
+		for (int i = 0; i < BATCH; i++) {
+			patients[i] = BenchmarkData.patient(i);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void openWriter() throws IOException {
+		out = new CountingOutputStream(new NullOutputStream());
+		writer = new ArchiveFormat(codec, ArchiveFormat.DEFAULT_LEVEL, syncInterval).newWriter(DatumCodecs.<Patient>writerFor(
+				Patient.getClassSchema()));
+		writer.create(Patient.getClassSchema(), out);
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeWriter() throws IOException {
+		writer.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long append() throws IOException {
+		for (Patient patient : patients) {
+			writer.append(patient);
+		}
+		return out.getByteCount();
+	}
+
+}
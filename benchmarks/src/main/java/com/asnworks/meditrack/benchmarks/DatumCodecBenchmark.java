@@ -0,0 +1,105 @@
+package com.asnworks.meditrack.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+/**
+ * Compares the hand-written codecs for Patient, Doctor and Hospital of {@link DatumCodecs} with the generic {@link SpecificDatumWriter} and {@link SpecificDatumReader}
+ * for a single record. Run with <code>-prof gc</code> to compare the allocation rates as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DatumCodecBenchmark {
+
+	@Param({ "Patient", "Doctor", "Hospital" })
+	public String record;
+
+	private SpecificRecord datum;
+	private SpecificRecord reuse;
+	private DatumWriter<SpecificRecord> genericWriter;
+	private DatumWriter<SpecificRecord> codecWriter;
+	private DatumReader<SpecificRecord> genericReader;
+	private DatumReader<SpecificRecord> codecReader;
+	private ByteArrayOutputStream out;
+	private BinaryEncoder encoder;
+	private BinaryDecoder decoder;
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		datum = BenchmarkData.record(record);
+		genericWriter = new SpecificDatumWriter<SpecificRecord>(datum.getSchema());
+		codecWriter = DatumCodecs.writerFor(datum.getSchema());
+		genericReader = new SpecificDatumReader<SpecificRecord>(datum.getSchema());
+		codecReader = DatumCodecs.readerFor(datum.getSchema());
+		codecReader.setSchema(datum.getSchema());
+
+		out = new ByteArrayOutputStream(1024);
+		encoder = EncoderFactory.get().binaryEncoder(out, null);
+		genericWriter.write(datum, encoder);
+		encoder.flush();
+		encoded = out.toByteArray();
+		reuse = genericReader.read(null, DecoderFactory.get().binaryDecoder(encoded, null));
+	}
+
+	@Benchmark
+	public int encodeGeneric() throws IOException {
+		return encode(genericWriter);
+	}
+
+	@Benchmark
+	public int encodeCodec() throws IOException {
+		return encode(codecWriter);
+	}
+
+	@Benchmark
+	public SpecificRecord decodeGeneric() throws IOException {
+		return decode(genericReader);
+	}
+
+	@Benchmark
+	public SpecificRecord decodeCodec() throws IOException {
+		return decode(codecReader);
+	}
+
+	private int encode(DatumWriter<SpecificRecord> writer) throws IOException {
+		out.reset();
+		writer.write(datum, encoder);
+		encoder.flush();
+		return out.size();
+	}
+
+	private SpecificRecord decode(DatumReader<SpecificRecord> reader) throws IOException {
+		decoder = DecoderFactory.get().binaryDecoder(encoded, decoder);
+		return reader.read(reuse, decoder);
+	}
+
+}
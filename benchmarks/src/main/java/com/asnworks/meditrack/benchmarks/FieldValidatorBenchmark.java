@@ -0,0 +1,88 @@
+package com.asnworks.meditrack.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asnworks.meditrack.model.validation.FieldValidator;
+
+/**
+ * Cost per field of checking the format of a {@link Utf8} field value, as decoded from an archive, with {@link String#matches(String)},
+ * which compiles the pattern for every value, with a cached {@link Pattern}, and with the {@link FieldValidator}s, which scan the UTF-8
+ * bytes without converting them to a {@link String}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldValidatorBenchmark {
+
+	private static final String EMAIL_REGEX = "[^@\\s]+@[^@\\s.]+(?:\\.[^@\\s.]+)+";
+	private static final String PHONE_NUMBER_REGEX = "\\+?(?:[ ().-]*[0-9]){7,15}[ )]*";
+	private static final String REGISTRATION_NUMBER_REGEX = "(?=[^0-9]*[0-9])[A-Za-z0-9][A-Za-z0-9/-]{2,18}[A-Za-z0-9]";
+
+	@Param({ "Patient.email", "Patient.phoneNumber", "Doctor.medicalRegistrationNumber", "Hospital.email" })
+	public String field;
+
+	private Utf8 value;
+	private String regex;
+	private Pattern pattern;
+	private FieldValidator validator;
+
+	@Setup
+	public void setUp() {
+		String[] names = field.split("\\.");
+		SpecificRecord record = BenchmarkData.record(names[0]);
+		value = new Utf8(record.get(record.getSchema().getField(names[1]).pos()).toString());
+		if (names[1].equals("email")) {
+			regex = EMAIL_REGEX;
+			validator = FieldValidator.EMAIL;
+		} else if (names[1].equals("phoneNumber")) {
+			regex = PHONE_NUMBER_REGEX;
+			validator = FieldValidator.PHONE_NUMBER;
+		} else {
+			regex = REGISTRATION_NUMBER_REGEX;
+			validator = FieldValidator.MEDICAL_REGISTRATION_NUMBER;
+		}
+		pattern = Pattern.compile(regex);
+		if (!validator.isValid(value) || !pattern.matcher(value.toString()).matches()) {
+			throw new IllegalStateException("Benchmark value " + value + " of " + field + " is not valid");
+		}
+	}
+
+	@Benchmark
+	public boolean stringMatches() {
+		return value.toString().matches(regex);
+	}
+
+	@Benchmark
+	public boolean cachedPattern() {
+		return pattern.matcher(value.toString()).matches();
+	}
+
+	@Benchmark
+	public boolean cachedPatternOnUtf8() {
+		return pattern.matcher(value).matches();
+	}
+
+	@Benchmark
+	public boolean fieldValidator() {
+		return validator.isValid(value);
+	}
+
+}
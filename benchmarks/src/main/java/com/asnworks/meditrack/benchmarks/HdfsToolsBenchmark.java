@@ -0,0 +1,113 @@
+package com.asnworks.meditrack.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asnworks.meditrack.duct.utils.HdfsTools;
+
+/**
+ * {@link HdfsTools} operations against the local file system, on a directory with a configurable number of small files. The local file
+ * system has no NameNode round trips, so the scores show the client-side overhead of the tools.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HdfsToolsBenchmark {
+
+	private static final String LINE = "111,AAA,A,21,Male,Address,9591543252,email@email.com";
+
+	@Param({ "1000" })
+	public int files;
+
+	private HdfsTools hdfsTools;
+	private File directory;
+	private String filePath;
+	private String copyPath;
+
+	@Setup(Level.Trial)
+	public void createFiles() throws IOException {
+		hdfsTools = HdfsTools.forLocalFileSystem();
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-bench-" + System.nanoTime());
+		File data = new File(directory, "data");
+		for (int i = 0; i < files; i++) {
+			FileUtils.writeStringToFile(new File(data, String.format("patients-part-%05d.csv", i)), LINE + "\n" + LINE + "\n", "UTF-8");
+		}
+		filePath = new File(data, "patients-part-00000.csv").getAbsolutePath();
+		copyPath = new File(directory, "copy.csv").getAbsolutePath();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFiles() throws IOException {
+		hdfsTools.close();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public boolean exists() throws IOException {
+		return hdfsTools.exists(filePath);
+	}
+
+	@Benchmark
+	public boolean isFile() throws IOException {
+		return hdfsTools.isFile(filePath);
+	}
+
+	@Benchmark
+	public FileStatus getFileStatus() throws IOException {
+		return hdfsTools.getFileStatus(filePath);
+	}
+
+	@Benchmark
+	public List<String> listFiles() throws IOException {
+		return hdfsTools.listFiles(new File(directory, "data").getAbsolutePath(), "patients-part-.*\\.csv");
+	}
+
+	@Benchmark
+	public List<FileStatus> listStatus() throws IOException {
+		return hdfsTools.listStatus(new Path(new File(directory, "data").getAbsolutePath()));
+	}
+
+	@Benchmark
+	public List<String> readLines() throws IOException {
+		return hdfsTools.readLines(filePath);
+	}
+
+	@Benchmark
+	public void writeFile() throws IOException {
+		OutputStream out = hdfsTools.getOutputStream(copyPath);
+		try {
+			out.write(LINE.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	@Benchmark
+	public void copyFile() throws IOException {
+		hdfsTools.copyFile(filePath, copyPath);
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.asnworks.meditrack.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Hospital;
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * Cost of creating records through the generated builders, which validate and deep copy every field, compared with the all-args
+ * constructors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordBuilderBenchmark {
+
+	private final Patient patient = BenchmarkData.patient(12345);
+	private final Doctor doctor = BenchmarkData.doctor(12345);
+	private final Hospital hospital = BenchmarkData.hospital(12345);
+
+	@Benchmark
+	public Patient patientBuilder() {
+		return Patient.newBuilder().setId(patient.getId()).setFirstName(patient.getFirstName()).setLastName(patient.getLastName())
+				.setAge(patient.getAge()).setGender(patient.getGender()).setAddress(patient.getAddress())
+				.setPhoneNumber(patient.getPhoneNumber()).setEmail(patient.getEmail()).build();
+	}
+
+	@Benchmark
+	public Patient patientConstructor() {
+		return new Patient(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getAge(), patient.getGender(),
+				patient.getAddress(), patient.getPhoneNumber(), patient.getEmail());
+	}
+
+	@Benchmark
+	public Doctor doctorBuilder() {
+		return Doctor.newBuilder().setId(doctor.getId()).setMedicalRegistrationNumber(doctor.getMedicalRegistrationNumber())
+				.setFirstName(doctor.getFirstName()).setLastName(doctor.getLastName()).setGender(doctor.getGender())
+				.setSpecialisation(doctor.getSpecialisation()).setAddress(doctor.getAddress()).setPhoneNumber(doctor.getPhoneNumber())
+				.setEmail(doctor.getEmail()).build();
+	}
+
+	@Benchmark
+	public Hospital hospitalBuilder() {
+		return Hospital.newBuilder().setId(hospital.getId()).setType(hospital.getType()).setName(hospital.getName())
+				.setCity(hospital.getCity()).setState(hospital.getState()).setPhoneNumber(hospital.getPhoneNumber())
+				.setEmail(hospital.getEmail()).build();
+	}
+
+	@Benchmark
+	public Patient patientCopyBuilder() {
+		return Patient.newBuilder(patient).build();
+	}
+
+}
@@ -5,8 +5,13 @@ import java.util.Map;
 
 import org.apache.commons.lang3.ArrayUtils;
 
+import com.asnworks.meditrack.duct.utils.ArchiveStatsTool;
+import com.asnworks.meditrack.duct.utils.CompactTool;
+import com.asnworks.meditrack.duct.utils.CsvToAvroJob;
 import com.asnworks.meditrack.duct.utils.MediTrackPipeline;
+import com.asnworks.meditrack.duct.utils.SnapshotTool;
 import com.asnworks.meditrack.duct.utils.Tool;
+import com.asnworks.meditrack.duct.utils.UploadTool;
 
 import avro.shaded.com.google.common.collect.ImmutableMap;
 
@@ -15,12 +20,18 @@ import avro.shaded.com.google.common.collect.ImmutableMap;
  * 
  * Command to run
  * 
- * duct -fs hdfs://192.168.49.128:8020 /user/cloudera/meditrack/artifact-repository/ARCHIVE/<>
+ * duct -fs hdfs://192.168.49.128:8020 -i intake.csv /user/cloudera/meditrack/artifact-repository/ARCHIVE/<>
  */
 public class Main {
 
 	private static final Map<String, Tool> TOOLS = ImmutableMap.<String, Tool>builder()
-			.put("duct", new MediTrackPipeline()).build();
+			.put("duct", new MediTrackPipeline())
+			.put("stats", new ArchiveStatsTool(false))
+			.put("count", new ArchiveStatsTool(true))
+			.put("upload", new UploadTool())
+			.put("compact", new CompactTool())
+			.put("convert", new CsvToAvroJob())
+			.put("snapshot", new SnapshotTool()).build();
 
 	/**
 	 * The first argument is the command to run. The other arguments are
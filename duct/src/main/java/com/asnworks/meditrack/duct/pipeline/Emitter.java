@@ -0,0 +1,20 @@
+package com.asnworks.meditrack.duct.pipeline;
+
+import java.io.IOException;
+
+/**
+ * Hands the items produced by a stage of a {@link StagedPipeline} to the next stage.
+ *
+ * @param <T> the type of the items
+ */
+public interface Emitter<T> {
+
+	/**
+	 * Passes an item to the next stage, blocking while the queue of the next stage is full. The item must not be changed afterwards.
+	 *
+	 * @param item the item
+	 * @throws IOException when the pipeline failed or was interrupted while waiting
+	 */
+	void emit(T item) throws IOException;
+
+}
@@ -0,0 +1,20 @@
+package com.asnworks.meditrack.duct.pipeline;
+
+import java.io.IOException;
+
+/**
+ * First stage of a {@link StagedPipeline}, which produces the items, e.g. by reading a file. A source runs on a single thread.
+ *
+ * @param <O> the type of the items produced
+ */
+public interface Source<O> {
+
+	/**
+	 * Produces all items.
+	 *
+	 * @param output receives the items
+	 * @throws IOException when the items could not be produced
+	 */
+	void read(Emitter<O> output) throws IOException;
+
+}
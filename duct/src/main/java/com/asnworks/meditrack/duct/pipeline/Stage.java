@@ -0,0 +1,23 @@
+package com.asnworks.meditrack.duct.pipeline;
+
+import java.io.IOException;
+
+/**
+ * Stage of a {@link StagedPipeline} that turns each item into zero or more items for the next stage. A stage that runs on more than one
+ * thread is called concurrently, so it must keep per item state in local variables.
+ *
+ * @param <I> the type of the items processed
+ * @param <O> the type of the items produced
+ */
+public interface Stage<I, O> {
+
+	/**
+	 * Processes an item.
+	 *
+	 * @param item the item to process
+	 * @param output receives the items produced
+	 * @throws IOException when the item could not be processed, which stops the pipeline
+	 */
+	void process(I item, Emitter<O> output) throws IOException;
+
+}
@@ -0,0 +1,153 @@
+package com.asnworks.meditrack.duct.pipeline;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a stage of a {@link StagedPipeline}. The time of the stage threads is split into
+ * <ul>
+ * <li>busy: processing items;</li>
+ * <li>blocked: waiting for room in the queue of the next stage, i.e. throttled by a slower stage downstream;</li>
+ * <li>idle: waiting for items, i.e. starved by a slower stage upstream.</li>
+ * </ul>
+ * The stage with the highest busy share is the bottleneck. The depth of the input queue is sampled whenever an item is taken from it.
+ */
+public class StageMetrics {
+
+	private final String name;
+	private final int threads;
+	private final int queueCapacity;
+	private final BlockingQueue<?> queue;
+	private final AtomicLong itemsIn = new AtomicLong();
+	private final AtomicLong itemsOut = new AtomicLong();
+	private final AtomicLong busyNanos = new AtomicLong();
+	private final AtomicLong blockedNanos = new AtomicLong();
+	private final AtomicLong idleNanos = new AtomicLong();
+	private final AtomicLong depthSum = new AtomicLong();
+	private final AtomicLong maxDepth = new AtomicLong();
+	private volatile long elapsedNanos;
+
+	StageMetrics(String name, int threads, BlockingQueue<?> queue, int queueCapacity) {
+		this.name = name;
+		this.threads = threads;
+		this.queue = queue;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * @param metrics the metrics of all stages of a pipeline
+	 * @return the stage that was busy for the largest share of its thread time, {@code null} if there are no stages
+	 */
+	public static StageMetrics bottleneck(Collection<StageMetrics> metrics) {
+		StageMetrics bottleneck = null;
+		for (StageMetrics stage : metrics) {
+			if (bottleneck == null || stage.getBusyShare() > bottleneck.getBusyShare()) {
+				bottleneck = stage;
+			}
+		}
+		return bottleneck;
+	}
+
+	void taken(int depth, long waitNanos) {
+		itemsIn.incrementAndGet();
+		idleNanos.addAndGet(waitNanos);
+		depthSum.addAndGet(depth);
+		long max;
+		while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) {
+			// retry until the maximum is at least depth
+		}
+	}
+
+	void emitted(long waitNanos) {
+		itemsOut.incrementAndGet();
+		blockedNanos.addAndGet(waitNanos);
+	}
+
+	void worked(long nanos) {
+		busyNanos.addAndGet(nanos);
+	}
+
+	void waited(long nanos) {
+		idleNanos.addAndGet(nanos);
+	}
+
+	void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public long getItemsIn() {
+		return itemsIn.get();
+	}
+
+	public long getItemsOut() {
+		return itemsOut.get();
+	}
+
+	/**
+	 * @return the share of the thread time spent processing items, between 0 and 1
+	 */
+	public double getBusyShare() {
+		return share(busyNanos.get() - blockedNanos.get());
+	}
+
+	/**
+	 * @return the share of the thread time spent waiting for room in the queue of the next stage, between 0 and 1
+	 */
+	public double getBlockedShare() {
+		return share(blockedNanos.get());
+	}
+
+	/**
+	 * @return the share of the thread time spent waiting for items, between 0 and 1
+	 */
+	public double getIdleShare() {
+		return share(idleNanos.get());
+	}
+
+	/**
+	 * @return the average depth of the input queue when an item was taken, 0 for a source
+	 */
+	public double getAverageQueueDepth() {
+		long taken = itemsIn.get();
+		return taken == 0 ? 0 : (double) depthSum.get() / taken;
+	}
+
+	/**
+	 * @return the current number of items in the input queue, 0 for a source
+	 */
+	public int getQueueDepth() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	/**
+	 * @return the number of items produced per second
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : itemsOut.get() / (elapsedNanos / 1e9);
+	}
+
+	private double share(long nanos) {
+		return elapsedNanos == 0 ? 0 : Math.max(0, Math.min(1, (double) nanos / threads / elapsedNanos));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(String.format("%s: %d threads, %d in, %d out (%.0f/s), busy %.0f%%, blocked %.0f%%, idle %.0f%%",
+				name, threads, itemsIn.get(), itemsOut.get(), getThroughput(), 100 * getBusyShare(), 100 * getBlockedShare(),
+				100 * getIdleShare()));
+		if (queue != null) {
+			text.append(String.format(", queue %d/%d (avg %.1f, max %d)", queue.size(), queueCapacity, getAverageQueueDepth(), maxDepth.get()));
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,314 @@
+package com.asnworks.meditrack.duct.pipeline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs a source and a chain of stages, each on its own threads, connected by bounded queues. A stage that can't keep up fills its input
+ * queue, which blocks the stage in front of it, and so on up to the source: the slowest stage sets the pace and the memory used is
+ * bounded by the queue capacities, whatever the amount of data. Usage:
+ *
+ * <pre>
+ * List&lt;StageMetrics&gt; metrics = StagedPipeline.from("read", source)
+ *         .then("parse", 4, 8, parser)
+ *         .then("write", 1, 8, writer)
+ *         .build().run();
+ * </pre>
+ *
+ * Items are passed one at a time, so they should be batches of records rather than single records. A stage with more than one thread
+ * does not keep the order of the items. When a stage fails, all stages stop and {@link #run()} throws the failure.
+ */
+public class StagedPipeline {
+
+	private static final long POLL_INTERVAL_MS = 100;
+	private static final Object END_OF_DATA = new Object();
+
+	private final List<StageRunner> stages;
+	private final List<StageMetrics> metrics;
+	private final long reportIntervalNanos;
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	private StagedPipeline(List<StageRunner> stages, long reportIntervalNanos) {
+		this.stages = stages;
+		this.reportIntervalNanos = reportIntervalNanos;
+		List<StageMetrics> stageMetrics = new ArrayList<StageMetrics>(stages.size());
+		for (StageRunner stage : stages) {
+			stageMetrics.add(stage.metrics);
+		}
+		this.metrics = Collections.unmodifiableList(stageMetrics);
+	}
+
+	/**
+	 * Starts a pipeline.
+	 *
+	 * @param name name of the source stage, used for thread names and metrics
+	 * @param source produces the items
+	 * @return a builder to add the next stages to
+	 */
+	public static <O> Builder<O> from(String name, Source<O> source) {
+		return new Builder<O>(new StageRunner(name, 1, 0, source, null));
+	}
+
+	/**
+	 * Runs all stages until the source has produced all items and all stages have processed them, or until a stage fails. A pipeline can
+	 * only be run once.
+	 *
+	 * @return the metrics of the stages, in pipeline order
+	 * @throws IOException when a stage failed, with the first failure as cause
+	 */
+	public List<StageMetrics> run() throws IOException {
+		long start = System.nanoTime();
+		List<ExecutorService> executors = new ArrayList<ExecutorService>(stages.size());
+		try {
+			for (int i = 0; i < stages.size(); i++) {
+				StageRunner stage = stages.get(i);
+				StageRunner next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+				ExecutorService executor = Executors.newFixedThreadPool(stage.threads, new ThreadFactoryBuilder().setNameFormat(
+						stage.metrics.getName() + "-%d").build());
+				executors.add(executor);
+				for (int thread = 0; thread < stage.threads; thread++) {
+					executor.execute(new Worker(stage, next));
+				}
+			}
+			awaitTermination(executors, start);
+		} finally {
+			for (ExecutorService executor : executors) {
+				executor.shutdownNow();
+			}
+			setElapsed(System.nanoTime() - start);
+		}
+		checkFailure();
+		return metrics;
+	}
+
+	/**
+	 * @return the metrics of the stages, in pipeline order, updated while the pipeline runs
+	 */
+	public List<StageMetrics> getMetrics() {
+		return metrics;
+	}
+
+	private void awaitTermination(List<ExecutorService> executors, long start) throws IOException {
+		for (ExecutorService executor : executors) {
+			executor.shutdown();
+		}
+		long nextReport = start + reportIntervalNanos;
+		try {
+			for (ExecutorService executor : executors) {
+				while (!executor.awaitTermination(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+					if (failure.get() != null) {
+						// stages blocked on a queue of a failed stage would wait forever
+						for (ExecutorService other : executors) {
+							other.shutdownNow();
+						}
+					}
+					if (reportIntervalNanos > 0 && System.nanoTime() >= nextReport) {
+						setElapsed(System.nanoTime() - start);
+						for (StageMetrics stage : metrics) {
+							System.out.println(stage);
+						}
+						nextReport += reportIntervalNanos;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, new IOException("Interrupted while waiting for the pipeline", e));
+		}
+	}
+
+	private void setElapsed(long elapsedNanos) {
+		for (StageMetrics stage : metrics) {
+			stage.setElapsedNanos(elapsedNanos);
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		Throwable e = failure.get();
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		}
+		if (e != null) {
+			throw new IOException("Pipeline stage failed", e);
+		}
+	}
+
+	/**
+	 * Adds the stages of a {@link StagedPipeline}.
+	 *
+	 * @param <O> the type of the items produced by the last stage added
+	 */
+	public static final class Builder<O> {
+
+		private final List<StageRunner> stages;
+		private long reportIntervalNanos;
+
+		private Builder(StageRunner source) {
+			this.stages = new ArrayList<StageRunner>();
+			stages.add(source);
+		}
+
+		private Builder(List<StageRunner> stages, long reportIntervalNanos) {
+			this.stages = stages;
+			this.reportIntervalNanos = reportIntervalNanos;
+		}
+
+		/**
+		 * Adds a stage after the last stage. The items produced by the last stage of the pipeline are dropped.
+		 *
+		 * @param name name of the stage, used for thread names and metrics
+		 * @param threads number of threads processing items
+		 * @param queueCapacity number of items that may wait for the stage before the previous stage blocks
+		 * @param stage processes the items
+		 * @return this builder, for the type of the items of the new stage
+		 */
+		public <N> Builder<N> then(String name, int threads, int queueCapacity, Stage<? super O, N> stage) {
+			if (threads < 1 || queueCapacity < 1) {
+				throw new IllegalArgumentException(String.format("Stage %s needs at least one thread and queue slot, got %d and %d", name,
+						threads, queueCapacity));
+			}
+			stages.add(new StageRunner(name, threads, queueCapacity, null, stage));
+			return new Builder<N>(stages, reportIntervalNanos);
+		}
+
+		/**
+		 * Prints the metrics of all stages to standard out while the pipeline runs.
+		 *
+		 * @param interval time between reports, 0 for no reports
+		 * @param unit unit of the interval
+		 * @return this builder
+		 */
+		public Builder<O> reportEvery(long interval, TimeUnit unit) {
+			this.reportIntervalNanos = unit.toNanos(interval);
+			return this;
+		}
+
+		/**
+		 * @return the pipeline, ready to run
+		 */
+		public StagedPipeline build() {
+			return new StagedPipeline(new ArrayList<StageRunner>(stages), reportIntervalNanos);
+		}
+	}
+
+	private static final class StageRunner {
+
+		final int threads;
+		final BlockingQueue<Object> queue;
+		final Source<?> source;
+		final Stage<?, ?> stage;
+		final StageMetrics metrics;
+		final AtomicInteger running;
+
+		StageRunner(String name, int threads, int queueCapacity, Source<?> source, Stage<?, ?> stage) {
+			this.threads = threads;
+			// a source has no input queue, the stages need room for the end of data markers of all their threads
+			this.queue = source != null ? null : new ArrayBlockingQueue<Object>(queueCapacity + threads);
+			this.source = source;
+			this.stage = stage;
+			this.metrics = new StageMetrics(name, threads, queue, queueCapacity);
+			this.running = new AtomicInteger(threads);
+		}
+	}
+
+	private final class Worker implements Runnable, Emitter<Object> {
+
+		private final StageRunner stage;
+		private final StageRunner next;
+
+		Worker(StageRunner stage, StageRunner next) {
+			this.stage = stage;
+			this.next = next;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			try {
+				if (stage.source != null) {
+					long start = System.nanoTime();
+					((Source<Object>) stage.source).read(this);
+					stage.metrics.worked(System.nanoTime() - start);
+				} else {
+					Stage<Object, Object> processor = (Stage<Object, Object>) stage.stage;
+					Object item;
+					while ((item = take()) != END_OF_DATA) {
+						long start = System.nanoTime();
+						processor.process(item, this);
+						stage.metrics.worked(System.nanoTime() - start);
+					}
+				}
+			} catch (Throwable e) {
+				// errors too, a stage that stops without a failure leaves the stages after it waiting for their end of data
+				failure.compareAndSet(null, e);
+			} finally {
+				if (stage.running.decrementAndGet() == 0 && next != null) {
+					forwardEndOfData();
+				}
+			}
+		}
+
+		private void forwardEndOfData() {
+			for (int i = 0; i < next.threads; i++) {
+				try {
+					put(END_OF_DATA);
+				} catch (IOException e) {
+					// the pipeline failed, the next stage stops on the failure, or on the end of data when there is room for it
+					next.queue.offer(END_OF_DATA);
+				}
+			}
+		}
+
+		@Override
+		public void emit(Object item) throws IOException {
+			long start = System.nanoTime();
+			if (next != null) {
+				put(item);
+			}
+			stage.metrics.emitted(System.nanoTime() - start);
+		}
+
+		private Object take() throws IOException {
+			long start = System.nanoTime();
+			try {
+				Object item;
+				do {
+					checkFailure();
+					item = stage.queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				} while (item == null);
+				if (item != END_OF_DATA) {
+					stage.metrics.taken(stage.queue.size() + 1, System.nanoTime() - start);
+				} else {
+					stage.metrics.waited(System.nanoTime() - start);
+				}
+				return item;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for items of stage " + stage.metrics.getName(), e);
+			}
+		}
+
+		private void put(Object item) throws IOException {
+			try {
+				do {
+					checkFailure();
+				} while (!next.queue.offer(item, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while handing items to stage " + next.metrics.getName(), e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.asnworks.meditrack.duct.utils;
+
+/**
+ * Record and block counts of one or more Avro container files, as found by {@link AvroBlockScanner}.
+ */
+public class ArchiveFileStats {
+
+	private final String file;
+	private final String codec;
+	private long records;
+	private long blocks;
+	private long compressedBytes;
+	private long uncompressedBytes;
+	private long fileBytes;
+
+	/**
+	 * @param file name of the file, or a description of the files for totals
+	 * @param codec codec of the file
+	 */
+	public ArchiveFileStats(String file, String codec) {
+		this.file = file;
+		this.codec = codec;
+	}
+
+	/**
+	 * @param uncompressedBytes uncompressed size of the block data, -1 if not known
+	 */
+	void addBlock(long blockRecords, long blockBytes, long uncompressedBytes) {
+		records += blockRecords;
+		blocks++;
+		compressedBytes += blockBytes;
+		if (uncompressedBytes < 0 || this.uncompressedBytes < 0) {
+			this.uncompressedBytes = -1;
+		} else {
+			this.uncompressedBytes += uncompressedBytes;
+		}
+	}
+
+	void setFileBytes(long fileBytes) {
+		this.fileBytes = fileBytes;
+	}
+
+	/**
+	 * Adds the counts of another file to these counts.
+	 */
+	public void add(ArchiveFileStats other) {
+		records += other.records;
+		blocks += other.blocks;
+		compressedBytes += other.compressedBytes;
+		fileBytes += other.fileBytes;
+		uncompressedBytes = uncompressedBytes < 0 || other.uncompressedBytes < 0 ? -1 : uncompressedBytes + other.uncompressedBytes;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public String getCodec() {
+		return codec;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public long getBlocks() {
+		return blocks;
+	}
+
+	/**
+	 * @return size of the block data as stored in the file
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes;
+	}
+
+	/**
+	 * @return size of the block data after decompression, -1 if the blocks were not decompressed
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes;
+	}
+
+	/**
+	 * @return size of the file including header and sync markers
+	 */
+	public long getFileBytes() {
+		return fileBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: records=%d blocks=%d compressed=%d uncompressed=%s file=%d codec=%s", file, records, blocks, compressedBytes,
+				uncompressedBytes < 0 ? "n/a" : String.valueOf(uncompressedBytes), fileBytes, codec);
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.asnworks.meditrack.duct.utils;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.DatumWriter;
+
+/**
+ * Compression codec and block size used for the Avro archive files. Supported codecs are null, deflate (level 0-9), snappy, bzip2 and
+ * xz (level 0-9).
+ */
+public class ArchiveFormat {
+
+	/** Level value that selects the default level of the codec. */
+	public static final int DEFAULT_LEVEL = -1;
+
+	private final String codecName;
+	private final int level;
+	private final CodecFactory codecFactory;
+	private final int syncInterval;
+
+	/**
+	 * @param codecName name of the codec
+	 * @param level compression level for deflate and xz, {@link #DEFAULT_LEVEL} for the codec default
+	 * @param syncInterval approximate number of uncompressed bytes per block
+	 * @throws IllegalArgumentException when the codec is unknown or the level or sync interval is out of range
+	 */
+	public ArchiveFormat(String codecName, int level, int syncInterval) {
+		if (syncInterval < 32 || syncInterval > (1 << 30)) {
+			throw new IllegalArgumentException("Sync interval must be between 32 and 2^30 bytes: " + syncInterval);
+		}
+		this.codecName = codecName;
+		this.level = level;
+		this.codecFactory = codecFactory(codecName, level);
+		this.syncInterval = syncInterval;
+	}
+
+	/**
+	 * @return the format Avro uses when nothing is configured: no compression and the default sync interval
+	 */
+	public static ArchiveFormat defaultFormat() {
+		return new ArchiveFormat(DataFileConstants.NULL_CODEC, DEFAULT_LEVEL, DataFileConstants.DEFAULT_SYNC_INTERVAL);
+	}
+
+	/**
+	 * Creates a {@link DataFileWriter} configured with the codec and sync interval of this format.
+	 * 
+	 * @param datumWriter writer for the records
+	 * @return a new, not yet opened, {@link DataFileWriter}
+	 */
+	public <D> DataFileWriter<D> newWriter(DatumWriter<D> datumWriter) {
+		return new DataFileWriter<D>(datumWriter).setCodec(codecFactory).setSyncInterval(syncInterval);
+	}
+
+	public String getCodecName() {
+		return codecName;
+	}
+
+	public int getSyncInterval() {
+		return syncInterval;
+	}
+
+	@Override
+	public String toString() {
+		return level == DEFAULT_LEVEL ? codecName : codecName + "-" + level;
+	}
+
+	private static CodecFactory codecFactory(String codecName, int level) {
+		if (DataFileConstants.DEFLATE_CODEC.equals(codecName)) {
+			checkLevel(codecName, level, 0, 9);
+			return CodecFactory.deflateCodec(level == DEFAULT_LEVEL ? CodecFactory.DEFAULT_DEFLATE_LEVEL : level);
+		}
+		if (DataFileConstants.XZ_CODEC.equals(codecName)) {
+			checkLevel(codecName, level, 0, 9);
+			return CodecFactory.xzCodec(level == DEFAULT_LEVEL ? CodecFactory.DEFAULT_XZ_LEVEL : level);
+		}
+		if (DataFileConstants.NULL_CODEC.equals(codecName) || DataFileConstants.SNAPPY_CODEC.equals(codecName)
+				|| DataFileConstants.BZIP2_CODEC.equals(codecName)) {
+			checkLevel(codecName, level, DEFAULT_LEVEL, DEFAULT_LEVEL);
+			return CodecFactory.fromString(codecName);
+		}
+		throw new IllegalArgumentException("Unknown codec: " + codecName);
+	}
+
+	private static void checkLevel(String codecName, int level, int min, int max) {
+		if (level != DEFAULT_LEVEL && (level < min || level > max)) {
+			if (min == max) {
+				throw new IllegalArgumentException(String.format("Codec %s does not support a level", codecName));
+			}
+			throw new IllegalArgumentException(String.format("Level for codec %s must be between %d and %d: %d", codecName, min, max, level));
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.avro.file.DataFileWriter;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.asnworks.meditrack.model.store.IntLongHashMap;
+
+/**
+ * Index from record id to the position of the record in an Avro archive file: the offset of the block that holds the record, right after
+ * the sync marker in front of it, and the ordinal of the record in that block. A reader seeks to the block and decodes only that record,
+ * see {@link IndexedArchiveReader}. Both are packed in a long, 40 bits for the offset and 24 bits for the ordinal, in an
+ * {@link IntLongHashMap}.
+ * <p>
+ * The index is written next to the archive, with the {@link #SUFFIX} appended to the archive name, which readers of the archive directory
+ * skip. It records the length of the archive, so an index that no longer fits its archive, e.g. after the archive was compacted, is not
+ * used. When several records have the same id, the index finds the first one.
+ */
+public final class ArchiveIndex {
+
+	/** Suffix of the index file of an archive, patients.avro.idx for patients.avro. */
+	public static final String SUFFIX = ".idx";
+
+	private static final long MAGIC = 0x4d54494458000001L;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int ORDINAL_BITS = 24;
+	private static final long MAX_ORDINAL = (1L << ORDINAL_BITS) - 1;
+	private static final long MAX_POSITION = (1L << (Long.SIZE - ORDINAL_BITS)) - 1;
+
+	private final IntLongHashMap entries;
+	private final long archiveLength;
+
+	private ArchiveIndex(IntLongHashMap entries, long archiveLength) {
+		this.entries = entries;
+		this.archiveLength = archiveLength;
+	}
+
+	/**
+	 * Reads the index of an archive.
+	 *
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param archivePath path of the archive file, the index is read from this path with the {@link #SUFFIX}
+	 * @return the index
+	 * @throws IOException when the index does not exist or could not be read
+	 */
+	public static ArchiveIndex read(HdfsTools hdfsTools, String archivePath) throws IOException {
+		String indexPath = archivePath + SUFFIX;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(hdfsTools.getInputStream(indexPath), BUFFER_SIZE));
+		try {
+			if (in.readLong() != MAGIC) {
+				throw new IOException("Not an archive index: " + indexPath);
+			}
+			long archiveLength = in.readLong();
+			return new ArchiveIndex(IntLongHashMap.readFrom(in), archiveLength);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the index, and closes the stream.
+	 *
+	 * @param out stream to the index file
+	 * @throws IOException when the index could not be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+		try {
+			data.writeLong(MAGIC);
+			data.writeLong(archiveLength);
+			entries.writeTo(data);
+		} finally {
+			data.close();
+		}
+	}
+
+	/**
+	 * @param id a record id
+	 * @return the position of the first record with the id, {@code -1} if there is no such record
+	 */
+	public long positionOf(int id) {
+		return entries.get(id, -1);
+	}
+
+	/**
+	 * @param position a position returned by {@link #positionOf(int)}
+	 * @return the offset in the archive of the block with the record
+	 */
+	public static long blockOffset(long position) {
+		return position >>> ORDINAL_BITS;
+	}
+
+	/**
+	 * @param position a position returned by {@link #positionOf(int)}
+	 * @return the number of records in front of the record in its block
+	 */
+	public static int ordinal(long position) {
+		return (int) (position & MAX_ORDINAL);
+	}
+
+	/**
+	 * @return the number of ids in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the length of the archive file the index was written for
+	 */
+	public long getArchiveLength() {
+		return archiveLength;
+	}
+
+	/**
+	 * Builds the index of an archive while it is written by a {@link DataFileWriter}, from the ids of the records appended to it. The
+	 * writer flushes every block it completes to the counting stream below it, so a change of the byte count after an append marks the end
+	 * of a block: the records appended since the previous change are in the block at the previous byte count. Only the ids of the records
+	 * of the current block are buffered, the archive is not read back.
+	 * <p>
+	 * The writer must not be synced or flushed between appends, which would end a block without an append to notice it. Not thread-safe.
+	 */
+	public static final class Builder {
+
+		private final CountingOutputStream archiveStream;
+		private final IntLongHashMap entries = new IntLongHashMap(1 << 16);
+		private int[] blockIds = new int[1024];
+		private int blockRecords;
+		private long blockOffset;
+		private long records;
+
+		/**
+		 * @param writer writer of the archive, after the header was written by {@link DataFileWriter#create}
+		 * @param archiveStream the stream the writer writes to
+		 */
+		public Builder(DataFileWriter<?> writer, CountingOutputStream archiveStream) {
+			writer.setFlushOnEveryBlock(true);
+			this.archiveStream = archiveStream;
+			this.blockOffset = archiveStream.getByteCount();
+		}
+
+		/**
+		 * Adds the record that was appended last to the writer.
+		 *
+		 * @param id id of the record
+		 * @throws IOException when the archive is too large, or a block holds too many records, to be indexed
+		 */
+		public void add(int id) throws IOException {
+			if (blockRecords == blockIds.length) {
+				blockIds = Arrays.copyOf(blockIds, blockIds.length << 1);
+			}
+			blockIds[blockRecords++] = id;
+			records++;
+			if (archiveStream.getByteCount() != blockOffset) {
+				endBlock();
+			}
+		}
+
+		private void endBlock() throws IOException {
+			if (blockOffset > MAX_POSITION || blockRecords - 1 > MAX_ORDINAL) {
+				throw new IOException(String.format("Unable to index block of %d records at offset %d; ids support blocks of up to %d records"
+						+ " at offsets up to %d", blockRecords, blockOffset, MAX_ORDINAL + 1, MAX_POSITION));
+			}
+			for (int i = 0; i < blockRecords; i++) {
+				entries.putIfAbsent(blockIds[i], blockOffset << ORDINAL_BITS | i);
+			}
+			blockRecords = 0;
+			blockOffset = archiveStream.getByteCount();
+		}
+
+		/**
+		 * Completes the index, after the writer was closed.
+		 *
+		 * @return the index
+		 * @throws IOException when the last block could not be indexed
+		 */
+		public ArchiveIndex build() throws IOException {
+			if (blockRecords > 0) {
+				endBlock();
+			}
+			return new ArchiveIndex(entries, archiveStream.getByteCount());
+		}
+
+		/**
+		 * @return the number of records added, including records with an id that was added before
+		 */
+		public long getRecords() {
+			return records;
+		}
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.Path;
+
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+/**
+ * Reads the records of an Avro archive file, or of all archive files in a directory such as the part files written by a sharded run.
+ * Files are streamed one after the other through {@link HdfsTools#getInputStream(String)}.
+ * <p>
+ * A single record instance is reused for all records: the object returned by {@link #next()} is overwritten by the next call, so callers
+ * that keep records must copy them. A projection of the record schema can be passed to read only the fields that are needed; the other
+ * fields are skipped in the input and left empty.
+ * 
+ * @param <T> the type of the records
+ */
+public class ArchiveReader<T extends SpecificRecord> implements Iterator<T>, Closeable {
+
+	/** Archive files in a directory, files starting with _ or . are hidden, like for Hadoop input formats. */
+	public static final String ARCHIVE_FILE_REGEX = "[^_.].*\\.avro";
+
+	/**
+	 * Partition directories, e.g. state=NY, as written by {@link PartitionSpec}. Other directories, such as the run directories of an
+	 * incremental ingest or hidden ones like _temporary, are not read.
+	 */
+	public static final String PARTITION_DIRECTORY_REGEX = "[^_.=][^=]*=[^=]*";
+
+	private final HdfsTools hdfsTools;
+	private final Schema readerSchema;
+	private final List<String> files;
+	private int nextFile;
+	private DataFileStream<T> stream;
+	private T reuse;
+
+	/**
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param path archive file, or directory containing archive files
+	 * @param readerSchema schema of the records, or a projection of it
+	 * @throws IOException when the path could not be accessed
+	 */
+	public ArchiveReader(HdfsTools hdfsTools, String path, Schema readerSchema) throws IOException {
+		this.hdfsTools = hdfsTools;
+		this.readerSchema = readerSchema;
+		this.files = archiveFiles(hdfsTools, path);
+	}
+
+	/**
+	 * Returns the archive files for a path: the path itself if it is a file, the archive files in it, sorted by name, if it is a directory.
+	 * Partition directories of a partitioned run, named <code>key=value</code>, are read as well, after the files next to them; other
+	 * subdirectories are skipped. Files that a merged file of an unfinished compaction replaces are skipped once the merged file is there,
+	 * see {@link CompactionJournal}.
+	 * 
+	 * @param hdfsTools tools for the file system of the path
+	 * @param path archive file or directory
+	 * @return the paths of the archive files
+	 * @throws IOException when the path does not exist or could not be accessed
+	 */
+	public static List<String> archiveFiles(HdfsTools hdfsTools, String path) throws IOException {
+		if (!hdfsTools.exists(path)) {
+			throw new IOException(String.format("Path %s does not exist", path));
+		}
+		if (hdfsTools.isFile(path)) {
+			return Collections.singletonList(path);
+		}
+		List<String> paths = new ArrayList<String>();
+		addArchiveFiles(hdfsTools, path, paths);
+		return paths;
+	}
+
+	private static void addArchiveFiles(HdfsTools hdfsTools, String directory, List<String> paths) throws IOException {
+		List<String> names = new ArrayList<String>(hdfsTools.listFiles(directory, ARCHIVE_FILE_REGEX));
+		for (CompactionJournal journal : CompactionJournal.readAll(hdfsTools, directory)) {
+			// the merged file took the place of the files it replaces, which are not all deleted yet
+			if (names.contains(new Path(journal.getFinalPath()).getName())) {
+				names.removeAll(journal.getReplacedNames());
+			}
+		}
+		Collections.sort(names);
+		for (String name : names) {
+			paths.add(new Path(directory, name).toString());
+		}
+		List<String> partitions = new ArrayList<String>(hdfsTools.listDirectories(directory, PARTITION_DIRECTORY_REGEX));
+		Collections.sort(partitions);
+		for (String partition : partitions) {
+			addArchiveFiles(hdfsTools, new Path(directory, partition).toString(), paths);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			while (stream == null || !stream.hasNext()) {
+				if (stream != null) {
+					stream.close();
+					stream = null;
+				}
+				if (nextFile == files.size()) {
+					return false;
+				}
+				stream = open(files.get(nextFile++));
+			}
+			return true;
+		} catch (IOException e) {
+			throw new ArchiveReadException("Unable to read archive " + getCurrentFile(), e);
+		}
+	}
+
+	/**
+	 * Returns the next record. The returned instance is reused by the next call.
+	 * 
+	 * @throws ArchiveReadException when the archive could not be read
+	 */
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		try {
+			reuse = stream.next(reuse);
+			return reuse;
+		} catch (IOException e) {
+			throw new ArchiveReadException("Unable to read archive " + getCurrentFile(), e);
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Archives are read-only");
+	}
+
+	/**
+	 * @return the archive file of the last record returned, {@code null} before the first record
+	 */
+	public String getCurrentFile() {
+		return nextFile == 0 ? null : files.get(nextFile - 1);
+	}
+
+	/**
+	 * @return the archive files read by this reader
+	 */
+	public List<String> getFiles() {
+		return Collections.unmodifiableList(files);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (stream != null) {
+			stream.close();
+			stream = null;
+		}
+		nextFile = files.size();
+	}
+
+	private DataFileStream<T> open(String file) throws IOException {
+		InputStream in = hdfsTools.getInputStream(file);
+		try {
+			return new DataFileStream<T>(in, DatumCodecs.<T>readerFor(readerSchema));
+		} catch (IOException e) {
+			IOUtils.closeQuietly(in);
+			throw e;
+		}
+	}
+
+	/**
+	 * Unchecked exception for read failures while iterating, as {@link Iterator} does not allow checked exceptions.
+	 */
+	public static class ArchiveReadException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public ArchiveReadException(String message, IOException cause) {
+			super(message, cause);
+		}
+
+		@Override
+		public synchronized IOException getCause() {
+			return (IOException) super.getCause();
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.asnworks.meditrack.duct.utils;
+
+/**
+ * Number of records and bytes written to one or more archive files.
+ */
+public class ArchiveStats {
+
+	private long records;
+	private long rawBytes;
+	private long writtenBytes;
+
+	/**
+	 * Adds the counts of a closed archive file.
+	 * 
+	 * @param records number of records in the file
+	 * @param rawBytes number of bytes of the encoded records before compression
+	 * @param writtenBytes size of the file
+	 */
+	public synchronized void add(long records, long rawBytes, long writtenBytes) {
+		this.records += records;
+		this.rawBytes += rawBytes;
+		this.writtenBytes += writtenBytes;
+	}
+
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	public synchronized long getRawBytes() {
+		return rawBytes;
+	}
+
+	public synchronized long getWrittenBytes() {
+		return writtenBytes;
+	}
+
+	/**
+	 * @return ratio of uncompressed record bytes to written file bytes, 0 if nothing was written
+	 */
+	public synchronized double getCompressionRatio() {
+		return writtenBytes == 0 ? 0 : (double) rawBytes / writtenBytes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d records, %d bytes encoded, %d bytes written, compression ratio %.2f", records, rawBytes, writtenBytes,
+				getCompressionRatio());
+	}
+
+}
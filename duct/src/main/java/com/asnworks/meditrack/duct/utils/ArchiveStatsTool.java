@@ -0,0 +1,120 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+/**
+ * Reports the number of records, blocks and bytes of Avro archive files from the block headers, without decoding the records. The
+ * <code>count</code> command only reports the totals, the <code>stats</code> command reports every file as well.
+ * 
+ * Command to run
+ * 
+ * stats -fs hdfs://192.168.49.128:8020 -t 8 /user/cloudera/meditrack/artifact-repository/ARCHIVE/<>
+ */
+public class ArchiveStatsTool extends Tool {
+
+	@Argument(required = true, usage = "Archive file, or directory containing archive files")
+	private String path;
+
+	@Option(required = false, name = "-fs", aliases = "--fileSystem", usage = "The name of the HDFS file system to use. If not specified, the local file system will be used.")
+	private String fileSystemName;
+
+	@Option(required = false, name = "-u", aliases = "--uncompressed", usage = "Decompress the blocks to report the uncompressed size. This reads all data instead of only the block headers.")
+	private boolean uncompressed;
+
+	@Option(required = false, name = "-t", aliases = "--threads", usage = "Number of files scanned in parallel. Defaults to 1.")
+	private int threads = 1;
+
+	private final boolean countOnly;
+
+	/**
+	 * @param countOnly {@code true} to report only the totals
+	 */
+	public ArchiveStatsTool(boolean countOnly) {
+		this.countOnly = countOnly;
+	}
+
+	@Override
+	protected void run() throws Exception {
+		configureFileSystem(fileSystemName);
+		long start = System.nanoTime();
+
+		List<String> files = ArchiveReader.archiveFiles(hdfsTools, path);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+		try {
+			List<Future<ArchiveFileStats>> results = new ArrayList<Future<ArchiveFileStats>>();
+			for (final String file : files) {
+				results.add(executor.submit(new Callable<ArchiveFileStats>() {
+
+					@Override
+					public ArchiveFileStats call() throws IOException {
+						return scan(file);
+					}
+				}));
+			}
+
+			ArchiveFileStats total = null;
+			for (Future<ArchiveFileStats> result : results) {
+				ArchiveFileStats stats = get(result);
+				if (!countOnly) {
+					System.out.println(stats);
+				}
+				if (total == null) {
+					total = new ArchiveFileStats(String.format("total of %d files", files.size()), stats.getCodec());
+				} else if (!total.getCodec().equals(stats.getCodec())) {
+					total = copyWithCodec(total, "mixed");
+				}
+				total.add(stats);
+			}
+
+			if (total == null) {
+				System.out.println(String.format("No archive files found in %s", path));
+			} else {
+				System.out.println(total);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		System.out.println(String.format("Scanned %d files in %.1f s", files.size(), (System.nanoTime() - start) / 1e9));
+	}
+
+	private ArchiveFileStats scan(String file) throws IOException {
+		long length = hdfsTools.getFileStatus(file).getLen();
+		InputStream in = hdfsTools.getInputStream(file);
+		try {
+			return AvroBlockScanner.scan(file, in, length, uncompressed);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private static ArchiveFileStats get(Future<ArchiveFileStats> result) throws IOException, InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Unable to scan archive", e.getCause());
+		}
+	}
+
+	private static ArchiveFileStats copyWithCodec(ArchiveFileStats stats, String codec) {
+		ArchiveFileStats copy = new ArchiveFileStats(stats.getFile(), codec);
+		copy.add(stats);
+		return copy;
+	}
+
+}
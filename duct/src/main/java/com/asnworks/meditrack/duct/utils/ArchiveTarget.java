@@ -0,0 +1,44 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Destination of the archive files written by a pipeline run. Files are created through {@link #create(String)} and only become visible
+ * in the output path after a successful {@link #commit()}.
+ */
+public interface ArchiveTarget {
+
+	/**
+	 * Creates a new archive file with the specified name.
+	 * 
+	 * @param fileName name of the file in the output path, e.g. patients.avro
+	 * @return {@link OutputStream} to write the file content to, the caller is responsible for closing it before committing
+	 * @throws IOException when the file could not be created
+	 */
+	OutputStream create(String fileName) throws IOException;
+
+	/**
+	 * Reopens a file created by an earlier, interrupted run with this target, to continue writing it. Only the first bytes of the file are
+	 * kept, so a partially written block at the end is discarded.
+	 * 
+	 * @param fileName name of the file in the output path, e.g. patients.avro
+	 * @param length number of bytes to keep
+	 * @return {@link OutputStream} positioned after the kept bytes, the caller is responsible for closing it before committing
+	 * @throws IOException when the file does not exist, is shorter than the length or could not be opened
+	 */
+	OutputStream resume(String fileName, long length) throws IOException;
+
+	/**
+	 * Publishes all files created by this target to the output path.
+	 * 
+	 * @throws IOException when one of the files could not be published
+	 */
+	void commit() throws IOException;
+
+	/**
+	 * Discards all files created by this target. Failures are ignored, as this is called when the run already failed.
+	 */
+	void abort();
+
+}
@@ -0,0 +1,155 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Walks the blocks of an Avro container file using the record count and size in the header of each block, without decoding any record.
+ * Block data is skipped with {@link InputStream#skip(long)}, which is a seek on Hadoop input streams, so only the block headers are read
+ * from the file system.
+ * <p>
+ * Optionally the blocks are decompressed to also report the uncompressed size. That reads all data of the file, but still doesn't decode
+ * the records.
+ */
+public final class AvroBlockScanner {
+
+	private AvroBlockScanner() {
+	}
+
+	/**
+	 * Scans the container file in the stream. The stream is not closed.
+	 * 
+	 * @param file name of the file, used in the result and error messages
+	 * @param in stream positioned at the start of the file
+	 * @param length length of the file in bytes
+	 * @param uncompressed {@code true} to decompress the blocks to determine the uncompressed size
+	 * @return the counts for the file
+	 * @throws IOException when the file could not be read or is not a valid Avro container file
+	 */
+	public static ArchiveFileStats scan(String file, InputStream in, long length, boolean uncompressed) throws IOException {
+		CountingInputStream counting = new CountingInputStream(in);
+		BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(counting, null);
+
+		byte[] magic = new byte[DataFileConstants.MAGIC.length];
+		decoder.readFixed(magic);
+		if (!Arrays.equals(magic, DataFileConstants.MAGIC)) {
+			throw new IOException("Not an Avro data file: " + file);
+		}
+
+		String codec = DataFileConstants.NULL_CODEC;
+		for (long n = decoder.readMapStart(); n != 0; n = decoder.mapNext()) {
+			for (long i = 0; i < n; i++) {
+				String key = decoder.readString();
+				byte[] value = decoder.readBytes(null).array();
+				if (DataFileConstants.CODEC.equals(key)) {
+					codec = new String(value, "UTF-8");
+				}
+			}
+		}
+		byte[] sync = new byte[DataFileConstants.SYNC_SIZE];
+		decoder.readFixed(sync);
+
+		ArchiveFileStats stats = new ArchiveFileStats(file, codec);
+		byte[] blockSync = new byte[DataFileConstants.SYNC_SIZE];
+		byte[] block = new byte[0];
+		try {
+			while (counting.getByteCount() < length) {
+				long records = decoder.readLong();
+				long size = decoder.readLong();
+				if (uncompressed) {
+					if (size > Integer.MAX_VALUE) {
+						throw new IOException(String.format("Block of %d bytes too large in %s", size, file));
+					}
+					if (block.length < size) {
+						block = new byte[(int) size];
+					}
+					decoder.readFixed(block, 0, (int) size);
+					stats.addBlock(records, size, uncompressedSize(codec, block, (int) size));
+				} else {
+					skip(counting, size, file);
+					stats.addBlock(records, size, -1);
+				}
+				decoder.readFixed(blockSync);
+				if (!Arrays.equals(sync, blockSync)) {
+					throw new IOException(String.format("Invalid sync marker at position %d in %s", counting.getByteCount(), file));
+				}
+			}
+		} catch (EOFException e) {
+			// a block cut short, e.g. a file that is still being written
+			throw new EOFException(String.format("Unexpected end of file at position %d in %s", counting.getByteCount(), file));
+		}
+		stats.setFileBytes(length);
+		return stats;
+	}
+
+	private static void skip(InputStream in, long bytes, String file) throws IOException {
+		long remaining = bytes;
+		while (remaining > 0) {
+			long skipped = in.skip(remaining);
+			if (skipped <= 0) {
+				// skip may return 0 without being at the end, read a byte to find out
+				if (in.read() == -1) {
+					throw new EOFException("Unexpected end of file in block data of " + file);
+				}
+				skipped = 1;
+			}
+			remaining -= skipped;
+		}
+	}
+
+	private static long uncompressedSize(String codec, byte[] block, int length) throws IOException {
+		if (DataFileConstants.NULL_CODEC.equals(codec)) {
+			return length;
+		}
+		if (DataFileConstants.DEFLATE_CODEC.equals(codec)) {
+			// Avro uses raw deflate data without zlib header
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(block, 0, length);
+				byte[] buffer = new byte[64 * 1024];
+				long size = 0;
+				while (!inflater.finished()) {
+					int n = inflater.inflate(buffer);
+					if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+					size += n;
+				}
+				return size;
+			} catch (DataFormatException e) {
+				throw new IOException("Invalid deflate block", e);
+			} finally {
+				inflater.end();
+			}
+		}
+		if (DataFileConstants.SNAPPY_CODEC.equals(codec)) {
+			// the snappy data is followed by a 4 byte CRC32 of the uncompressed data
+			return Snappy.uncompressedLength(block, 0, length - 4);
+		}
+		if (DataFileConstants.BZIP2_CODEC.equals(codec)) {
+			return IOUtils.copyLarge(new BZip2CompressorInputStream(new ByteArrayInputStream(block, 0, length)),
+					new NullOutputStream());
+		}
+		if (DataFileConstants.XZ_CODEC.equals(codec)) {
+			return IOUtils.copyLarge(new XZCompressorInputStream(new ByteArrayInputStream(block, 0, length)),
+					new NullOutputStream());
+		}
+		return -1;
+	}
+
+}
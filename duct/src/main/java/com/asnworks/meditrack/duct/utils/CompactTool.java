@@ -0,0 +1,324 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+import com.asnworks.meditrack.duct.utils.HdfsTools.ListOptions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Merges small Avro archive files in a directory, and in its partition directories, into files of about a target size. Blocks are copied
+ * as they are, without decoding the records, and are only recompressed when a file has another codec than the merged file. Files are
+ * merged in name order with the files next to them that have the same schema, never across partition directories.
+ * <p>
+ * A merged file is written under a hidden name and its record count is checked against the files it replaces. A {@link CompactionJournal}
+ * listing the replaced files is then written before the merged file is renamed in, so readers see either the replaced files or the
+ * merged file, and a compaction that fails halfway is completed by the next run. Don't compact a directory that is still being written.
+ *
+ * Command to run
+ *
+ * compact -fs hdfs://192.168.49.128:8020 -s 134217728 /user/cloudera/meditrack/artifact-repository/ARCHIVE/<>
+ */
+public class CompactTool extends Tool {
+
+	private static final double MB = 1024 * 1024;
+	private static final String COMPACTED_PREFIX = "compacted";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	private static final String TEMPORARY_FILE_REGEX = "\\." + COMPACTED_PREFIX + "-.*\\.avro\\" + TEMPORARY_SUFFIX;
+
+	@Argument(required = true, usage = "Directory containing the archive files to compact")
+	private String path;
+
+	@Option(required = false, name = "-fs", aliases = "--fileSystem", usage = "The name of the HDFS file system to use. If not specified, the local file system will be used.")
+	private String fileSystemName;
+
+	@Option(required = false, name = "-s", aliases = "--targetSize", usage = "Maximum size in bytes of a merged file. Defaults to 128 MB.")
+	private long targetSize = 128L * 1024 * 1024;
+
+	@Option(required = false, name = "-m", aliases = "--maxFileSize", usage = "Size in bytes up to which a file is considered small and merged. Defaults to half the target size.")
+	private long maxFileSize;
+
+	@Option(required = false, name = "-c", aliases = "--codec", usage = "Compression codec of the merged files: null, deflate, snappy, bzip2 or xz. Defaults to the codec of the first file merged, blocks of files with another codec are recompressed.")
+	private String codec;
+
+	@Option(required = false, name = "-l", aliases = "--codecLevel", usage = "Compression level for the deflate (0-9) and xz (0-9) codecs. Defaults to the codec default.")
+	private int codecLevel = ArchiveFormat.DEFAULT_LEVEL;
+
+	@Option(required = false, name = "-t", aliases = "--threads", usage = "Number of merged files written in parallel. Defaults to 1.")
+	private int threads = 1;
+
+	@Option(required = false, name = "-n", aliases = "--dryRun", usage = "Only report the files that would be merged.")
+	private boolean dryRun;
+
+	private final AtomicInteger sequence = new AtomicInteger();
+	private String runStamp;
+
+	@Override
+	protected void run() throws Exception {
+		configureFileSystem(fileSystemName);
+		if (!hdfsTools.exists(path) || hdfsTools.isFile(path)) {
+			throw new IOException(String.format("Directory %s does not exist", path));
+		}
+		long smallFileSize = maxFileSize > 0 ? maxFileSize : targetSize / 2;
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		runStamp = format.format(new Date());
+		long start = System.nanoTime();
+
+		List<String> directories = new ArrayList<String>();
+		addDirectories(path, directories);
+		List<MergeGroup> groups = new ArrayList<MergeGroup>();
+		for (String directory : directories) {
+			if (!dryRun) {
+				recover(directory);
+			}
+			groups.addAll(plan(directory, smallFileSize));
+		}
+
+		if (dryRun) {
+			for (MergeGroup group : groups) {
+				System.out.println(group);
+			}
+			System.out.println(String.format("Would merge %d files into %d files", replacedFiles(groups), groups.size()));
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactoryBuilder().setNameFormat("compact-%d").build());
+		int failures = 0;
+		long bytes = 0;
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (final MergeGroup group : groups) {
+				results.add(executor.submit(new Callable<String>() {
+
+					@Override
+					public String call() throws IOException {
+						return merge(group);
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					System.out.println(String.format("Merged %d files into %s", groups.get(i).files.size(), results.get(i).get()));
+					bytes += groups.get(i).bytes;
+				} catch (ExecutionException e) {
+					failures++;
+					System.err.println(String.format("Unable to merge %s: %s", groups.get(i), e.getCause()));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("Merged %d files into %d files, %.1f MB in %.1f s (%.1f MB/s)", replacedFiles(groups) - failures,
+				groups.size() - failures, bytes / MB, seconds, seconds > 0 ? bytes / MB / seconds : 0));
+		if (failures > 0) {
+			throw new IOException(String.format("%d of %d merges failed, the files they would replace are left as they were", failures,
+					groups.size()));
+		}
+	}
+
+	private void addDirectories(String directory, List<String> directories) throws IOException {
+		directories.add(directory);
+		List<String> partitions = new ArrayList<String>(hdfsTools.listDirectories(directory, ArchiveReader.PARTITION_DIRECTORY_REGEX));
+		Collections.sort(partitions);
+		for (String partition : partitions) {
+			addDirectories(new Path(directory, partition).toString(), directories);
+		}
+	}
+
+	/**
+	 * Completes the replacements of an earlier run that failed after writing its journal, and removes merged files it did not finish.
+	 */
+	private void recover(String directory) throws IOException {
+		for (CompactionJournal journal : CompactionJournal.readAll(hdfsTools, directory)) {
+			System.out.println(String.format("Completing merge of %d files into %s", journal.getReplaced().size(), journal.getFinalPath()));
+			journal.complete(hdfsTools);
+		}
+		for (String name : hdfsTools.listFiles(directory, TEMPORARY_FILE_REGEX)) {
+			hdfsTools.delete(new Path(directory, name).toString());
+		}
+	}
+
+	private List<MergeGroup> plan(String directory, long smallFileSize) throws IOException {
+		List<FileStatus> files = new ArrayList<FileStatus>();
+		ListFilter filter = ListFilter.builder().type(ListOptions.FILES).regex(ArchiveReader.ARCHIVE_FILE_REGEX).maxSize(smallFileSize).build();
+		RemoteIterator<FileStatus> statuses = hdfsTools.listStatusIterator(new Path(directory), filter, false);
+		while (statuses.hasNext()) {
+			files.add(statuses.next());
+		}
+		Collections.sort(files, new Comparator<FileStatus>() {
+
+			@Override
+			public int compare(FileStatus a, FileStatus b) {
+				return a.getPath().getName().compareTo(b.getPath().getName());
+			}
+		});
+
+		List<MergeGroup> groups = new ArrayList<MergeGroup>();
+		MergeGroup group = null;
+		for (FileStatus file : files) {
+			DataFileStream<Object> stream = open(file.getPath().toString());
+			try {
+				Schema schema = stream.getSchema();
+				if (group == null || !group.schema.equals(schema) || group.bytes + file.getLen() > targetSize) {
+					addIfMerged(groups, group);
+					String fileCodec = stream.getMetaString(DataFileConstants.CODEC);
+					group = new MergeGroup(directory, schema, fileCodec != null ? fileCodec : DataFileConstants.NULL_CODEC);
+				}
+				group.add(file);
+			} finally {
+				stream.close();
+			}
+		}
+		addIfMerged(groups, group);
+		return groups;
+	}
+
+	private static void addIfMerged(List<MergeGroup> groups, MergeGroup group) {
+		if (group != null && group.files.size() > 1) {
+			groups.add(group);
+		}
+	}
+
+	private String merge(MergeGroup group) throws IOException {
+		String name = String.format("%s-%s-%05d.avro", COMPACTED_PREFIX, runStamp, sequence.getAndIncrement());
+		String finalPath = new Path(group.directory, name).toString();
+		String temporaryPath = new Path(group.directory, "." + name + TEMPORARY_SUFFIX).toString();
+		if (hdfsTools.exists(finalPath)) {
+			throw new IOException("Merged file " + finalPath + " already exists");
+		}
+
+		long records = 0;
+		ArchiveFormat format = new ArchiveFormat(codec != null ? codec : group.codec, codecLevel, DataFileConstants.DEFAULT_SYNC_INTERVAL);
+		DataFileWriter<Object> writer = format.newWriter(new GenericDatumWriter<Object>());
+		OutputStream out = hdfsTools.getOutputStream(temporaryPath);
+		boolean written = false;
+		try {
+			writer.create(group.schema, out);
+			for (FileStatus file : group.files) {
+				records += scan(file.getPath().toString(), file.getLen()).getRecords();
+				DataFileStream<Object> stream = open(file.getPath().toString());
+				try {
+					writer.appendAllFrom(stream, false);
+				} finally {
+					stream.close();
+				}
+			}
+			writer.close();
+			written = true;
+		} finally {
+			// any failure, not only I/O, such as a corrupt block of a file that is merged
+			if (!written) {
+				IOUtils.closeQuietly(writer);
+				IOUtils.closeQuietly(out);
+				deleteQuietly(temporaryPath);
+			}
+		}
+
+		long merged = scan(temporaryPath, hdfsTools.getFileStatus(temporaryPath).getLen()).getRecords();
+		if (merged != records) {
+			hdfsTools.delete(temporaryPath);
+			throw new IOException(String.format("Merged file %s has %d records, the files it replaces %d", temporaryPath, merged, records));
+		}
+
+		List<String> replaced = new ArrayList<String>(group.files.size());
+		for (FileStatus file : group.files) {
+			replaced.add(file.getPath().toString());
+		}
+		CompactionJournal journal = new CompactionJournal(temporaryPath, finalPath, replaced);
+		journal.write(hdfsTools);
+		journal.complete(hdfsTools);
+		return String.format("%s (%d records)", finalPath, records);
+	}
+
+	private void deleteQuietly(String path) {
+		try {
+			hdfsTools.delete(path);
+		} catch (IOException e) {
+			System.err.println(String.format("Unable to delete %s: %s", path, e));
+		}
+	}
+
+	private DataFileStream<Object> open(String file) throws IOException {
+		InputStream in = hdfsTools.getInputStream(file);
+		try {
+			return new DataFileStream<Object>(in, new GenericDatumReader<Object>());
+		} catch (IOException e) {
+			IOUtils.closeQuietly(in);
+			throw new IOException("Unable to read archive " + file, e);
+		}
+	}
+
+	private ArchiveFileStats scan(String file, long length) throws IOException {
+		InputStream in = hdfsTools.getInputStream(file);
+		try {
+			return AvroBlockScanner.scan(file, in, length, false);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private static int replacedFiles(List<MergeGroup> groups) {
+		int files = 0;
+		for (MergeGroup group : groups) {
+			files += group.files.size();
+		}
+		return files;
+	}
+
+	private static final class MergeGroup {
+
+		final String directory;
+		final Schema schema;
+		final String codec;
+		final List<FileStatus> files = new ArrayList<FileStatus>();
+		long bytes;
+
+		MergeGroup(String directory, Schema schema, String codec) {
+			this.directory = directory;
+			this.schema = schema;
+			this.codec = codec;
+		}
+
+		void add(FileStatus file) {
+			files.add(file);
+			bytes += file.getLen();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d files from %s to %s, %.1f MB (%s)", directory, files.size(), files.get(0).getPath().getName(),
+					files.get(files.size() - 1).getPath().getName(), bytes / MB, codec);
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Journal of a merged file that replaces other archive files in its directory. The journal is written before the merged file is renamed
+ * to its final name and removed after the replaced files are deleted, which makes the rename the moment the merged file takes their
+ * place: {@link ArchiveReader} skips the replaced files that are left while the merged file is next to its journal, so readers see either
+ * the replaced files or the merged file, never both. A replacement that failed halfway is completed from its journal.
+ * <p>
+ * Journals are stored as properties files through {@link HdfsTools#writeProperties(String, Properties, String)}, named
+ * <code>_&lt;merged file&gt;.compact</code>, next to the merged file.
+ */
+public class CompactionJournal {
+
+	/** Journals in a directory, including a new version that was not renamed yet. */
+	public static final String FILE_REGEX = "_.*\\.avro\\.compact(\\.new)?";
+
+	private static final String SUFFIX = ".compact";
+	private static final String TEMPORARY = "temporary";
+	private static final String TARGET = "target";
+	private static final String REPLACED = "replaced.";
+
+	private final String temporaryPath;
+	private final String finalPath;
+	private final List<String> replaced;
+
+	/**
+	 * @param temporaryPath path the merged file was written to
+	 * @param finalPath path the merged file is published at
+	 * @param replaced paths of the files the merged file replaces, in the same directory
+	 */
+	public CompactionJournal(String temporaryPath, String finalPath, List<String> replaced) {
+		this.temporaryPath = temporaryPath;
+		this.finalPath = finalPath;
+		this.replaced = Collections.unmodifiableList(new ArrayList<String>(replaced));
+	}
+
+	/**
+	 * Reads the journals in a directory.
+	 *
+	 * @param hdfsTools file system to read from
+	 * @param directory directory of the merged files
+	 * @return the journals, empty if no replacement is in progress
+	 * @throws IOException when a journal could not be read or is invalid
+	 */
+	public static List<CompactionJournal> readAll(HdfsTools hdfsTools, String directory) throws IOException {
+		Set<String> paths = new LinkedHashSet<String>();
+		for (String name : hdfsTools.listFiles(directory, FILE_REGEX)) {
+			paths.add(new Path(directory, name.endsWith(SUFFIX) ? name : name.substring(0, name.lastIndexOf('.'))).toString());
+		}
+		List<CompactionJournal> journals = new ArrayList<CompactionJournal>();
+		for (String path : paths) {
+			Properties properties = hdfsTools.readProperties(path);
+			if (properties == null) {
+				// completed since the directory was listed
+				continue;
+			}
+			String temporary = properties.getProperty(TEMPORARY);
+			String target = properties.getProperty(TARGET);
+			if (temporary == null || target == null) {
+				throw new IOException("Invalid compaction journal " + path + ": " + properties);
+			}
+			List<String> replaced = new ArrayList<String>();
+			for (int i = 0; properties.getProperty(REPLACED + i) != null; i++) {
+				replaced.add(properties.getProperty(REPLACED + i));
+			}
+			journals.add(new CompactionJournal(temporary, target, replaced));
+		}
+		return journals;
+	}
+
+	/**
+	 * Writes this journal next to the merged file.
+	 *
+	 * @param hdfsTools file system to write to
+	 * @throws IOException when the journal could not be written
+	 */
+	public void write(HdfsTools hdfsTools) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(TEMPORARY, temporaryPath);
+		properties.setProperty(TARGET, finalPath);
+		for (int i = 0; i < replaced.size(); i++) {
+			properties.setProperty(REPLACED + i, replaced.get(i));
+		}
+		hdfsTools.writeProperties(getPath(), properties, "Files replaced by " + new Path(finalPath).getName());
+	}
+
+	/**
+	 * Publishes the merged file, deletes the replaced files and removes this journal. Repeating a replacement that failed halfway completes
+	 * it.
+	 *
+	 * @param hdfsTools file system of the files
+	 * @throws IOException when the merged file could not be published or a replaced file could not be deleted
+	 */
+	public void complete(HdfsTools hdfsTools) throws IOException {
+		hdfsTools.replaceFiles(temporaryPath, finalPath, replaced);
+		hdfsTools.deleteProperties(getPath());
+	}
+
+	/**
+	 * @return the path of the journal file
+	 */
+	public String getPath() {
+		Path target = new Path(finalPath);
+		return new Path(target.getParent(), "_" + target.getName() + SUFFIX).toString();
+	}
+
+	public String getFinalPath() {
+		return finalPath;
+	}
+
+	public List<String> getReplaced() {
+		return replaced;
+	}
+
+	/**
+	 * @return the names of the replaced files
+	 */
+	public List<String> getReplacedNames() {
+		List<String> names = new ArrayList<String>(replaced.size());
+		for (String path : replaced) {
+			names.add(new Path(path).getName());
+		}
+		return names;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s replacing %d files", finalPath, replaced.size());
+	}
+
+}
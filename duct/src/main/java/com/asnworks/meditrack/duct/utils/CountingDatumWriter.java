@@ -0,0 +1,183 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.util.Utf8;
+
+/**
+ * {@link DatumWriter} that keeps track of the number of bytes of the encoded records, i.e. the size of the data before it is compressed
+ * by the codec of a {@link org.apache.avro.file.DataFileWriter}. The wrapped writer writes straight to the encoder of the file writer
+ * through a thin encoder that adds up the size of each value in the Avro binary encoding, so records are not encoded or copied twice.
+ *
+ * @param <D> the type of the records
+ */
+public class CountingDatumWriter<D> implements DatumWriter<D> {
+
+	private final DatumWriter<D> delegate;
+	private final CountingEncoder encoder = new CountingEncoder();
+
+	public CountingDatumWriter(DatumWriter<D> delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void setSchema(Schema schema) {
+		delegate.setSchema(schema);
+	}
+
+	@Override
+	public void write(D datum, Encoder out) throws IOException {
+		encoder.out = out;
+		delegate.write(datum, encoder);
+	}
+
+	/**
+	 * @return the total number of bytes of all records written so far
+	 */
+	public long getByteCount() {
+		return encoder.byteCount;
+	}
+
+	/**
+	 * Passes all values to the encoder of the file writer and counts their size in the binary encoding, zig-zag varints for ints, longs
+	 * and lengths.
+	 */
+	private static final class CountingEncoder extends Encoder {
+
+		private Encoder out;
+		private long byteCount;
+
+		private static int varIntSize(int value) {
+			int zigZag = (value << 1) ^ (value >> 31);
+			return (Integer.SIZE - Integer.numberOfLeadingZeros(zigZag | 1) + 6) / 7;
+		}
+
+		private static int varLongSize(long value) {
+			long zigZag = (value << 1) ^ (value >> 63);
+			return (Long.SIZE - Long.numberOfLeadingZeros(zigZag | 1) + 6) / 7;
+		}
+
+		@Override
+		public void writeNull() throws IOException {
+			out.writeNull();
+		}
+
+		@Override
+		public void writeBoolean(boolean b) throws IOException {
+			out.writeBoolean(b);
+			byteCount++;
+		}
+
+		@Override
+		public void writeInt(int n) throws IOException {
+			out.writeInt(n);
+			byteCount += varIntSize(n);
+		}
+
+		@Override
+		public void writeLong(long n) throws IOException {
+			out.writeLong(n);
+			byteCount += varLongSize(n);
+		}
+
+		@Override
+		public void writeFloat(float f) throws IOException {
+			out.writeFloat(f);
+			byteCount += 4;
+		}
+
+		@Override
+		public void writeDouble(double d) throws IOException {
+			out.writeDouble(d);
+			byteCount += 8;
+		}
+
+		@Override
+		public void writeString(Utf8 utf8) throws IOException {
+			out.writeString(utf8);
+			byteCount += varIntSize(utf8.getByteLength()) + utf8.getByteLength();
+		}
+
+		@Override
+		public void writeString(String str) throws IOException {
+			// encoded once here, as the binary encoder would do
+			writeString(new Utf8(str));
+		}
+
+		@Override
+		public void writeBytes(ByteBuffer bytes) throws IOException {
+			int length = bytes.remaining();
+			out.writeBytes(bytes);
+			byteCount += varIntSize(length) + length;
+		}
+
+		@Override
+		public void writeBytes(byte[] bytes, int start, int len) throws IOException {
+			out.writeBytes(bytes, start, len);
+			byteCount += varIntSize(len) + len;
+		}
+
+		@Override
+		public void writeFixed(byte[] bytes, int start, int len) throws IOException {
+			out.writeFixed(bytes, start, len);
+			byteCount += len;
+		}
+
+		@Override
+		public void writeEnum(int e) throws IOException {
+			out.writeEnum(e);
+			byteCount += varIntSize(e);
+		}
+
+		@Override
+		public void writeArrayStart() throws IOException {
+			out.writeArrayStart();
+		}
+
+		@Override
+		public void setItemCount(long itemCount) throws IOException {
+			out.setItemCount(itemCount);
+			if (itemCount > 0) {
+				byteCount += varLongSize(itemCount);
+			}
+		}
+
+		@Override
+		public void startItem() throws IOException {
+			out.startItem();
+		}
+
+		@Override
+		public void writeArrayEnd() throws IOException {
+			out.writeArrayEnd();
+			byteCount++;
+		}
+
+		@Override
+		public void writeMapStart() throws IOException {
+			out.writeMapStart();
+		}
+
+		@Override
+		public void writeMapEnd() throws IOException {
+			out.writeMapEnd();
+			byteCount++;
+		}
+
+		@Override
+		public void writeIndex(int unionIndex) throws IOException {
+			out.writeIndex(unionIndex);
+			byteCount += varIntSize(unionIndex);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+	}
+
+}
@@ -0,0 +1,219 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.avro.Schema;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.commons.lang3.ArrayUtils;
+
+import com.opencsv.CSVParser;
+import com.opencsv.CSVReader;
+
+/**
+ * Streams rows of an intake CSV file into Avro records. The columns of the file are expected in the order of the fields of the record
+ * schema, e.g. id, firstName, lastName, age, gender, address, phoneNumber, email for a
+ * {@link com.asnworks.meditrack.model.Patient}. Additional trailing columns are ignored.
+ * <p>
+ * Rows are parsed one at a time into a record instance supplied by the caller, so a complete file can be converted in constant memory by
+ * reusing the same instance for every row. A reader created on an {@link InputStream} keeps track of the byte offset of the next row, so
+ * reading can later be resumed from that offset.
+ *
+ * @param <T> the type of record the rows are parsed into
+ */
+public class CsvRecordReader<T extends SpecificRecord> implements Closeable {
+
+	private final CSVReader csvReader;
+	private final OffsetLineReader lineReader;
+	private final CSVParser parser = new CSVParser();
+	private final CsvRowConverter<T> converter;
+	private String[] columns;
+	private long row;
+
+	/**
+	 * Creates a reader for the CSV data in the specified reader.
+	 *
+	 * @param reader reader on the CSV data, will be closed when this reader is closed
+	 * @param schema schema of the records the rows are parsed into
+	 * @param skipHeader {@code true} if the first line is a header line that must be skipped
+	 */
+	public CsvRecordReader(Reader reader, Schema schema, boolean skipHeader) {
+		this.csvReader = new CSVReader(reader, CSVParser.DEFAULT_SEPARATOR, CSVParser.DEFAULT_QUOTE_CHARACTER, skipHeader ? 1 : 0);
+		this.lineReader = null;
+		this.converter = new CsvRowConverter<T>(schema);
+		this.row = skipHeader ? 1 : 0;
+	}
+
+	/**
+	 * Creates a reader for UTF-8 encoded CSV data that tracks the byte offset of the rows, see {@link #getOffset()}.
+	 *
+	 * @param in stream on the CSV data, positioned at the start of a row, will be closed when this reader is closed
+	 * @param offset byte offset of the stream position in the file
+	 * @param row number of the rows before the stream position, counting the header line if any
+	 * @param schema schema of the records the rows are parsed into
+	 * @param skipHeader {@code true} if the first line is a header line that must be skipped
+	 * @throws IOException when the header line could not be read
+	 */
+	public CsvRecordReader(InputStream in, long offset, long row, Schema schema, boolean skipHeader) throws IOException {
+		this.csvReader = null;
+		this.lineReader = new OffsetLineReader(in, offset);
+		this.converter = new CsvRowConverter<T>(schema);
+		this.row = row;
+		if (skipHeader) {
+			lineReader.readLine();
+			this.row++;
+		}
+	}
+
+	/**
+	 * Parses the next row into the specified record. All fields of the record are overwritten.
+	 *
+	 * @param reuse the record to fill
+	 * @return {@code true} if a row was read, {@code false} when the end of the data is reached
+	 * @throws IOException when the data could not be read or when a row can not be converted to the record schema
+	 */
+	public boolean next(T reuse) throws IOException {
+		String[] columns = csvReader != null ? csvReader.readNext() : readNextRow();
+		if (columns == null) {
+			return false;
+		}
+		row++;
+		this.columns = columns;
+		fill(reuse, columns);
+		return true;
+	}
+
+	/**
+	 * @return the number of the last row that was read, counting the header line if any
+	 */
+	public long getRow() {
+		return row;
+	}
+
+	/**
+	 * @param index 0-based index of the column
+	 * @return the value of a column of the last row that was read, {@code null} if the row has fewer columns
+	 */
+	public String getColumn(int index) {
+		return columns != null && index < columns.length ? columns[index] : null;
+	}
+
+	/**
+	 * @return the byte offset in the file of the row after the last row that was read
+	 * @throws IllegalStateException when the reader was created on a {@link Reader}, which does not track offsets
+	 */
+	public long getOffset() {
+		if (lineReader == null) {
+			throw new IllegalStateException("Offsets are only tracked when reading from an InputStream");
+		}
+		return lineReader.getOffset();
+	}
+
+	private String[] readNextRow() throws IOException {
+		String[] columns = null;
+		do {
+			String line = lineReader.readLine();
+			if (line == null) {
+				if (parser.isPending()) {
+					throw new IOException(String.format("Row %d has an unterminated quoted value", row + 1));
+				}
+				return columns;
+			}
+			// a quoted value with line breaks continues on the next lines
+			String[] parsed = parser.parseLineMulti(line);
+			columns = columns == null ? parsed : ArrayUtils.addAll(columns, parsed);
+		} while (parser.isPending());
+		return columns;
+	}
+
+	private void fill(T record, String[] columns) throws IOException {
+		try {
+			converter.fill(record, columns);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Row " + row + " " + e.getMessage());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (csvReader != null) {
+			csvReader.close();
+		} else {
+			lineReader.close();
+		}
+	}
+
+	/**
+	 * Reads UTF-8 lines from a stream, keeping track of the number of bytes consumed. Lines end with \n or \r\n.
+	 */
+	private static final class OffsetLineReader implements Closeable {
+
+		private static final Charset UTF8 = Charset.forName("UTF-8");
+
+		private final InputStream in;
+		private final byte[] buffer = new byte[64 * 1024];
+		private byte[] line = new byte[256];
+		private int position;
+		private int limit;
+		private long offset;
+
+		OffsetLineReader(InputStream in, long offset) {
+			this.in = in;
+			this.offset = offset;
+		}
+
+		String readLine() throws IOException {
+			int length = 0;
+			while (true) {
+				if (position == limit) {
+					limit = in.read(buffer);
+					position = 0;
+					if (limit <= 0) {
+						limit = 0;
+						return length == 0 ? null : decode(length);
+					}
+				}
+				int start = position;
+				while (position < limit && buffer[position] != '\n') {
+					position++;
+				}
+				length = append(length, start, position - start);
+				offset += position - start;
+				if (position < limit) {
+					position++;
+					offset++;
+					return decode(length);
+				}
+			}
+		}
+
+		long getOffset() {
+			return offset;
+		}
+
+		private int append(int length, int start, int count) {
+			if (length + count > line.length) {
+				line = Arrays.copyOf(line, Math.max(2 * line.length, length + count));
+			}
+			System.arraycopy(buffer, start, line, length, count);
+			return length + count;
+		}
+
+		private String decode(int length) {
+			if (length > 0 && line[length - 1] == '\r') {
+				length--;
+			}
+			return new String(line, 0, length, UTF8);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.specific.SpecificRecord;
+
+/**
+ * Converts the columns of a CSV row into the fields of a record, in the order of the fields of the record schema. Int fields are parsed,
+ * string fields are set to the column value as it is. Shared by {@link CsvRecordReader} and the mappers of {@link CsvToAvroJob}.
+ *
+ * @param <T> the type of record the rows are converted into
+ */
+public class CsvRowConverter<T extends SpecificRecord> {
+
+	private final Schema.Type[] fieldTypes;
+
+	/**
+	 * @param schema schema of the records, with int and string fields only
+	 * @throws IllegalArgumentException when the schema has a field of another type
+	 */
+	public CsvRowConverter(Schema schema) {
+		List<Field> fields = schema.getFields();
+		this.fieldTypes = new Schema.Type[fields.size()];
+		for (int i = 0; i < fieldTypes.length; i++) {
+			Schema.Type type = fields.get(i).schema().getType();
+			if (type != Schema.Type.INT && type != Schema.Type.STRING) {
+				throw new IllegalArgumentException(String.format("Field %s of type %s can not be read from CSV", fields.get(i).name(), type));
+			}
+			fieldTypes[i] = type;
+		}
+	}
+
+	/**
+	 * Sets all fields of the record from the columns of a row. Additional trailing columns are ignored.
+	 *
+	 * @param record the record to fill
+	 * @param columns the columns of the row
+	 * @throws IllegalArgumentException when the row has too few columns or an invalid number, the message describes the problem and
+	 *             can be prefixed with the position of the row
+	 */
+	public void fill(T record, String[] columns) {
+		if (columns.length < fieldTypes.length) {
+			throw new IllegalArgumentException(String.format("has %d columns, expected %d", columns.length, fieldTypes.length));
+		}
+		for (int i = 0; i < fieldTypes.length; i++) {
+			String value = columns[i];
+			if (fieldTypes[i] == Schema.Type.INT) {
+				try {
+					record.put(i, Integer.parseInt(value.trim()));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException(String.format("has invalid number '%s' in column %d", value, i + 1));
+				}
+			} else {
+				record.put(i, value);
+			}
+		}
+	}
+
+}
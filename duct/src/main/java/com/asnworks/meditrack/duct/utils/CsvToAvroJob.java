@@ -0,0 +1,314 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.mapred.AvroKey;
+import org.apache.avro.mapred.AvroOutputFormat;
+import org.apache.avro.mapreduce.AvroJob;
+import org.apache.avro.mapreduce.AvroKeyOutputFormat;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+import com.asnworks.meditrack.model.Patient;
+import com.opencsv.CSVParser;
+
+/**
+ * Converts intake CSV files to Avro archives with a map-only MapReduce job, for backfills that are too large for a single
+ * {@link MediTrackPipeline} run. Every mapper parses a split of the input into patients, doctors or hospitals and writes them to its own
+ * <code>part-m-NNNNN.avro</code> file. The output directory gets a <code>_SUCCESS</code> marker when the job completes.
+ * <p>
+ * The job runs in the local job runner unless the configuration of a cluster is passed with <code>--hadoopConf</code>. By default every
+ * file is converted by a single mapper, which reads quoted values that span lines correctly. With <code>--split</code> large files are
+ * split between mappers; a split starts at the first line after its start, so a split that starts inside a quoted value that spans lines
+ * reads the rest of the value as rows. Only split intake files without such values.
+ *
+ * Command to run
+ *
+ * convert -fs hdfs://192.168.49.128:8020 -C /etc/hadoop/conf -e patient -i /user/cloudera/meditrack/intake/2015 /user/cloudera/meditrack/artifact-repository/BACKFILL/2015
+ */
+public class CsvToAvroJob extends Tool {
+
+	static final String RECORD_CLASS = "meditrack.convert.record.class";
+	static final String SKIP_HEADER = "meditrack.convert.skip.header";
+	static final String SKIP_INVALID_ROWS = "meditrack.convert.skip.invalid.rows";
+	static final String SPLIT = "meditrack.convert.split";
+
+	/** Counters of the rows converted by the mappers. */
+	public enum Rows {
+		CONVERTED,
+		HEADERS,
+		INVALID
+	}
+
+	@Argument(required = true, usage = "Output directory for the archives, must not exist")
+	private String outputPath;
+
+	@Option(required = false, name = "-fs", aliases = "--fileSystem", usage = "The name of the HDFS file system to use. If not specified, the local file system will be used.")
+	private String fileSystemName;
+
+	@Option(required = false, name = "-C", aliases = "--hadoopConf", usage = "Directory with the core, hdfs, mapred and yarn site files of the cluster to run the job on. If not specified, the job runs in the local job runner.")
+	private String hadoopConfDir;
+
+	@Option(required = true, name = "-i", aliases = "--input", usage = "Comma separated intake CSV files or directories, directories are read recursively.")
+	private String inputPaths;
+
+	@Option(required = false, name = "-e", aliases = "--entity", usage = "Type of the rows: patient, doctor or hospital, columns in the order of the schema. Defaults to patient.")
+	private String entity = "patient";
+
+	@Option(required = false, name = "-H", aliases = "--skipHeader", usage = "Skip the first line of every intake file.")
+	private boolean skipHeader;
+
+	@Option(required = false, name = "-x", aliases = "--skipInvalidRows", usage = "Count and skip rows that can't be converted instead of failing the job.")
+	private boolean skipInvalidRows;
+
+	@Option(required = false, name = "-p", aliases = "--split", usage = "Split large intake files between mappers. Only for intake files without quoted values that span lines, a split that starts inside such a value reads the rest of it as rows. By default every intake file is converted by a single mapper.")
+	private boolean split;
+
+	@Option(required = false, name = "-S", aliases = "--splitSize", usage = "Maximum size in bytes of the input of a mapper with --split. Defaults to the block size.")
+	private long splitSize;
+
+	@Option(required = false, name = "-c", aliases = "--codec", usage = "Compression codec of the archives: null, deflate, snappy, bzip2 or xz. Defaults to null.")
+	private String codec = DataFileConstants.NULL_CODEC;
+
+	@Option(required = false, name = "-l", aliases = "--codecLevel", usage = "Compression level for the deflate (0-9) and xz (0-9) codecs. Defaults to the codec default.")
+	private int codecLevel = ArchiveFormat.DEFAULT_LEVEL;
+
+	@Option(required = false, name = "-s", aliases = "--syncInterval", usage = "Approximate size in bytes of the uncompressed blocks of the archives. Defaults to 64000.")
+	private int syncInterval = DataFileConstants.DEFAULT_SYNC_INTERVAL;
+
+	@Override
+	protected void run() throws Exception {
+		configureFileSystem(fileSystemName);
+		Class<? extends SpecificRecord> recordClass = RecordTypes.recordClass(entity);
+		Schema schema = SpecificData.get().getSchema(recordClass);
+		// fail on an unknown codec or level before the job is submitted
+		new ArchiveFormat(codec, codecLevel, syncInterval);
+
+		Configuration jobConf = conf;
+		if (hadoopConfDir != null) {
+			for (String site : new String[] { "core-site.xml", "hdfs-site.xml", "mapred-site.xml", "yarn-site.xml" }) {
+				jobConf.addResource(new Path(hadoopConfDir, site));
+			}
+			if (fileSystemName != null) {
+				jobConf.set("fs.defaultFS", fileSystemName);
+			}
+		}
+		jobConf.setClass(RECORD_CLASS, recordClass, SpecificRecord.class);
+		jobConf.setBoolean(SKIP_HEADER, skipHeader);
+		jobConf.setBoolean(SKIP_INVALID_ROWS, skipInvalidRows);
+		jobConf.setBoolean(SPLIT, split);
+		jobConf.setInt(AvroOutputFormat.SYNC_INTERVAL_KEY, syncInterval);
+		if (!DataFileConstants.NULL_CODEC.equals(codec)) {
+			jobConf.setBoolean(FileOutputFormat.COMPRESS, true);
+			jobConf.set(org.apache.avro.mapred.AvroJob.OUTPUT_CODEC, codec);
+			if (codecLevel != ArchiveFormat.DEFAULT_LEVEL) {
+				jobConf.setInt(AvroOutputFormat.DEFLATE_LEVEL_KEY, codecLevel);
+				jobConf.setInt(AvroOutputFormat.XZ_LEVEL_KEY, codecLevel);
+			}
+		}
+
+		Job job = Job.getInstance(jobConf, String.format("meditrack-convert-%s %s", entity, outputPath));
+		job.setJarByClass(CsvToAvroJob.class);
+		job.setInputFormatClass(CsvInputFormat.class);
+		FileInputFormat.addInputPaths(job, inputPaths);
+		if (splitSize > 0) {
+			FileInputFormat.setMaxInputSplitSize(job, splitSize);
+		}
+		job.setMapperClass(CsvToAvroMapper.class);
+		job.setNumReduceTasks(0);
+		job.setOutputFormatClass(AvroKeyOutputFormat.class);
+		AvroJob.setOutputKeySchema(job, schema);
+		AvroJob.setDataModelClass(job, SpecificData.class);
+		job.setOutputValueClass(NullWritable.class);
+		FileOutputFormat.setOutputPath(job, new Path(outputPath));
+
+		long start = System.nanoTime();
+		boolean succeeded = job.waitForCompletion(true);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long rows = job.getCounters().findCounter(Rows.CONVERTED).getValue();
+		System.out.println(String.format("Converted %d %ss from %s in %.1f s (%.0f rows/sec), %d invalid rows skipped", rows, entity,
+				inputPaths, seconds, seconds > 0 ? rows / seconds : 0, job.getCounters().findCounter(Rows.INVALID).getValue()));
+		if (!succeeded) {
+			throw new IOException(String.format("Job %s failed: %s", job.getJobID(), job.getStatus().getFailureInfo()));
+		}
+	}
+
+	/**
+	 * Parses the lines of a split into records of the configured type. Lines of a quoted value that spans lines are joined as long as
+	 * they are in the same split.
+	 */
+	public static class CsvToAvroMapper extends Mapper<LongWritable, Text, AvroKey<SpecificRecord>, NullWritable> {
+
+		private final CSVParser parser = new CSVParser();
+		private final AvroKey<SpecificRecord> key = new AvroKey<SpecificRecord>();
+		private CsvRowConverter<SpecificRecord> converter;
+		private boolean skipHeader;
+		private boolean skipInvalidRows;
+		private String[] pending;
+		private long pendingOffset;
+
+		@Override
+		protected void setup(Context context) {
+			Configuration conf = context.getConfiguration();
+			Class<? extends SpecificRecord> recordClass = conf.getClass(RECORD_CLASS, Patient.class, SpecificRecord.class);
+			SpecificRecord record = ReflectionUtils.newInstance(recordClass, conf);
+			converter = new CsvRowConverter<SpecificRecord>(record.getSchema());
+			key.datum(record);
+			skipHeader = conf.getBoolean(SKIP_HEADER, false);
+			skipInvalidRows = conf.getBoolean(SKIP_INVALID_ROWS, false);
+		}
+
+		@Override
+		protected void map(LongWritable offset, Text line, Context context) throws IOException, InterruptedException {
+			if (skipHeader && offset.get() == 0) {
+				context.getCounter(Rows.HEADERS).increment(1);
+				return;
+			}
+			String[] parsed = parser.parseLineMulti(line.toString());
+			if (pending == null) {
+				pendingOffset = offset.get();
+			}
+			String[] columns = pending == null ? parsed : ArrayUtils.addAll(pending, parsed);
+			if (parser.isPending()) {
+				pending = columns;
+				return;
+			}
+			pending = null;
+			convert(columns, pendingOffset, context);
+		}
+
+		@Override
+		protected void cleanup(Context context) throws IOException, InterruptedException {
+			if (pending != null) {
+				// the split ended inside a quoted value
+				invalidRow(context, pendingOffset, "has an unterminated quoted value");
+			}
+		}
+
+		private void convert(String[] columns, long offset, Context context) throws IOException, InterruptedException {
+			try {
+				converter.fill(key.datum(), columns);
+			} catch (IllegalArgumentException e) {
+				invalidRow(context, offset, e.getMessage());
+				return;
+			}
+			context.write(key, NullWritable.get());
+			context.getCounter(Rows.CONVERTED).increment(1);
+		}
+
+		private void invalidRow(Context context, long offset, String problem) throws IOException {
+			String row = String.format("Row at offset %d of %s %s", offset, ((FileSplit) context.getInputSplit()).getPath(), problem);
+			if (!skipInvalidRows) {
+				throw new IOException(row);
+			}
+			context.getCounter(Rows.INVALID).increment(1);
+			System.err.println(row);
+		}
+	}
+
+	/**
+	 * Text input of the intake files, a split per file unless splitting is enabled, then split like {@link FileInputFormat} does. The listing and split
+	 * computation of Hadoop 2.5 time themselves with a Guava Stopwatch constructor that the Guava version of this project no longer has,
+	 * so both are done here.
+	 */
+	public static class CsvInputFormat extends TextInputFormat {
+
+		private static final double SPLIT_SLOP = 1.1;
+		private static final PathFilter VISIBLE_FILES = new PathFilter() {
+
+			@Override
+			public boolean accept(Path path) {
+				return !path.getName().startsWith("_") && !path.getName().startsWith(".");
+			}
+		};
+
+		@Override
+		protected boolean isSplitable(JobContext context, Path file) {
+			return context.getConfiguration().getBoolean(SPLIT, false) && super.isSplitable(context, file);
+		}
+
+		@Override
+		protected List<FileStatus> listStatus(JobContext job) throws IOException {
+			List<FileStatus> files = new ArrayList<FileStatus>();
+			for (Path input : getInputPaths(job)) {
+				FileSystem fs = input.getFileSystem(job.getConfiguration());
+				FileStatus[] matches = fs.globStatus(input, VISIBLE_FILES);
+				if (matches == null || matches.length == 0) {
+					throw new IOException("Input path does not exist: " + input);
+				}
+				for (FileStatus match : matches) {
+					addFiles(fs, match, files);
+				}
+			}
+			return files;
+		}
+
+		private static void addFiles(FileSystem fs, FileStatus status, List<FileStatus> files) throws IOException {
+			if (!status.isDirectory()) {
+				files.add(status);
+				return;
+			}
+			for (FileStatus child : fs.listStatus(status.getPath(), VISIBLE_FILES)) {
+				addFiles(fs, child, files);
+			}
+		}
+
+		@Override
+		public List<InputSplit> getSplits(JobContext job) throws IOException {
+			long minSize = Math.max(getFormatMinSplitSize(), getMinSplitSize(job));
+			long maxSize = getMaxSplitSize(job);
+			List<FileStatus> files = listStatus(job);
+			List<InputSplit> splits = new ArrayList<InputSplit>();
+			for (FileStatus file : files) {
+				Path path = file.getPath();
+				long length = file.getLen();
+				if (length == 0) {
+					splits.add(makeSplit(path, 0, 0, new String[0]));
+					continue;
+				}
+				BlockLocation[] blocks = path.getFileSystem(job.getConfiguration()).getFileBlockLocations(file, 0, length);
+				if (!isSplitable(job, path)) {
+					splits.add(makeSplit(path, 0, length, blocks[0].getHosts()));
+					continue;
+				}
+				long splitSize = computeSplitSize(file.getBlockSize(), minSize, maxSize);
+				long remaining = length;
+				while ((double) remaining / splitSize > SPLIT_SLOP) {
+					splits.add(makeSplit(path, length - remaining, splitSize, blocks[getBlockIndex(blocks, length - remaining)].getHosts()));
+					remaining -= splitSize;
+				}
+				if (remaining != 0) {
+					splits.add(makeSplit(path, length - remaining, remaining, blocks[getBlockIndex(blocks, length - remaining)].getHosts()));
+				}
+			}
+			job.getConfiguration().setLong(NUM_INPUT_FILES, files.size());
+			return splits;
+		}
+	}
+
+}
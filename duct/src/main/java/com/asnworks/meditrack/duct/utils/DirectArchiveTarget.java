@@ -0,0 +1,63 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * {@link ArchiveTarget} that writes the archive files straight to the output path. Each file is written under a hidden temporary name,
+ * which Hadoop input formats skip, and renamed over its final name on commit, see {@link HdfsTools#publishFile(String, String)}. This
+ * needs a single pass over the data and no local disk.
+ */
+public class DirectArchiveTarget implements ArchiveTarget {
+
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final HdfsTools hdfsTools;
+	private final String outputPath;
+	private final List<String> fileNames = new ArrayList<String>();
+
+	public DirectArchiveTarget(HdfsTools hdfsTools, String outputPath) {
+		this.hdfsTools = hdfsTools;
+		this.outputPath = outputPath;
+	}
+
+	@Override
+	public OutputStream create(String fileName) throws IOException {
+		fileNames.add(fileName);
+		return hdfsTools.getOutputStream(temporaryPath(fileName));
+	}
+
+	@Override
+	public OutputStream resume(String fileName, long length) throws IOException {
+		fileNames.add(fileName);
+		return hdfsTools.getOutputStreamTruncated(temporaryPath(fileName), length);
+	}
+
+	@Override
+	public void commit() throws IOException {
+		for (String fileName : fileNames) {
+			hdfsTools.publishFile(temporaryPath(fileName), new Path(outputPath, fileName).toString());
+		}
+	}
+
+	@Override
+	public void abort() {
+		for (String fileName : fileNames) {
+			try {
+				hdfsTools.delete(temporaryPath(fileName));
+			} catch (IOException e) {
+				System.err.println("Unable to delete temporary file " + temporaryPath(fileName) + ": " + e);
+			}
+		}
+	}
+
+	private String temporaryPath(String fileName) {
+		Path finalPath = new Path(outputPath, fileName);
+		return new Path(finalPath.getParent(), "." + finalPath.getName() + TEMPORARY_SUFFIX).toString();
+	}
+
+}
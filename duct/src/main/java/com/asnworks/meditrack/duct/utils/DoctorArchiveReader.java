@@ -0,0 +1,47 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+
+import com.asnworks.meditrack.model.Doctor;
+
+/**
+ * {@link ArchiveReader} for doctors archives. Example that only decodes the id and email of each doctor:
+ * 
+ * <pre>
+ * Schema projection = SchemaBuilder.record("Doctor").namespace("com.asnworks.meditrack.model").fields()
+ * 		.requiredInt("id").requiredString("email").endRecord();
+ * DoctorArchiveReader reader = new DoctorArchiveReader(hdfsTools, "/archive/doctors", projection);
+ * while (reader.hasNext()) {
+ * 	Doctor doctor = reader.next();
+ * }
+ * reader.close();
+ * </pre>
+ */
+public class DoctorArchiveReader extends ArchiveReader<Doctor> {
+
+	/**
+	 * Reads all fields of the doctors.
+	 * 
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param path archive file, or directory containing archive files
+	 * @throws IOException when the path could not be accessed
+	 */
+	public DoctorArchiveReader(HdfsTools hdfsTools, String path) throws IOException {
+		this(hdfsTools, path, Doctor.getClassSchema());
+	}
+
+	/**
+	 * Reads the fields of the projection only.
+	 * 
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param path archive file, or directory containing archive files
+	 * @param projection the Doctor schema or a projection of it
+	 * @throws IOException when the path could not be accessed
+	 */
+	public DoctorArchiveReader(HdfsTools hdfsTools, String path, Schema projection) throws IOException {
+		super(hdfsTools, path, projection);
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.avro.file.DataFileWriter;
+
+import com.asnworks.meditrack.model.Fallout;
+import com.asnworks.meditrack.model.RejectReason;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+/**
+ * Writes rejected rows to a fallout archive as they are found, so rejects are never collected in memory. Thread-safe: the threads that
+ * validate records share one writer, and only hold its lock while they append a reject.
+ */
+public class FalloutWriter implements Closeable {
+
+	private final DataFileWriter<Fallout> writer;
+	private final long[] counts = new long[RejectReason.values().length];
+	private long rejects;
+
+	/**
+	 * @param archiveFormat format of the fallout archive
+	 * @param stream stream to write the fallout archive to, closed by {@link #close()}
+	 * @throws IOException when the archive header could not be written
+	 */
+	public FalloutWriter(ArchiveFormat archiveFormat, OutputStream stream) throws IOException {
+		this.writer = archiveFormat.newWriter(DatumCodecs.<Fallout>writerFor(Fallout.getClassSchema()));
+		writer.create(Fallout.getClassSchema(), stream);
+	}
+
+	/**
+	 * @param fallout a rejected row
+	 * @throws IOException when the reject could not be written
+	 */
+	public synchronized void write(Fallout fallout) throws IOException {
+		writer.append(fallout);
+		counts[fallout.getReason().ordinal()]++;
+		rejects++;
+	}
+
+	public synchronized long getRejects() {
+		return rejects;
+	}
+
+	/**
+	 * @param reason a reason for rejecting rows
+	 * @return the number of rows rejected for the reason
+	 */
+	public synchronized long getRejects(RejectReason reason) {
+		return counts[reason.ordinal()];
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder text = new StringBuilder(String.format("%d rejects", rejects));
+		String separator = ": ";
+		for (RejectReason reason : RejectReason.values()) {
+			if (counts[reason.ordinal()] > 0) {
+				text.append(separator).append(counts[reason.ordinal()]).append(' ').append(reason);
+				separator = ", ";
+			}
+		}
+		return text.toString();
+	}
+
+}
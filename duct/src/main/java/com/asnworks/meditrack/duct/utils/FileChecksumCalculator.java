@@ -0,0 +1,131 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.MD5MD5CRC32CastagnoliFileChecksum;
+import org.apache.hadoop.fs.MD5MD5CRC32GzipFileChecksum;
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.hadoop.util.DataChecksum;
+
+/**
+ * Computes the checksum HDFS reports for a file from its content, so an upload can be verified without reading the file back. HDFS keeps
+ * a CRC for every <code>dfs.bytes-per-checksum</code> bytes of a block; the file checksum is the MD5 of the MD5s of the CRCs of each
+ * block. The result only matches when the same block size, bytes per checksum and checksum type are used as for writing the file.
+ */
+public class FileChecksumCalculator {
+
+	private static final String BYTES_PER_CHECKSUM_KEY = "dfs.bytes-per-checksum";
+	private static final int DEFAULT_BYTES_PER_CHECKSUM = 512;
+	private static final String CHECKSUM_TYPE_KEY = "dfs.checksum.type";
+	private static final String DEFAULT_CHECKSUM_TYPE = "CRC32C";
+
+	private final int bytesPerCrc;
+	private final long blockSize;
+	private final DataChecksum crc;
+	private final MessageDigest blockDigest;
+	private final MessageDigest fileDigest;
+	private final byte[] crcBytes = new byte[4];
+	private int chunkLength;
+	private long blockLength;
+	private int blocks;
+
+	/**
+	 * @param conf configuration the file is written with
+	 * @param blockSize block size of the file
+	 */
+	public FileChecksumCalculator(Configuration conf, long blockSize) {
+		this(DataChecksum.Type.valueOf(conf.get(CHECKSUM_TYPE_KEY, DEFAULT_CHECKSUM_TYPE)),
+				conf.getInt(BYTES_PER_CHECKSUM_KEY, DEFAULT_BYTES_PER_CHECKSUM), blockSize);
+	}
+
+	/**
+	 * @param type CRC type, only {@link DataChecksum.Type#CRC32} and {@link DataChecksum.Type#CRC32C} give a checksum
+	 * @param bytesPerCrc number of bytes covered by each CRC
+	 * @param blockSize block size of the file, a multiple of bytesPerCrc
+	 */
+	public FileChecksumCalculator(DataChecksum.Type type, int bytesPerCrc, long blockSize) {
+		if (blockSize % bytesPerCrc != 0) {
+			throw new IllegalArgumentException(String.format("Block size %d is not a multiple of %d bytes per checksum", blockSize, bytesPerCrc));
+		}
+		this.bytesPerCrc = bytesPerCrc;
+		this.blockSize = blockSize;
+		this.crc = DataChecksum.newDataChecksum(type, bytesPerCrc);
+		this.blockDigest = md5();
+		this.fileDigest = md5();
+	}
+
+	/**
+	 * @param b the next bytes of the file
+	 * @param off offset of the bytes in the array
+	 * @param len number of bytes
+	 */
+	public void update(byte[] b, int off, int len) {
+		while (len > 0) {
+			int n = (int) Math.min(len, Math.min(bytesPerCrc - chunkLength, blockSize - blockLength));
+			crc.update(b, off, n);
+			off += n;
+			len -= n;
+			chunkLength += n;
+			blockLength += n;
+			if (chunkLength == bytesPerCrc) {
+				finishChunk();
+			}
+			if (blockLength == blockSize) {
+				finishBlock();
+			}
+		}
+	}
+
+	/**
+	 * @return the checksum of all bytes passed to {@link #update(byte[], int, int)}, or {@code null} when HDFS does not report a checksum
+	 *         for the CRC type
+	 */
+	public FileChecksum getChecksum() {
+		if (chunkLength > 0) {
+			finishChunk();
+		}
+		if (blockLength > 0) {
+			finishBlock();
+		}
+		// HDFS only reports the CRCs per block for files of more than one block
+		long crcPerBlock = blocks > 1 ? blockSize / bytesPerCrc : 0;
+		MD5Hash md5 = new MD5Hash(fileDigest.digest());
+		switch (crc.getChecksumType()) {
+		case CRC32:
+			return new MD5MD5CRC32GzipFileChecksum(bytesPerCrc, crcPerBlock, md5);
+		case CRC32C:
+			return new MD5MD5CRC32CastagnoliFileChecksum(bytesPerCrc, crcPerBlock, md5);
+		default:
+			return null;
+		}
+	}
+
+	private void finishChunk() {
+		int value = (int) crc.getValue();
+		crcBytes[0] = (byte) (value >>> 24);
+		crcBytes[1] = (byte) (value >>> 16);
+		crcBytes[2] = (byte) (value >>> 8);
+		crcBytes[3] = (byte) value;
+		blockDigest.update(crcBytes);
+		crc.reset();
+		chunkLength = 0;
+	}
+
+	private void finishBlock() {
+		fileDigest.update(blockDigest.digest());
+		blockLength = 0;
+		blocks++;
+	}
+
+	private static MessageDigest md5() {
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not available", e);
+		}
+	}
+
+}
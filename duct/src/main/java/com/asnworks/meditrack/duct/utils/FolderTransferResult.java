@@ -0,0 +1,79 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Outcome of a parallel copy or move of a folder by {@link HdfsTools}: the number of files and bytes transferred, the time it took and
+ * the files that failed, with the reason.
+ */
+public class FolderTransferResult {
+
+	private final Map<Path, Throwable> failures = new LinkedHashMap<Path, Throwable>();
+	private long files;
+	private long bytes;
+	private long elapsedNanos;
+
+	synchronized void addFile(long length) {
+		files++;
+		bytes += length;
+	}
+
+	synchronized void addFailure(Path path, Throwable e) {
+		failures.put(path, e);
+	}
+
+	synchronized void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return {@code true} if all files were transferred
+	 */
+	public synchronized boolean isSuccess() {
+		return failures.isEmpty();
+	}
+
+	/**
+	 * @return the source paths that could not be transferred, with the exception or error that occurred, in the order they failed
+	 */
+	public synchronized Map<Path, Throwable> getFailures() {
+		return Collections.unmodifiableMap(new LinkedHashMap<Path, Throwable>(failures));
+	}
+
+	/**
+	 * @return the number of files transferred
+	 */
+	public synchronized long getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return the number of bytes in the files transferred
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	public synchronized long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	public synchronized double getFilesPerSecond() {
+		return elapsedNanos == 0 ? 0 : files * 1e9 / elapsedNanos;
+	}
+
+	public synchronized double getBytesPerSecond() {
+		return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%d files (%d bytes) in %d ms, %.1f files/s, %.1f MB/s, %d failures", files, bytes, getElapsedMillis(),
+				getFilesPerSecond(), getBytesPerSecond() / (1024 * 1024), failures.size());
+	}
+
+}
@@ -2,7 +2,11 @@ package com.asnworks.meditrack.duct.utils;
 
 
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -10,32 +14,75 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.regex.PatternSyntaxException;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.LineIterator;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ChecksumFileSystem;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileChecksum;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Options;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.security.AccessControlException;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * File utilities that work both on local as on HDFS file system.
+ * <p>
+ * Each instance opens its own {@link FileSystem} on first use and keeps it until {@link #close()} is called, so operations don't pay for
+ * the synchronized {@link FileSystem#get(Configuration)} cache lookup, and closing it does not affect other users of the file system.
+ * Instances are thread-safe.
  */
-public final class HdfsTools {
+public final class HdfsTools implements Closeable {
 
     private static final Charset UTF8 = Charset.forName("UTF-8");
 
+    /** Default read buffer size of the line reading methods, in characters. */
+    public static final int DEFAULT_LINE_BUFFER_SIZE = 64 * 1024;
+
+    /** Default number of lines per batch of the line reading methods. */
+    public static final int DEFAULT_LINE_BATCH_SIZE = 1000;
+
+    private static final String NEW_FILE_SUFFIX = ".new";
+
+    private static final String REPLACED_FILE_SUFFIX = ".replaced";
+
+    private static final int UPLOAD_BUFFER_SIZE = 128 * 1024;
+
+    private static final String IO_FILE_BUFFER_SIZE_KEY = "io.file.buffer.size";
+
+    private static final int DEFAULT_IO_FILE_BUFFER_SIZE = 4096;
+
     private final Configuration conf;
 
+    private volatile FileSystem fileSystem;
+
+    private boolean closed;
+
     private HdfsTools(Configuration conf) {
         this.conf = conf;
     }
@@ -171,6 +218,66 @@ public final class HdfsTools {
         return fs.open(new Path(path));
     }
 
+    /**
+     * Returns an {@link InputStream} to read the file specified by the path from an offset.
+     * 
+     * @param path path to the file to read
+     * @param offset position in the file to start reading at
+     * @return an {@link InputStream} to the file
+     * @throws IOException when the file could not be found or opened from the file system
+     */
+    public InputStream getInputStream(String path, long offset) throws IOException {
+        FileSystem fs = getFileSystem();
+        FSDataInputStream in = fs.open(new Path(path));
+        try {
+            in.seek(offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(in);
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Reopens a file for writing after its first bytes, discarding the rest. The bytes to keep are copied to a new file, as not all file
+     * systems can truncate files. The original file is kept under a hidden name until the copy is made, so this can be repeated when it
+     * fails.
+     * 
+     * @param path path to the file to reopen
+     * @param length number of bytes to keep
+     * @return an {@link OutputStream} positioned after the kept bytes
+     * @throws IOException when the file does not exist, is shorter than the length or could not be copied
+     */
+    public OutputStream getOutputStreamTruncated(String path, long length) throws IOException {
+        FileSystem fs = getFileSystem();
+        Path pt = new Path(path);
+        Path original = new Path(pt.getParent(), "." + pt.getName() + ".truncate");
+        if (!fs.exists(original)) {
+            if (fs.getFileStatus(pt).getLen() < length) {
+                throw new IOException(String.format("Unable to keep %d bytes of %s, it is shorter", length, pt));
+            }
+            if (!fs.rename(pt, original)) {
+                throw new IOException("Unable to rename file; " + pt + " to " + original);
+            }
+        }
+
+        FSDataOutputStream out = fs.create(pt, true);
+        // the checksum file of a local file that was not closed lags behind its data, read the data only
+        FileSystem dataFs = fs instanceof ChecksumFileSystem ? ((ChecksumFileSystem)fs).getRawFileSystem() : fs;
+        InputStream in = dataFs.open(original);
+        try {
+            IOUtils.copyLarge(in, out, 0, length);
+            out.hflush();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(out);
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        fs.delete(original, false);
+        return out;
+    }
+
     /**
      * Returns a reader to read the file specified by the path.
      * 
@@ -182,6 +289,68 @@ public final class HdfsTools {
         return new InputStreamReader(getInputStream(path), UTF8);
     }
 
+    /**
+     * Reads a properties file written by {@link #writeProperties(String, Properties, String)}.
+     * 
+     * @param path path to the properties file
+     * @return the properties, or {@code null} if the file does not exist
+     * @throws IOException when the file could not be read
+     */
+    public Properties readProperties(String path) throws IOException {
+        String propertiesPath = path;
+        if (!exists(propertiesPath)) {
+            // a new version is complete once the previous one is removed
+            propertiesPath = path + NEW_FILE_SUFFIX;
+            if (!exists(propertiesPath)) {
+                return null;
+            }
+        }
+        Properties properties = new Properties();
+        Reader reader = getReader(propertiesPath);
+        try {
+            properties.load(reader);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * Writes a properties file, replacing the previous version. The new version is written next to the previous one before replacing it,
+     * so a failure while writing never leaves an incomplete file.
+     * 
+     * @param path path to the properties file
+     * @param properties the properties to write
+     * @param comments description written at the top of the file
+     * @throws IOException when the file could not be written
+     */
+    public void writeProperties(String path, Properties properties, String comments) throws IOException {
+        String newPath = path + NEW_FILE_SUFFIX;
+        Writer writer = getWriter(newPath);
+        try {
+            properties.store(writer, comments);
+        } finally {
+            writer.close();
+        }
+        if (exists(path)) {
+            delete(path);
+        }
+        if (!rename(newPath, path)) {
+            throw new IOException("Unable to rename file; " + newPath + " to " + path);
+        }
+    }
+
+    /**
+     * Removes a properties file written by {@link #writeProperties(String, Properties, String)}, if it exists.
+     * 
+     * @param path path to the properties file
+     * @throws IOException when the file could not be removed
+     */
+    public void deleteProperties(String path) throws IOException {
+        delete(path);
+        delete(path + NEW_FILE_SUFFIX);
+    }
+
     /**
      * Make the given file and all non-existent parents into directories.
      * 
@@ -208,11 +377,81 @@ public final class HdfsTools {
      * 
      * @param srcPath
      * @param dstPath
+     * @return {@code true} if the rename succeeded
      * @throws IOException
      */
-    public void rename(String srcPath, String dstPath) throws IOException {
+    public boolean rename(String srcPath, String dstPath) throws IOException {
+        FileSystem fs = getFileSystem();
+        return fs.rename(new Path(srcPath), new Path(dstPath));
+    }
+
+    /**
+     * Publishes a file written under a temporary name at its final path, in place of the file at that path if there is one. On HDFS the
+     * rename replaces the old file atomically. Other file systems can't rename over a file, so the old file is renamed aside to a hidden
+     * name next to it first and deleted once the new file is in place; it is put back when the new file can't be renamed in. After a crash
+     * in between the old file is kept under the hidden name, and the next publish of the path completes the replacement.
+     * 
+     * @param temporaryPath path the new file was written to
+     * @param finalPath path to publish the new file at
+     * @throws IOException when the new file could not be published
+     */
+    public void publishFile(String temporaryPath, String finalPath) throws IOException {
         FileSystem fs = getFileSystem();
-        fs.rename(new Path(srcPath), new Path(dstPath));
+        Path source = new Path(temporaryPath);
+        Path target = new Path(finalPath);
+        if (fs instanceof DistributedFileSystem) {
+            ((DistributedFileSystem) fs).rename(source, target, Options.Rename.OVERWRITE);
+            return;
+        }
+        if (!fs.exists(source)) {
+            throw new IOException("Unable to publish file " + source + ", it does not exist");
+        }
+        Path aside = new Path(target.getParent(), "." + target.getName() + REPLACED_FILE_SUFFIX);
+        if (fs.exists(target)) {
+            // a file left aside next to a published file is a leftover of an earlier publish that completed
+            fs.delete(aside, false);
+            if (!fs.rename(target, aside)) {
+                throw new IOException("Unable to rename file; " + target + " to " + aside);
+            }
+        }
+        boolean published = false;
+        try {
+            published = fs.rename(source, target);
+        } finally {
+            if (!published && fs.exists(aside) && !fs.exists(target)) {
+                fs.rename(aside, target);
+            }
+        }
+        if (!published) {
+            throw new IOException("Unable to rename file; " + source + " to " + target);
+        }
+        fs.delete(aside, false);
+    }
+
+    /**
+     * Publishes a file that takes the place of other files, e.g. the result of merging them. The file is written under a temporary name
+     * next to its final path, so renaming it is atomic. The replaced files are deleted after the rename, so readers that list the files
+     * in between see both, unless they skip the replaced files as listed in a {@link CompactionJournal} written before. Repeating a
+     * replacement that failed halfway completes it.
+     * 
+     * @param temporaryPath path the new file was written to
+     * @param finalPath path to publish the new file at
+     * @param replaced paths of the files the new file replaces
+     * @throws IOException when the new file could not be published or a replaced file could not be deleted
+     */
+    public void replaceFiles(String temporaryPath, String finalPath, List<String> replaced) throws IOException {
+        FileSystem fs = getFileSystem();
+        if (fs.exists(new Path(temporaryPath)) && !rename(temporaryPath, finalPath)) {
+            throw new IOException("Unable to rename file; " + temporaryPath + " to " + finalPath);
+        }
+        if (!fs.exists(new Path(finalPath))) {
+            throw new IOException("Unable to replace files with " + finalPath + ", it does not exist");
+        }
+        for (String path : replaced) {
+            if (fs.exists(new Path(path)) && !fs.delete(new Path(path), false)) {
+                throw new IOException("Unable to delete replaced file " + path);
+            }
+        }
     }
 
     /**
@@ -234,9 +473,7 @@ public final class HdfsTools {
      */
     public void createFile(Path path) throws IOException {
         FileSystem fs = getFileSystem();
-
-        fs.create(path);
-        fs.close();
+        fs.create(path, true).close();
     }
 
     /**
@@ -289,10 +526,11 @@ public final class HdfsTools {
         FileSystem fs = getFileSystem();
 
         Path pt = new Path(path);
+        final Pattern pattern = Pattern.compile(regex);
         PathFilter filter = new PathFilter() {
 
-            public boolean accept(Path pathToFilter) throws PatternSyntaxException {
-                return pathToFilter.getName().matches(regex);
+            public boolean accept(Path pathToFilter) {
+                return pattern.matcher(pathToFilter.getName()).matches();
             }
         };
 
@@ -319,6 +557,21 @@ public final class HdfsTools {
         return fileList;
     }
 
+    /**
+     * Lists the entries below a path lazily. Directory contents are fetched from the file system in pages while iterating, so trees with
+     * millions of entries can be walked in memory proportional to their depth. Recursive listings are depth first: the contents of a
+     * subdirectory are returned right after the subdirectory itself. Directories are descended into whether or not the filter selects them.
+     * 
+     * @param path directory to list, or a file to return only that file
+     * @param filter selects the entries to return, use {@link ListFilter#all()} to return everything
+     * @param recursive {@code true} to include the contents of all subdirectories
+     * @return iterator over the selected entries, empty if the path does not exist
+     * @throws IOException when the file system cannot be accessed
+     */
+    public RemoteIterator<FileStatus> listStatusIterator(Path path, ListFilter filter, boolean recursive) throws IOException {
+        return new ListingIterator(getFileSystem(), path, filter, recursive);
+    }
+
     /**
      * This method returns if the given path is a file or not
      * 
@@ -355,21 +608,83 @@ public final class HdfsTools {
     }
 
     /**
-     * Read the lines in a file.
+     * Read the lines in a file. This holds the complete file in memory; use {@link #readLines(String, int, int, LineBatchHandler)} or
+     * {@link #lineIterator(String, int)} for files of arbitrary size.
      * 
      * @param path path to the file to read
      * @return the list of Strings representing each line in the file, never <code>null</code>
      * @throws IOException when the file system cannot be accessed or when the file could not be opened
      */
     public List<String> readLines(String path) throws IOException {
-        Reader reader = getReader(path);
+        final List<String> lines = new ArrayList<String>();
+        readLines(path, DEFAULT_LINE_BUFFER_SIZE, DEFAULT_LINE_BATCH_SIZE, new LineBatchHandler() {
+
+            @Override
+            public void handle(List<String> batch) {
+                lines.addAll(batch);
+            }
+        });
+        return lines;
+    }
+
+    /**
+     * Streams the lines in a file to a handler in batches, so files of any size are read in constant memory.
+     * 
+     * @param path path to the file to read
+     * @param bufferSize size in characters of the read buffer
+     * @param batchSize maximum number of lines passed to the handler at once
+     * @param handler handler for the lines. The list passed to the handler is reused for the next batch, so it must be copied to be kept.
+     * @return the number of lines read
+     * @throws IOException when the file system cannot be accessed, when the file could not be opened or when the handler fails
+     */
+    public long readLines(String path, int bufferSize, int batchSize, LineBatchHandler handler) throws IOException {
+        BufferedReader reader = new BufferedReader(getReader(path), bufferSize);
         try {
-            return IOUtils.readLines(reader);
+            List<String> batch = new ArrayList<String>(Math.min(batchSize, DEFAULT_LINE_BATCH_SIZE));
+            long count = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batch.add(line);
+                count++;
+                if (batch.size() == batchSize) {
+                    handler.handle(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                handler.handle(batch);
+            }
+            return count;
         } finally {
             IOUtils.closeQuietly(reader);
         }
     }
 
+    /**
+     * Returns an iterator over the lines in a file, reading the file while iterating. The iterator must be closed with
+     * {@link LineIterator#close()} when not read to the end. Read failures are thrown as {@link IllegalStateException} by the iterator.
+     * 
+     * @param path path to the file to read
+     * @param bufferSize size in characters of the read buffer
+     * @return an iterator over the lines
+     * @throws IOException when the file system cannot be accessed or when the file could not be opened
+     */
+    public LineIterator lineIterator(String path, int bufferSize) throws IOException {
+        return new LineIterator(new BufferedReader(getReader(path), bufferSize));
+    }
+
+    /**
+     * Handler for the batches of lines read by {@link HdfsTools#readLines(String, int, int, LineBatchHandler)}.
+     */
+    public interface LineBatchHandler {
+
+        /**
+         * @param lines the next lines of the file, in order
+         * @throws IOException to stop reading the file
+         */
+        void handle(List<String> lines) throws IOException;
+    }
+
     /**
      * Delete path recursively.
      * 
@@ -503,10 +818,72 @@ public final class HdfsTools {
     public void uploadToHdfs(String srcPath, String dstPath, int replication) throws IOException {
         FileSystem fs = getFileSystem();
         Path hdfsPath = new Path(dstPath);
+        File src = new File(srcPath);
+        if (src.isFile()) {
+            // set the replication when creating the file, setting it afterwards replicates the blocks a second time
+            if (fs.isDirectory(hdfsPath)) {
+                hdfsPath = new Path(hdfsPath, src.getName());
+            }
+            uploadToHdfs(src, hdfsPath, (short)replication, fs.getDefaultBlockSize(hdfsPath));
+            return;
+        }
         fs.copyFromLocalFile(new Path(srcPath), hdfsPath);
         fs.setReplication(hdfsPath, (short)replication);
     }
 
+    /**
+     * Copy a local file to HDFS, creating it with the given replication factor and block size, and verify the copy against the checksum
+     * computed while reading the local file. The destination is removed when the copy fails.
+     * 
+     * @param src local file
+     * @param dstPath path of the file on HDFS, overwritten if it exists
+     * @param replication replication factor of the file
+     * @param blockSize block size of the file
+     * @return {@code true} if the checksum was verified, {@code false} if the file system does not provide checksums
+     * @throws IOException when the file could not be copied or when the checksums differ
+     */
+    public boolean uploadToHdfs(File src, Path dstPath, short replication, long blockSize) throws IOException {
+        FileSystem fs = getFileSystem();
+        FileChecksumCalculator checksum = new FileChecksumCalculator(conf, blockSize);
+        byte[] buffer = new byte[UPLOAD_BUFFER_SIZE];
+        InputStream in = new FileInputStream(src);
+        OutputStream out = null;
+        boolean uploaded = false;
+        try {
+            out = fs.create(dstPath, true, conf.getInt(IO_FILE_BUFFER_SIZE_KEY, DEFAULT_IO_FILE_BUFFER_SIZE), replication, blockSize);
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+                checksum.update(buffer, 0, n);
+            }
+            out.close();
+            out = null;
+
+            // HDFS reports a fixed checksum for empty files, there is nothing to verify
+            FileChecksum expected = src.length() > 0 ? checksum.getChecksum() : null;
+            FileChecksum actual = expected != null ? fs.getFileChecksum(dstPath) : null;
+            if (actual != null && !actual.equals(expected)) {
+                throw new IOException(String.format("Checksum %s does not match local checksum %s; %s to %s", actual, expected, src, dstPath));
+            }
+            uploaded = true;
+            return actual != null;
+        } finally {
+            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(out);
+            if (!uploaded) {
+                deleteQuietly(fs, dstPath);
+            }
+        }
+    }
+
+    private static void deleteQuietly(FileSystem fs, Path path) {
+        try {
+            fs.delete(path, false);
+        } catch (IOException e) {
+            System.err.println("Unable to remove " + path + ": " + e);
+        }
+    }
+
     public FileStatus getFileStatus(String path) throws IOException {
         FileSystem fs = getFileSystem();
         Path hdfsPath = new Path(path);
@@ -514,7 +891,91 @@ public final class HdfsTools {
     }
 
     private FileSystem getFileSystem() throws IOException {
-        return FileSystem.get(conf);
+        FileSystem fs = fileSystem;
+        if (fs == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("HdfsTools for " + FileSystem.getDefaultUri(conf) + " is closed");
+                }
+                fs = fileSystem;
+                if (fs == null) {
+                    fs = FileSystem.newInstance(conf);
+                    fileSystem = fs;
+                }
+            }
+        }
+        return fs;
+    }
+
+    /**
+     * Closes the file system of this instance. Any further operation fails with an {@link IOException}.
+     * 
+     * @throws IOException when the file system could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        FileSystem fs = fileSystem;
+        fileSystem = null;
+        if (fs != null) {
+            fs.close();
+        }
+    }
+
+    private static final class ListingIterator implements RemoteIterator<FileStatus> {
+
+        private final FileSystem fs;
+        private final ListFilter filter;
+        private final boolean recursive;
+        private final Deque<RemoteIterator<LocatedFileStatus>> directories = new ArrayDeque<RemoteIterator<LocatedFileStatus>>();
+        private FileStatus next;
+
+        ListingIterator(FileSystem fs, Path root, ListFilter filter, boolean recursive) throws IOException {
+            this.fs = fs;
+            this.filter = filter;
+            this.recursive = recursive;
+            descend(root);
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            while (next == null) {
+                RemoteIterator<LocatedFileStatus> directory = directories.peek();
+                if (directory == null) {
+                    return false;
+                }
+                if (!directory.hasNext()) {
+                    directories.pop();
+                    continue;
+                }
+                FileStatus status = directory.next();
+                if (recursive && status.isDirectory()) {
+                    descend(status.getPath());
+                }
+                if (filter.accept(status)) {
+                    next = status;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public FileStatus next() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FileStatus status = next;
+            next = null;
+            return status;
+        }
+
+        private void descend(Path directory) throws IOException {
+            try {
+                directories.push(fs.listLocatedStatus(directory));
+            } catch (FileNotFoundException e) {
+                // removed while walking the tree, nothing to list
+            }
+        }
     }
 
     public enum ListOptions {
@@ -568,7 +1029,7 @@ public final class HdfsTools {
                     } else if (!fs.getFileStatus(dst).isDirectory()) {
                         throw new IOException("Unable to copy file, parent destination is a file; " + f.getPath() + " to " + newDstFile);
                     }
-                    FileUtil.copy(getFileSystem(), SrcFile, getFileSystem(), newDstFile, false, getConfiguration());
+                    FileUtil.copy(fs, SrcFile, fs, newDstFile, false, conf);
 
                 }
             }
@@ -639,6 +1100,125 @@ public final class HdfsTools {
         }
     }
 
+    /**
+     * Copy all content from the source path to the destination path in parallel, replicating the directory structure. The source path
+     * is retained.
+     * <p>
+     * The directory tree is walked by the calling thread, which creates the destination directories, while the files are copied by a
+     * pool of worker threads. At most twice the number of threads files are queued at a time. A file that fails doesn't stop the copy,
+     * the failures are reported in the result.
+     * 
+     * @param src source directory
+     * @param dst destination directory
+     * @param threads number of files copied concurrently
+     * @return the files and bytes copied and the failures
+     * @throws IOException when the file system could not be accessed
+     */
+    public FolderTransferResult copyFolderContent(Path src, Path dst, int threads) throws IOException {
+        return transferFolderContent(src, dst, threads, false);
+    }
+
+    /**
+     * Move all content from the source path to the destination path in parallel, replicating the directory structure. Files are renamed
+     * concurrently by a pool of worker threads, see {@link #copyFolderContent(Path, Path, int)}. The source path is removed when all files
+     * were moved; when some files failed it is kept, with the files that failed.
+     * 
+     * @param src source directory
+     * @param dst destination directory
+     * @param threads number of files renamed concurrently
+     * @return the files and bytes moved and the failures
+     * @throws IOException when the file system could not be accessed
+     */
+    public FolderTransferResult moveFolderContent(Path src, Path dst, int threads) throws IOException {
+        FolderTransferResult result = transferFolderContent(src, dst, threads, true);
+        if (result.isSuccess()) {
+            deletePathRecursive(src);
+        }
+        return result;
+    }
+
+    private FolderTransferResult transferFolderContent(Path src, Path dst, int threads, boolean move) throws IOException {
+        final FileSystem fs = getFileSystem();
+        final FolderTransferResult result = new FolderTransferResult();
+        final Semaphore inFlight = new Semaphore(2 * threads);
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat((move ? "move" : "copy") + "-folder-%d").setDaemon(true).build());
+        try {
+            transferFolderContent(fs, src, dst, move, executor, inFlight, result);
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // wait for the files in flight
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while transferring " + src + " to " + dst, e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    private void transferFolderContent(final FileSystem fs, Path src, Path dst, final boolean move, ExecutorService executor,
+            final Semaphore inFlight, final FolderTransferResult result) throws InterruptedException {
+        FileStatus[] files;
+        try {
+            files = fs.listStatus(src);
+            if (files.length > 0) {
+                if (!fs.exists(dst)) {
+                    fs.mkdirs(dst);
+                } else if (!fs.getFileStatus(dst).isDirectory()) {
+                    throw new IOException("Unable to transfer files, parent destination is a file; " + src + " to " + dst);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException e) {
+            result.addFailure(src, e);
+            return;
+        }
+
+        for (final FileStatus f : files) {
+            final Path newDst = new Path(dst, f.getPath().getName());
+            if (f.isDirectory()) {
+                transferFolderContent(fs, f.getPath(), newDst, move, executor, inFlight, result);
+                continue;
+            }
+            inFlight.acquire();
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        if (move) {
+                            moveFile(fs, f.getPath(), newDst);
+                        } else {
+                            FileUtil.copy(fs, f.getPath(), fs, newDst, false, conf);
+                        }
+                        result.addFile(f.getLen());
+                    } catch (Throwable e) {
+                        // any failure, not only I/O, so that moveFolderContent keeps the source of a file that was not moved
+                        result.addFailure(f.getPath(), e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        }
+    }
+
+    private void moveFile(FileSystem fs, Path src, Path dst) throws IOException {
+        if (fs.exists(dst) && !fs.delete(dst, false)) {
+            throw new IOException("Unable to delete file before rename; " + dst);
+        }
+        if (!fs.rename(src, dst)) {
+            throw new IOException("Unable to move file; " + src + " to " + dst);
+        }
+    }
+
     /**
      * Method to copy file from src path to destination path
      * 
@@ -648,6 +1228,6 @@ public final class HdfsTools {
      * @throws IOException
      */
     private void copyFile(FileSystem fs, Path src, Path dst) throws IOException {
-        FileUtil.copy(fs, src, fs, dst, false, getConfiguration());
+        FileUtil.copy(fs, src, fs, dst, false, conf);
     }
 }
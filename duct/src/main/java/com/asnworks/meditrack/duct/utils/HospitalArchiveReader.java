@@ -0,0 +1,47 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+
+import com.asnworks.meditrack.model.Hospital;
+
+/**
+ * {@link ArchiveReader} for hospitals archives. Example that only decodes the id and email of each hospital:
+ * 
+ * <pre>
+ * Schema projection = SchemaBuilder.record("Hospital").namespace("com.asnworks.meditrack.model").fields()
+ * 		.requiredInt("id").requiredString("email").endRecord();
+ * HospitalArchiveReader reader = new HospitalArchiveReader(hdfsTools, "/archive/hospitals", projection);
+ * while (reader.hasNext()) {
+ * 	Hospital hospital = reader.next();
+ * }
+ * reader.close();
+ * </pre>
+ */
+public class HospitalArchiveReader extends ArchiveReader<Hospital> {
+
+	/**
+	 * Reads all fields of the hospitals.
+	 * 
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param path archive file, or directory containing archive files
+	 * @throws IOException when the path could not be accessed
+	 */
+	public HospitalArchiveReader(HdfsTools hdfsTools, String path) throws IOException {
+		this(hdfsTools, path, Hospital.getClassSchema());
+	}
+
+	/**
+	 * Reads the fields of the projection only.
+	 * 
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param path archive file, or directory containing archive files
+	 * @param projection the Hospital schema or a projection of it
+	 * @throws IOException when the path could not be accessed
+	 */
+	public HospitalArchiveReader(HdfsTools hdfsTools, String path, Schema projection) throws IOException {
+		super(hdfsTools, path, projection);
+	}
+
+}
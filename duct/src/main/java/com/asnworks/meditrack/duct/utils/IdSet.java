@@ -0,0 +1,52 @@
+package com.asnworks.meditrack.duct.utils;
+
+/**
+ * Set of non-negative int ids, for a single thread. Each id is a bit in a page of a {@code long[]}; a page covers a range of 2^20 ids
+ * (128 KB) and is only allocated when the first id of its range is added, so the set of ids 0 to n takes about n / 8 bytes, whatever the
+ * number of ids.
+ */
+public class IdSet {
+
+	private static final int PAGE_BITS = 20;
+	private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+	private final long[][] pages = new long[1 << (31 - PAGE_BITS)][];
+
+	/**
+	 * Adds an id to the set.
+	 *
+	 * @param id the id, at least 0
+	 * @return {@code true} if the id was added, {@code false} if it was already in the set
+	 * @throws IllegalArgumentException when the id is negative
+	 */
+	public boolean add(int id) {
+		if (id < 0) {
+			throw new IllegalArgumentException("Negative id " + id);
+		}
+		long[] page = pages[id >>> PAGE_BITS];
+		if (page == null) {
+			page = new long[1 << (PAGE_BITS - 6)];
+			pages[id >>> PAGE_BITS] = page;
+		}
+		int word = (id & PAGE_MASK) >>> 6;
+		long bit = 1L << id; // shifts by the lowest 6 bits of the id only
+		if ((page[word] & bit) != 0) {
+			return false;
+		}
+		page[word] |= bit;
+		return true;
+	}
+
+	/**
+	 * @param id the id
+	 * @return {@code true} if the id was added to the set
+	 */
+	public boolean contains(int id) {
+		if (id < 0) {
+			return false;
+		}
+		long[] page = pages[id >>> PAGE_BITS];
+		return page != null && (page[(id & PAGE_MASK) >>> 6] & (1L << id)) != 0;
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.mapred.FsInput;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.hadoop.fs.Path;
+
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+/**
+ * Looks up records of an Avro archive file by id through its {@link ArchiveIndex}. A lookup seeks to the block of the record, which is
+ * read and decompressed, skips the records in front of it without creating objects and decodes only the record itself. The last block
+ * read is kept, so lookups of records that are close together in the archive read it once. Not thread-safe.
+ *
+ * @param <T> the type of the records
+ */
+public class IndexedArchiveReader<T extends SpecificRecord> implements Closeable {
+
+	private final String archivePath;
+	private final ArchiveIndex index;
+	private final DataFileReader<T> reader;
+	private final DatumReader<T> datumReader;
+	private final Schema writerSchema;
+	private long blockOffset = -1;
+	private ByteBuffer block;
+	private BinaryDecoder decoder;
+
+	/**
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param archivePath path of the archive file, with an index written next to it
+	 * @param readerSchema schema of the records, or a projection of it
+	 * @throws IOException when the archive or the index could not be read, or the index was written for another version of the archive
+	 */
+	public IndexedArchiveReader(HdfsTools hdfsTools, String archivePath, Schema readerSchema) throws IOException {
+		this.archivePath = archivePath;
+		this.index = ArchiveIndex.read(hdfsTools, archivePath);
+		long length = hdfsTools.getFileStatus(archivePath).getLen();
+		if (length != index.getArchiveLength()) {
+			throw new IOException(String.format("Index of %s was written for an archive of %d bytes, the archive has %d bytes", archivePath,
+					index.getArchiveLength(), length));
+		}
+		this.datumReader = DatumCodecs.readerFor(readerSchema);
+		this.reader = new DataFileReader<T>(new FsInput(new Path(archivePath), hdfsTools.getConfiguration()), datumReader);
+		this.writerSchema = reader.getSchema();
+	}
+
+	/**
+	 * @param id a record id
+	 * @param reuse record to fill, {@code null} to create a new record
+	 * @return the first record with the id, {@code null} if there is no such record
+	 * @throws IOException when the archive could not be read
+	 */
+	public T get(int id, T reuse) throws IOException {
+		long position = index.positionOf(id);
+		if (position < 0) {
+			return null;
+		}
+		long offset = ArchiveIndex.blockOffset(position);
+		if (offset != blockOffset) {
+			// invalidated first, a failed read leaves no block
+			blockOffset = -1;
+			reader.seek(offset);
+			block = reader.nextBlock();
+			blockOffset = offset;
+		}
+		decoder = DecoderFactory.get().binaryDecoder(block.array(), block.arrayOffset() + block.position(), block.remaining(), decoder);
+		for (int i = ArchiveIndex.ordinal(position); i > 0; i--) {
+			GenericDatumReader.skip(writerSchema, decoder);
+		}
+		return datumReader.read(reuse, decoder);
+	}
+
+	/**
+	 * @return the index of the archive
+	 */
+	public ArchiveIndex getIndex() {
+		return index;
+	}
+
+	@Override
+	public void close() throws IOException {
+		block = null;
+		reader.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s, %d ids", archivePath, index.size());
+	}
+
+}
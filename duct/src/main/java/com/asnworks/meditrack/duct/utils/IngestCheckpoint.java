@@ -0,0 +1,160 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Progress of an ingest run into a single archive file, persisted so an interrupted run can continue where it was instead of starting
+ * over. A checkpoint is only taken at a sync point of the archive, when all records read up to the input offset are in complete blocks
+ * of the archive, and the archive has been flushed to the file system.
+ * <p>
+ * Checkpoints are stored as properties files through {@link HdfsTools#writeProperties(String, Properties, String)}, so there always is a
+ * complete checkpoint to read.
+ */
+public class IngestCheckpoint {
+
+	private static final String INPUT = "input";
+	private static final String INPUT_OFFSET = "input.offset";
+	private static final String ROW = "input.row";
+	private static final String RECORDS = "records";
+	private static final String ARCHIVE = "archive";
+	private static final String ARCHIVE_LENGTH = "archive.length";
+	private static final String SYNC = "archive.sync";
+	private static final String CODEC = "archive.codec";
+
+	private final String input;
+	private final long inputOffset;
+	private final long row;
+	private final long records;
+	private final String archive;
+	private final long archiveLength;
+	private final byte[] sync;
+	private final String codec;
+
+	/**
+	 * @param input path of the input file
+	 * @param inputOffset byte offset in the input of the first row that is not in the archive
+	 * @param row number of the rows read from the input, counting the header line if any
+	 * @param records number of records in the archive
+	 * @param archive name of the archive file
+	 * @param archiveLength length of the archive at the sync point
+	 * @param sync sync marker of the archive
+	 * @param codec compression codec of the archive
+	 */
+	public IngestCheckpoint(String input, long inputOffset, long row, long records, String archive, long archiveLength, byte[] sync,
+			String codec) {
+		this.input = input;
+		this.inputOffset = inputOffset;
+		this.row = row;
+		this.records = records;
+		this.archive = archive;
+		this.archiveLength = archiveLength;
+		this.sync = sync;
+		this.codec = codec;
+	}
+
+	/**
+	 * Reads the checkpoint at the specified path.
+	 *
+	 * @param hdfsTools file system to read from
+	 * @param path path of the checkpoint file
+	 * @return the checkpoint, or {@code null} if there is none
+	 * @throws IOException when the checkpoint could not be read or is invalid
+	 */
+	public static IngestCheckpoint read(HdfsTools hdfsTools, String path) throws IOException {
+		Properties properties = hdfsTools.readProperties(path);
+		if (properties == null) {
+			return null;
+		}
+		try {
+			return new IngestCheckpoint(get(properties, INPUT), Long.parseLong(get(properties, INPUT_OFFSET)),
+					Long.parseLong(get(properties, ROW)), Long.parseLong(get(properties, RECORDS)), get(properties, ARCHIVE),
+					Long.parseLong(get(properties, ARCHIVE_LENGTH)), Hex.decodeHex(get(properties, SYNC).toCharArray()),
+					get(properties, CODEC));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid checkpoint " + path + ": " + e.getMessage(), e);
+		} catch (DecoderException e) {
+			throw new IOException("Invalid checkpoint " + path + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Writes this checkpoint to the specified path, replacing the previous checkpoint.
+	 *
+	 * @param hdfsTools file system to write to
+	 * @param path path of the checkpoint file
+	 * @throws IOException when the checkpoint could not be written
+	 */
+	public void write(HdfsTools hdfsTools, String path) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(INPUT, input);
+		properties.setProperty(INPUT_OFFSET, Long.toString(inputOffset));
+		properties.setProperty(ROW, Long.toString(row));
+		properties.setProperty(RECORDS, Long.toString(records));
+		properties.setProperty(ARCHIVE, archive);
+		properties.setProperty(ARCHIVE_LENGTH, Long.toString(archiveLength));
+		properties.setProperty(SYNC, Hex.encodeHexString(sync));
+		properties.setProperty(CODEC, codec);
+		hdfsTools.writeProperties(path, properties, "Ingest checkpoint of " + archive);
+	}
+
+	/**
+	 * Removes the checkpoint at the specified path, if any.
+	 *
+	 * @param hdfsTools file system the checkpoint is on
+	 * @param path path of the checkpoint file
+	 * @throws IOException when the checkpoint could not be removed
+	 */
+	public static void delete(HdfsTools hdfsTools, String path) throws IOException {
+		hdfsTools.deleteProperties(path);
+	}
+
+	private static String get(Properties properties, String key) {
+		String value = properties.getProperty(key);
+		if (value == null) {
+			throw new IllegalArgumentException("missing " + key);
+		}
+		return value;
+	}
+
+	public String getInput() {
+		return input;
+	}
+
+	public long getInputOffset() {
+		return inputOffset;
+	}
+
+	public long getRow() {
+		return row;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public String getArchive() {
+		return archive;
+	}
+
+	public long getArchiveLength() {
+		return archiveLength;
+	}
+
+	public byte[] getSync() {
+		return sync;
+	}
+
+	public String getCodec() {
+		return codec;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s at row %d, offset %d: %d records, %d bytes", archive, row, inputOffset, records, archiveLength);
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Properties;
+
+import org.apache.hadoop.fs.FileStatus;
+
+/**
+ * The newest intake file ingested by an incremental run. Files are ordered by modification time and then by path, so files modified in
+ * the same millisecond are neither skipped nor ingested twice. A file that shows up with a modification time before the watermark, e.g.
+ * because it was copied with its original time, is not picked up.
+ */
+public class IngestWatermark {
+
+	/** Order in which intake files are ingested and compared with the watermark. */
+	public static final Comparator<FileStatus> ORDER = new Comparator<FileStatus>() {
+
+		@Override
+		public int compare(FileStatus a, FileStatus b) {
+			int order = Long.compare(a.getModificationTime(), b.getModificationTime());
+			return order != 0 ? order : a.getPath().toString().compareTo(b.getPath().toString());
+		}
+	};
+
+	private static final String MODIFICATION_TIME = "modificationTime";
+	private static final String PATH = "path";
+
+	private final long modificationTime;
+	private final String path;
+
+	/**
+	 * @param modificationTime modification time of the newest file ingested
+	 * @param path full path of the newest file ingested
+	 */
+	public IngestWatermark(long modificationTime, String path) {
+		this.modificationTime = modificationTime;
+		this.path = path;
+	}
+
+	/**
+	 * @param status the newest file ingested
+	 * @return the watermark for the file
+	 */
+	public static IngestWatermark of(FileStatus status) {
+		return new IngestWatermark(status.getModificationTime(), status.getPath().toString());
+	}
+
+	/**
+	 * Reads the watermark at the specified path.
+	 *
+	 * @param hdfsTools file system to read from
+	 * @param path path of the watermark file
+	 * @return the watermark, or {@code null} if no files were ingested yet
+	 * @throws IOException when the watermark could not be read or is invalid
+	 */
+	public static IngestWatermark read(HdfsTools hdfsTools, String path) throws IOException {
+		Properties properties = hdfsTools.readProperties(path);
+		if (properties == null) {
+			return null;
+		}
+
+		String time = properties.getProperty(MODIFICATION_TIME);
+		String file = properties.getProperty(PATH);
+		if (time == null || file == null) {
+			throw new IOException("Invalid watermark " + path + ": " + properties);
+		}
+		try {
+			return new IngestWatermark(Long.parseLong(time), file);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid watermark " + path + ": " + properties, e);
+		}
+	}
+
+	/**
+	 * Writes this watermark to the specified path, replacing the previous watermark.
+	 *
+	 * @param hdfsTools file system to write to
+	 * @param path path of the watermark file
+	 * @throws IOException when the watermark could not be written
+	 */
+	public void write(HdfsTools hdfsTools, String path) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(MODIFICATION_TIME, Long.toString(modificationTime));
+		properties.setProperty(PATH, this.path);
+		hdfsTools.writeProperties(path, properties, "Newest intake file ingested");
+	}
+
+	/**
+	 * @param status an intake file
+	 * @return {@code true} if the file comes after this watermark and was not ingested yet
+	 */
+	public boolean isBefore(FileStatus status) {
+		int order = Long.compare(modificationTime, status.getModificationTime());
+		return order != 0 ? order < 0 : path.compareTo(status.getPath().toString()) < 0;
+	}
+
+	public long getModificationTime() {
+		return modificationTime;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s modified at %tF %<tT", path, modificationTime);
+	}
+
+}
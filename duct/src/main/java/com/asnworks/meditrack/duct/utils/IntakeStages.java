@@ -0,0 +1,499 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+
+import com.asnworks.meditrack.duct.pipeline.Emitter;
+import com.asnworks.meditrack.duct.pipeline.Source;
+import com.asnworks.meditrack.duct.pipeline.Stage;
+import com.asnworks.meditrack.duct.utils.HdfsTools.LineBatchHandler;
+import com.asnworks.meditrack.model.Fallout;
+import com.asnworks.meditrack.model.RejectReason;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+import com.opencsv.CSVParser;
+
+/**
+ * Stages of the staged ingest of {@link MediTrackPipeline}, for a {@link com.asnworks.meditrack.duct.pipeline.StagedPipeline}: intake
+ * files are read in batches of rows, which are parsed into columns, validated into records and encoded by any number of threads, and
+ * appended to the archive in the order of the intake by a single thread. Rows that are rejected in the validate stage can be streamed to a
+ * {@link FalloutWriter}, the other rows keep their order. Duplicate ids are rejected by the {@link ArchiveAppender}, in intake order, so the
+ * first record with an id is kept whatever the number of threads.
+ */
+public final class IntakeStages {
+
+	private IntakeStages() {
+	}
+
+	/**
+	 * Consecutive rows of an intake file, in the form of the stage they are in.
+	 *
+	 * @param <T> the type of the rows
+	 */
+	public static final class Batch<T> {
+
+		private final long sequence;
+		private final String input;
+		private final long firstRow;
+		// the rows as read, kept for the fallout of the validate stage, which drops rows, and of the appender
+		private final List<String> lines;
+		// the position of each row in the lines, null while no row was dropped
+		private final int[] positions;
+		private final List<T> rows;
+
+		Batch(long sequence, String input, long firstRow, List<String> lines, List<T> rows) {
+			this(sequence, input, firstRow, lines, null, rows);
+		}
+
+		private Batch(long sequence, String input, long firstRow, List<String> lines, int[] positions, List<T> rows) {
+			this.sequence = sequence;
+			this.input = input;
+			this.firstRow = firstRow;
+			this.lines = lines;
+			this.positions = positions;
+			this.rows = rows;
+		}
+
+		<N> Batch<N> with(List<N> newRows) {
+			return new Batch<N>(sequence, input, firstRow, lines, positions, newRows);
+		}
+
+		<N> Batch<N> with(List<N> newRows, int[] newPositions) {
+			return new Batch<N>(sequence, input, firstRow, lines, newPositions, newRows);
+		}
+
+		int position(int row) {
+			return positions != null ? positions[row] : row;
+		}
+
+		long rowNumber(int row) {
+			return firstRow + position(row);
+		}
+
+		String line(int row) {
+			return lines.get(position(row));
+		}
+
+		/**
+		 * @return the position of the batch in the intake, the first batch is 0
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		public List<T> getRows() {
+			return rows;
+		}
+	}
+
+	/**
+	 * Records of a batch encoded in the Avro binary format, ready to be appended to an archive.
+	 */
+	public static final class EncodedBatch {
+
+		private final long sequence;
+		// the batch the records were encoded from, without the records, for the rows and lines of rejected duplicates
+		private final Batch<Void> origin;
+		private final byte[] data;
+		private final int[] ends;
+		private final int[] ids;
+
+		EncodedBatch(Batch<?> origin, byte[] data, int[] ends, int[] ids) {
+			this.sequence = origin.sequence;
+			this.origin = origin.<Void>with(null);
+			this.data = data;
+			this.ends = ends;
+			this.ids = ids;
+		}
+	}
+
+	/**
+	 * Bounds the number of batches between the source and the {@link ArchiveAppender}. The source takes a slot for every batch it reads and
+	 * the appender frees it once the batch is appended, so batches that overtook a slow batch can't pile up in the appender: when all
+	 * slots are taken, the source waits for the slow batch.
+	 */
+	public static final class BatchWindow {
+
+		private final Semaphore slots;
+
+		/**
+		 * @param size number of batches that may be read and not yet appended
+		 */
+		public BatchWindow(int size) {
+			if (size < 1) {
+				throw new IllegalArgumentException("The window needs room for at least one batch, got " + size);
+			}
+			this.slots = new Semaphore(size);
+		}
+
+		void enter() throws IOException {
+			try {
+				slots.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for a batch to be appended", e);
+			}
+		}
+
+		void leave() {
+			slots.release();
+		}
+	}
+
+	/**
+	 * Reads the rows of intake files in batches. Lines are joined into one row while a quoted value is open, following the quoting
+	 * rules of the CSV parser, so values can span lines.
+	 *
+	 * @param hdfsTools file system of the intake files
+	 * @param inputs paths of the intake files, read in this order
+	 * @param skipHeader {@code true} to skip the first line of every file
+	 * @param batchSize number of rows per batch
+	 * @param window window of the {@link ArchiveAppender} the batches end up in
+	 * @return the source
+	 */
+	public static Source<Batch<String>> read(HdfsTools hdfsTools, List<String> inputs, boolean skipHeader, int batchSize, BatchWindow window) {
+		return new IntakeSource(hdfsTools, inputs, skipHeader, batchSize, window);
+	}
+
+	/**
+	 * @param line a line of an intake file
+	 * @param inQuotes {@code true} if the line starts inside a quoted value
+	 * @return {@code true} if the line ends inside a quoted value
+	 */
+	static boolean endsInQuotes(String line, boolean inQuotes) {
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == CSVParser.DEFAULT_ESCAPE_CHARACTER && inQuotes && i + 1 < line.length()
+					&& (line.charAt(i + 1) == CSVParser.DEFAULT_QUOTE_CHARACTER || line.charAt(i + 1) == CSVParser.DEFAULT_ESCAPE_CHARACTER)) {
+				i++;
+			} else if (c == CSVParser.DEFAULT_QUOTE_CHARACTER) {
+				inQuotes = !inQuotes;
+			}
+		}
+		return inQuotes;
+	}
+
+	/**
+	 * @return a stage that splits rows into columns, rows with an unterminated quoted value become {@code null}
+	 */
+	public static Stage<Batch<String>, Batch<String[]>> parse() {
+		return new Stage<Batch<String>, Batch<String[]>>() {
+
+			@Override
+			public void process(Batch<String> batch, Emitter<Batch<String[]>> output) throws IOException {
+				// the parser keeps state between lines, so every batch gets its own
+				CSVParser parser = new CSVParser();
+				List<String[]> columns = new ArrayList<String[]>(batch.rows.size());
+				for (int i = 0; i < batch.rows.size(); i++) {
+					try {
+						columns.add(parser.parseLine(batch.rows.get(i)));
+					} catch (IOException e) {
+						// the only failure of the parser, reported by the validate stage
+						columns.add(null);
+					}
+				}
+				output.emit(batch.with(columns));
+			}
+		};
+	}
+
+	/**
+	 * @param schema schema of the records
+	 * @return a stage that converts the columns of rows into new records, and fails on a row that can't be converted
+	 */
+	public static <T extends SpecificRecord> Stage<Batch<String[]>, Batch<T>> validate(Schema schema) {
+		return validate(schema, null, null);
+	}
+
+	/**
+	 * @param schema schema of the records
+	 * @param validator validates the records, {@code null} to only convert them
+	 * @param fallout receives the rows that can't be converted or are not valid, {@code null} to fail on these rows
+	 * @return a stage that converts the columns of rows into new records and validates them
+	 */
+	public static <T extends SpecificRecord> Stage<Batch<String[]>, Batch<T>> validate(final Schema schema, final RecordValidator validator,
+			final FalloutWriter fallout) {
+		final CsvRowConverter<T> converter = new CsvRowConverter<T>(schema);
+		return new Stage<Batch<String[]>, Batch<T>>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void process(Batch<String[]> batch, Emitter<Batch<T>> output) throws IOException {
+				List<T> records = new ArrayList<T>(batch.rows.size());
+				int[] positions = new int[batch.rows.size()];
+				for (int i = 0; i < batch.rows.size(); i++) {
+					String[] columns = batch.rows.get(i);
+					T record = (T) SpecificData.get().newRecord(null, schema);
+					Fallout reject;
+					try {
+						if (columns == null) {
+							throw new IllegalArgumentException("has an unterminated quoted value");
+						}
+						converter.fill(record, columns);
+						reject = validator != null ? validator.validate(record) : null;
+					} catch (IllegalArgumentException e) {
+						if (fallout == null) {
+							throw new IOException(String.format("Row %d of %s %s", batch.rowNumber(i), batch.input, e.getMessage()));
+						}
+						reject = new Fallout();
+						reject.setEntity(schema.getName());
+						reject.setReason(RejectReason.MALFORMED_ROW);
+						reject.setMessage("row " + e.getMessage());
+					}
+					if (reject == null) {
+						positions[records.size()] = batch.position(i);
+						records.add(record);
+					} else if (fallout == null) {
+						throw new IOException(String.format("Row %d of %s is not valid, %s", batch.rowNumber(i), batch.input, reject.getMessage()));
+					} else {
+						reject(batch, i, reject, fallout);
+					}
+				}
+				if (records.size() < positions.length) {
+					output.emit(batch.with(records, Arrays.copyOf(positions, records.size())));
+				} else {
+					output.emit(batch.with(records));
+				}
+			}
+		};
+	}
+
+	/**
+	 * @param schema schema of the records, the ids of the records are kept for an {@link ArchiveIndex} when it has an int id field
+	 * @return a stage that encodes records in the Avro binary format
+	 */
+	public static <T extends SpecificRecord> Stage<Batch<T>, EncodedBatch> encode(final Schema schema) {
+		Schema.Field id = schema.getField("id");
+		final int idField = id != null && id.schema().getType() == Schema.Type.INT ? id.pos() : -1;
+		return new Stage<Batch<T>, EncodedBatch>() {
+
+			@Override
+			public void process(Batch<T> batch, Emitter<EncodedBatch> output) throws IOException {
+				DatumWriter<T> datumWriter = DatumCodecs.writerFor(schema);
+				ByteArrayOutputStream data = new ByteArrayOutputStream(batch.rows.size() * 128);
+				BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(data, null);
+				int[] ends = new int[batch.rows.size()];
+				int[] ids = idField >= 0 ? new int[ends.length] : null;
+				for (int i = 0; i < ends.length; i++) {
+					T record = batch.rows.get(i);
+					datumWriter.write(record, encoder);
+					ends[i] = data.size();
+					if (ids != null) {
+						ids[i] = (Integer) record.get(idField);
+					}
+				}
+				output.emit(new EncodedBatch(batch, data.toByteArray(), ends, ids));
+			}
+		};
+	}
+
+	private static void reject(Batch<?> batch, int row, Fallout reject, FalloutWriter fallout) throws IOException {
+		reject.setInput(batch.input);
+		reject.setRow(batch.rowNumber(row));
+		reject.setLine(batch.line(row));
+		fallout.write(reject);
+	}
+
+	private static final class IntakeSource implements Source<Batch<String>> {
+
+		private final HdfsTools hdfsTools;
+		private final List<String> inputs;
+		private final boolean skipHeader;
+		private final int batchSize;
+		private final BatchWindow window;
+		private long sequence;
+
+		IntakeSource(HdfsTools hdfsTools, List<String> inputs, boolean skipHeader, int batchSize, BatchWindow window) {
+			this.hdfsTools = hdfsTools;
+			this.inputs = inputs;
+			this.skipHeader = skipHeader;
+			this.batchSize = batchSize;
+			this.window = window;
+		}
+
+		@Override
+		public void read(Emitter<Batch<String>> output) throws IOException {
+			for (String input : inputs) {
+				RowBatcher batcher = new RowBatcher(input, output);
+				hdfsTools.readLines(input, HdfsTools.DEFAULT_LINE_BUFFER_SIZE, HdfsTools.DEFAULT_LINE_BATCH_SIZE, batcher);
+				batcher.finish();
+			}
+		}
+
+		private final class RowBatcher implements LineBatchHandler {
+
+			private final String input;
+			private final Emitter<Batch<String>> output;
+			private boolean skipLine = skipHeader;
+			private long firstRow = skipHeader ? 2 : 1;
+			private List<String> rows = new ArrayList<String>(batchSize);
+			private StringBuilder openRow;
+			private boolean inQuotes;
+
+			RowBatcher(String input, Emitter<Batch<String>> output) {
+				this.input = input;
+				this.output = output;
+			}
+
+			@Override
+			public void handle(List<String> lines) throws IOException {
+				for (String line : lines) {
+					if (skipLine) {
+						skipLine = false;
+						continue;
+					}
+					inQuotes = endsInQuotes(line, inQuotes);
+					if (openRow != null) {
+						openRow.append('\n').append(line);
+					} else if (inQuotes) {
+						openRow = new StringBuilder(line);
+					}
+					if (!inQuotes) {
+						add(openRow != null ? openRow.toString() : line);
+						openRow = null;
+					}
+				}
+			}
+
+			void finish() throws IOException {
+				if (openRow != null) {
+					// an unterminated quoted value, fails in the parse stage
+					add(openRow.toString());
+				}
+				if (!rows.isEmpty()) {
+					emit();
+				}
+			}
+
+			private void add(String row) throws IOException {
+				rows.add(row);
+				if (rows.size() == batchSize) {
+					emit();
+				}
+			}
+
+			private void emit() throws IOException {
+				window.enter();
+				output.emit(new Batch<String>(sequence++, input, firstRow, rows, rows));
+				firstRow += rows.size();
+				rows = new ArrayList<String>(batchSize);
+			}
+		}
+	}
+
+	/**
+	 * Appends encoded batches to an archive in intake order. Batches that overtook an earlier batch in a stage with more than one thread
+	 * wait until the earlier batch is appended, at most as many as fit in the {@link BatchWindow} of the source. With a
+	 * {@link RecordValidator}, the ids are claimed as the records are appended, so a record with the id of an earlier record in the intake
+	 * is rejected, whichever was validated first. Must run on a single thread.
+	 */
+	public static final class ArchiveAppender implements Stage<EncodedBatch, Void> {
+
+		private final DataFileWriter<?> writer;
+		private final ArchiveIndex.Builder index;
+		private final RecordValidator validator;
+		private final FalloutWriter fallout;
+		private final BatchWindow window;
+		private final Map<Long, EncodedBatch> waiting = new HashMap<Long, EncodedBatch>();
+		private long nextSequence;
+		private long records;
+		private long rawBytes;
+
+		/**
+		 * @param writer writer of the archive, created with the schema of the records
+		 * @param window window of the source of the batches
+		 */
+		public ArchiveAppender(DataFileWriter<?> writer, BatchWindow window) {
+			this(writer, null, window);
+		}
+
+		/**
+		 * @param writer writer of the archive, created with the schema of the records
+		 * @param index receives the ids of the appended records, {@code null} to not index the archive
+		 * @param window window of the source of the batches
+		 */
+		public ArchiveAppender(DataFileWriter<?> writer, ArchiveIndex.Builder index, BatchWindow window) {
+			this(writer, index, null, null, window);
+		}
+
+		/**
+		 * @param writer writer of the archive, created with the schema of the records
+		 * @param index receives the ids of the appended records, {@code null} to not index the archive
+		 * @param validator claims the ids of the appended records, {@code null} to append records with duplicate ids
+		 * @param fallout receives the records with duplicate ids, {@code null} to fail on these records
+		 * @param window window of the source of the batches
+		 */
+		public ArchiveAppender(DataFileWriter<?> writer, ArchiveIndex.Builder index, RecordValidator validator, FalloutWriter fallout,
+				BatchWindow window) {
+			this.writer = writer;
+			this.index = index;
+			this.validator = validator;
+			this.fallout = fallout;
+			this.window = window;
+		}
+
+		@Override
+		public void process(EncodedBatch batch, Emitter<Void> output) throws IOException {
+			waiting.put(batch.sequence, batch);
+			EncodedBatch next;
+			while ((next = waiting.remove(nextSequence)) != null) {
+				int start = 0;
+				for (int i = 0; i < next.ends.length; i++) {
+					int length = next.ends[i] - start;
+					Fallout reject = validator != null && next.ids != null ? validator.claimId(next.ids[i]) : null;
+					if (reject == null) {
+						writer.appendEncoded(ByteBuffer.wrap(next.data, start, length));
+						if (index != null) {
+							index.add(next.ids[i]);
+						}
+						records++;
+						rawBytes += length;
+					} else if (fallout == null) {
+						throw new IOException(String.format("Row %d of %s is not valid, %s", next.origin.rowNumber(i), next.origin.input,
+								reject.getMessage()));
+					} else {
+						reject(next.origin, i, reject, fallout);
+					}
+					start = next.ends[i];
+				}
+				nextSequence++;
+				window.leave();
+				output.emit(null);
+			}
+		}
+
+		/**
+		 * Checks that all batches were appended, after the pipeline completed.
+		 *
+		 * @throws IOException when batches are missing
+		 */
+		public void finish() throws IOException {
+			if (!waiting.isEmpty()) {
+				throw new IOException(String.format("%d batches were not appended, batch %d is missing", waiting.size(), nextSequence));
+			}
+		}
+
+		public long getRecords() {
+			return records;
+		}
+
+		public long getRawBytes() {
+			return rawBytes;
+		}
+	}
+
+}
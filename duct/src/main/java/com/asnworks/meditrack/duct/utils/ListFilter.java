@@ -0,0 +1,160 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.GlobPattern;
+
+import com.asnworks.meditrack.duct.utils.HdfsTools.ListOptions;
+
+/**
+ * Selects the entries returned by {@link HdfsTools#listStatusIterator(org.apache.hadoop.fs.Path, ListFilter, boolean)}. Name patterns are
+ * compiled once when the filter is built and are matched against the name of an entry, not its full path. Size predicates only apply to
+ * files. Usage:
+ *
+ * <pre>
+ * ListFilter filter = ListFilter.builder().type(ListOptions.FILES).glob("*.avro").modifiedBefore(cutoff).build();
+ * </pre>
+ */
+public final class ListFilter {
+
+	private static final ListFilter ALL = builder().build();
+
+	private final ListOptions type;
+	private final Pattern namePattern;
+	private final long minSize;
+	private final long maxSize;
+	private final long modifiedFrom;
+	private final long modifiedBefore;
+
+	private ListFilter(Builder builder) {
+		this.type = builder.type;
+		this.namePattern = builder.namePattern;
+		this.minSize = builder.minSize;
+		this.maxSize = builder.maxSize;
+		this.modifiedFrom = builder.modifiedFrom;
+		this.modifiedBefore = builder.modifiedBefore;
+	}
+
+	/**
+	 * @return a filter that accepts all files and directories
+	 */
+	public static ListFilter all() {
+		return ALL;
+	}
+
+	/**
+	 * @return a builder for a filter that accepts everything until restricted
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @param status the entry to test
+	 * @return {@code true} if the entry is selected by this filter
+	 */
+	public boolean accept(FileStatus status) {
+		boolean directory = status.isDirectory();
+		if (type == ListOptions.FILES && directory || type == ListOptions.DIRECTORIES && !directory) {
+			return false;
+		}
+		if (!directory && (status.getLen() < minSize || status.getLen() > maxSize)) {
+			return false;
+		}
+		long modificationTime = status.getModificationTime();
+		if (modificationTime < modifiedFrom || modificationTime >= modifiedBefore) {
+			return false;
+		}
+		return namePattern == null || namePattern.matcher(status.getPath().getName()).matches();
+	}
+
+	/**
+	 * Builder of a {@link ListFilter}. Only one name pattern can be set, a later glob or regex replaces the earlier one.
+	 */
+	public static final class Builder {
+
+		private ListOptions type = ListOptions.ALL;
+		private Pattern namePattern;
+		private long minSize = 0;
+		private long maxSize = Long.MAX_VALUE;
+		private long modifiedFrom = Long.MIN_VALUE;
+		private long modifiedBefore = Long.MAX_VALUE;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param type whether files, directories or both are selected
+		 * @return this builder
+		 */
+		public Builder type(ListOptions type) {
+			this.type = type;
+			return this;
+		}
+
+		/**
+		 * @param glob glob the names must match, e.g. <code>part-*.avro</code>
+		 * @return this builder
+		 * @throws java.util.regex.PatternSyntaxException when the glob is invalid
+		 */
+		public Builder glob(String glob) {
+			this.namePattern = GlobPattern.compile(glob);
+			return this;
+		}
+
+		/**
+		 * @param regex regular expression the names must match completely
+		 * @return this builder
+		 * @throws java.util.regex.PatternSyntaxException when the expression is invalid
+		 */
+		public Builder regex(String regex) {
+			this.namePattern = Pattern.compile(regex);
+			return this;
+		}
+
+		/**
+		 * @param bytes minimum length of the selected files, inclusive
+		 * @return this builder
+		 */
+		public Builder minSize(long bytes) {
+			this.minSize = bytes;
+			return this;
+		}
+
+		/**
+		 * @param bytes maximum length of the selected files, inclusive
+		 * @return this builder
+		 */
+		public Builder maxSize(long bytes) {
+			this.maxSize = bytes;
+			return this;
+		}
+
+		/**
+		 * @param millis the earliest modification time selected, inclusive, in milliseconds since the epoch
+		 * @return this builder
+		 */
+		public Builder modifiedFrom(long millis) {
+			this.modifiedFrom = millis;
+			return this;
+		}
+
+		/**
+		 * @param millis the modification time from which entries are no longer selected, exclusive, in milliseconds since the epoch
+		 * @return this builder
+		 */
+		public Builder modifiedBefore(long millis) {
+			this.modifiedBefore = millis;
+			return this;
+		}
+
+		/**
+		 * @return the filter
+		 */
+		public ListFilter build() {
+			return new ListFilter(this);
+		}
+	}
+
+}
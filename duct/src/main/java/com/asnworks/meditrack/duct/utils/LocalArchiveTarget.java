@@ -0,0 +1,77 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * {@link ArchiveTarget} that writes the archive files to a local directory and uploads them to the output path on commit.
+ */
+public class LocalArchiveTarget implements ArchiveTarget {
+
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final HdfsTools hdfsTools;
+	private final File localDirectory;
+	private final String outputPath;
+	private final List<String> fileNames = new ArrayList<String>();
+
+	public LocalArchiveTarget(HdfsTools hdfsTools, File localDirectory, String outputPath) {
+		this.hdfsTools = hdfsTools;
+		this.localDirectory = localDirectory;
+		this.outputPath = outputPath;
+	}
+
+	@Override
+	public OutputStream create(String fileName) throws IOException {
+		File file = new File(localDirectory, fileName);
+		file.getParentFile().mkdirs();
+		fileNames.add(fileName);
+		return new FileOutputStream(file);
+	}
+
+	@Override
+	public OutputStream resume(String fileName, long length) throws IOException {
+		File file = new File(localDirectory, fileName);
+		if (file.length() < length) {
+			throw new IOException(String.format("Unable to keep %d bytes of %s, it is shorter", length, file));
+		}
+		RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+		try {
+			truncated.setLength(length);
+		} finally {
+			truncated.close();
+		}
+		fileNames.add(fileName);
+		return new FileOutputStream(file, true);
+	}
+
+	@Override
+	public void commit() throws IOException {
+		for (String fileName : fileNames) {
+			File file = new File(localDirectory, fileName);
+			if (file.exists() && file.isFile()) {
+				// upload under a hidden name, so readers never see a partially uploaded file
+				Path finalFile = new Path(outputPath, fileName);
+				String temporaryPath = new Path(finalFile.getParent(), "." + finalFile.getName() + TEMPORARY_SUFFIX).toString();
+				String finalPath = finalFile.toString();
+				hdfsTools.uploadToHdfs(file.getPath(), temporaryPath);
+				hdfsTools.publishFile(temporaryPath, finalPath);
+			}
+		}
+	}
+
+	@Override
+	public void abort() {
+		for (String fileName : fileNames) {
+			new File(localDirectory, fileName).delete();
+		}
+	}
+
+}
@@ -1,67 +1,564 @@
 package com.asnworks.meditrack.duct.utils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileWriter;
-import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.fs.Syncable;
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.Option;
 
+import com.asnworks.meditrack.duct.pipeline.StageMetrics;
+import com.asnworks.meditrack.duct.pipeline.StagedPipeline;
+import com.asnworks.meditrack.duct.utils.HdfsTools.ListOptions;
+import com.asnworks.meditrack.duct.utils.IntakeStages.ArchiveAppender;
+import com.asnworks.meditrack.duct.utils.IntakeStages.BatchWindow;
 import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
 
 public class MediTrackPipeline extends Tool {
 
+	private static final String PATIENT_ARCHIVE_PREFIX = "patients";
+	private static final String PATIENT_ARCHIVE = PATIENT_ARCHIVE_PREFIX + ".avro";
+	private static final String FALLOUT_ARCHIVE = "_fallout/" + PATIENT_ARCHIVE;
+	private static final String INTAKE_FILE_REGEX = "[^_.].*\\.csv";
+	private static final String INTAKE_WATERMARK = "_intake.watermark";
+
 	@Argument(required = true, usage = "Output path for fallout and success files")
 	private String outputPath;
 
 	@Option(required = false, name = "-fs", aliases = "--fileSystem", usage = "The name of the HDFS file system to use. If not specified, the local file system will be used for the input and output.")
 	private String fileSystemName;
 
+	@Option(required = true, name = "-i", aliases = "--input", usage = "Intake CSV file with one patient per row, columns in the order of the Patient schema. A directory of intake files with --incremental.")
+	private String inputPath;
+
+	@Option(required = false, name = "-I", aliases = "--incremental", usage = "Ingest the intake files (*.csv) in the input directory and its subdirectories that were added since the last incremental run, as recorded in <outputPath>/_intake.watermark. Each run is published in <outputPath>/<runId>, the run id defaults to intake-<modification time of the newest file in milliseconds>-<hash of the files>. The watermark only advances once the run is committed.")
+	private boolean incremental;
+
+	@Option(required = false, name = "-H", aliases = "--skipHeader", usage = "Skip the first line of the intake file.")
+	private boolean skipHeader;
+
+	@Option(required = false, name = "-d", aliases = "--direct", usage = "Write the archives directly to the output path instead of writing them locally and uploading them afterwards.")
+	private boolean direct;
+
+	@Option(required = false, name = "-r", aliases = "--runId", usage = "Publish the archives of the run at once in <outputPath>/<runId>, with a _SUCCESS marker, through a staging directory. Implies --direct. Repeating a committed run does nothing.")
+	private String runId;
+
+	@Option(required = false, name = "-k", aliases = "--checkpointInterval", usage = "Take a checkpoint every N patients, so a failed run continues where it was when it is run again with the same arguments. Not supported with --shards. Defaults to 0, no checkpoints.")
+	private long checkpointInterval;
+
+	@Option(required = false, name = "-c", aliases = "--codec", usage = "Compression codec of the archives: null, deflate, snappy, bzip2 or xz. Defaults to null.")
+	private String codec = DataFileConstants.NULL_CODEC;
+
+	@Option(required = false, name = "-l", aliases = "--codecLevel", usage = "Compression level for the deflate (0-9) and xz (0-9) codecs. Defaults to the codec default.")
+	private int codecLevel = ArchiveFormat.DEFAULT_LEVEL;
+
+	@Option(required = false, name = "-s", aliases = "--syncInterval", usage = "Approximate size in bytes of the uncompressed blocks of the archives. Defaults to 64000.")
+	private int syncInterval = DataFileConstants.DEFAULT_SYNC_INTERVAL;
+
+	@Option(required = false, name = "-n", aliases = "--shards", usage = "Number of archive files written in parallel, each by its own thread. Defaults to a single patients.avro file.")
+	private int shards = 1;
+
+	@Option(required = false, name = "-b", aliases = "--batchSize", usage = "Number of patients handed to a shard at once when writing in parallel, or passed between the stages of --stageThreads. Defaults to 1000.")
+	private int batchSize = 1000;
+
+	@Option(required = false, name = "-T", aliases = "--stageThreads", usage = "Ingest through a staged pipeline, read, parse, validate, encode and write, with this number of threads for each of the parse, validate and encode stages. Patients are written in intake order. Not supported with --shards, --checkpointInterval or --partitionBy. Defaults to 0, a single thread does all work.")
+	private int stageThreads;
+
+	@Option(required = false, name = "-q", aliases = "--queueCapacity", usage = "Number of batches that may wait in front of each stage of --stageThreads, before the stage in front of it is throttled. Defaults to 4.")
+	private int queueCapacity = 4;
+
+	@Option(required = false, name = "-R", aliases = "--reportInterval", usage = "Seconds between reports of the queue depths and throughput of the stages of --stageThreads. Defaults to 0, a report at the end only.")
+	private int reportInterval;
+
+	@Option(required = false, name = "-F", aliases = "--fallout", usage = "Validate the patients, required fields, id, age range, phone and email format and duplicate ids, and divert the rows that fail, with the reason, to " + FALLOUT_ARCHIVE + " in the output path instead of failing the run. Implies --stageThreads, with a thread per core when not set.")
+	private boolean fallout;
+
+	@Option(required = false, name = "-X", aliases = "--index", usage = "Write an index from patient id to the position of the patient in the archive to " + PATIENT_ARCHIVE + ArchiveIndex.SUFFIX + ", for lookups by id that read a single block of the archive. Not supported with --shards, --checkpointInterval or --partitionBy.")
+	private boolean index;
+
+	@Option(required = false, name = "-p", aliases = "--partitionBy", usage = "Write the archives to partition directories, e.g. state=9,date=@intakeDate for state=NY/date=2016-03-01. Each part is name=source, the source is a Patient field, the 1-based number of a column of the intake file, or @intakeDate, the modification date of the intake file. Not supported with --shards or --checkpointInterval.")
+	private String partitionBy;
+
+	@Option(required = false, name = "-m", aliases = "--maxOpenFiles", usage = "Number of partition archives kept open at the same time with --partitionBy. A partition that is written again after its archive was closed gets an additional file. Defaults to 100.")
+	private int maxOpenFiles = 100;
+
+	private ArchiveFormat archiveFormat = null;
 	private DataFileWriter<Patient> patientWriter = null;
-	private File patientArchiveFile = null;
-	private String patientArchivePath = null;
+	private ArchiveTarget archiveTarget = null;
+	private boolean resumable;
+	private List<String> inputs;
+	private FileStatus newestInput;
+	private boolean derivedRunId;
 
 	@Override
 	protected void run() throws IOException {
 
 		System.out.println("Intake-To-Avro Tool started running");
 		configureFileSystem(fileSystemName);
+		if (!findInputs()) {
+			return;
+		}
 		initOutputFiles();
-		doWork();
-		System.out.println("Uploading files to HDFS");
+		if (isCommitted()) {
+			advanceWatermark();
+			return;
+		}
+		boolean written = false;
+		try {
+			doWork();
+			written = true;
+		} finally {
+			// any failure, not only I/O, leaves the temporary files of the target behind
+			if (!written) {
+				if (resumable) {
+					System.err.println("Keeping the archives to resume from checkpoint " + checkpointPath());
+				} else {
+					archiveTarget.abort();
+				}
+			}
+		}
+		System.out.println(direct || runId != null ? "Committing files on HDFS" : "Uploading files to HDFS");
 		upload();
+		if (resumable) {
+			IngestCheckpoint.delete(hdfsTools, checkpointPath());
+		}
+		advanceWatermark();
+
+	}
 
+	/**
+	 * Determines the intake files to ingest, the input file itself or the new files in incremental mode.
+	 *
+	 * @return {@code false} if there is nothing to ingest
+	 */
+	private boolean findInputs() throws IOException {
+		if (!incremental) {
+			inputs = Collections.singletonList(inputPath);
+			return true;
+		}
+		if (checkpointInterval > 0) {
+			throw new IOException("Checkpoints are not supported in incremental mode");
+		}
+
+		IngestWatermark watermark = IngestWatermark.read(hdfsTools, watermarkPath());
+		ListFilter.Builder filter = ListFilter.builder().type(ListOptions.FILES).regex(INTAKE_FILE_REGEX);
+		if (watermark != null) {
+			filter.modifiedFrom(watermark.getModificationTime());
+		}
+		List<FileStatus> newFiles = new ArrayList<FileStatus>();
+		RemoteIterator<FileStatus> files = hdfsTools.listStatusIterator(new Path(inputPath), filter.build(), true);
+		while (files.hasNext()) {
+			FileStatus file = files.next();
+			if (watermark == null || watermark.isBefore(file)) {
+				newFiles.add(file);
+			}
+		}
+		if (newFiles.isEmpty()) {
+			System.out.println(String.format("No new intake files in %s since %s", inputPath, watermark != null ? watermark : "the first run"));
+			return false;
+		}
+
+		Collections.sort(newFiles, IngestWatermark.ORDER);
+		inputs = new ArrayList<String>(newFiles.size());
+		for (FileStatus file : newFiles) {
+			inputs.add(file.getPath().toString());
+		}
+		newestInput = newFiles.get(newFiles.size() - 1);
+		if (runId == null) {
+			runId = defaultRunId(newFiles);
+			derivedRunId = true;
+		}
+		System.out.println(String.format("Ingesting %d new intake files since %s as run %s", newFiles.size(),
+				watermark != null ? watermark : "the first run", runId));
+		return true;
+	}
+
+	/**
+	 * The same files give the same run id, so a run that failed after committing is not published twice. Other files give another run id,
+	 * even when the newest of them was modified in the same millisecond, so a committed run never stands for files it does not hold.
+	 */
+	private static String defaultRunId(List<FileStatus> files) {
+		StringBuilder selection = new StringBuilder();
+		for (FileStatus file : files) {
+			selection.append(file.getPath()).append('\t').append(file.getModificationTime()).append('\n');
+		}
+		SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmssSSS");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return String.format("intake-%s-%s", format.format(new Date(files.get(files.size() - 1).getModificationTime())),
+				DigestUtils.md5Hex(selection.toString()).substring(0, 8));
+	}
+
+	private void advanceWatermark() throws IOException {
+		if (newestInput != null) {
+			IngestWatermark.of(newestInput).write(hdfsTools, watermarkPath());
+		}
+	}
+
+	private String watermarkPath() {
+		return new Path(outputPath, INTAKE_WATERMARK).toString();
 	}
 
 	private void initOutputFiles() {
-		patientArchiveFile = new File("patients.avro");
+		archiveFormat = new ArchiveFormat(codec, codecLevel, syncInterval);
+		if (runId != null) {
+			archiveTarget = new StagingArchiveTarget(hdfsTools, outputPath, runId);
+		} else if (direct) {
+			archiveTarget = new DirectArchiveTarget(hdfsTools, outputPath);
+		} else {
+			archiveTarget = new LocalArchiveTarget(hdfsTools, new File("."), outputPath);
+		}
+	}
 
-		patientArchivePath = getFullOutputPath(new Path(patientArchiveFile.getName()), outputPath);
+	private boolean isCommitted() throws IOException {
+		if (runId == null || !((StagingArchiveTarget) archiveTarget).isCommitted()) {
+			return false;
+		}
+		if (incremental && !derivedRunId) {
+			// the run id does not tell which files the committed run holds, moving the watermark could skip the new files
+			throw new IOException(String.format("Run %s is already committed, ingest the %d new intake files with another run id", runId,
+					inputs.size()));
+		}
+		System.out.println(String.format("Run %s is already committed to %s", runId, ((StagingArchiveTarget) archiveTarget).getFinalPath()));
+		return true;
 	}
 
 	private void doWork() throws IOException {
-		Patient patient = new Patient(111, "AAA", "A", 21, "Male", "Address", "9591543252", "email@email.com");
-		Patient patient1 = new Patient(222, "BBB", "B", 22, "Male", "Address1", "9591543253", "email1@email.com");
-		
-		patientWriter = new DataFileWriter<Patient>(new SpecificDatumWriter<Patient>(Patient.class));
-		patientWriter.create(patient.getSchema(), patientArchiveFile);
-		
-		patientWriter.append(patient);
-		patientWriter.append(patient1);
+		if (index && (shards > 1 || checkpointInterval > 0 || partitionBy != null)) {
+			throw new IOException("The index is not supported when writing shards, taking checkpoints or partitioning");
+		}
+		if (fallout && stageThreads == 0) {
+			stageThreads = Runtime.getRuntime().availableProcessors();
+		}
+		if (stageThreads > 0) {
+			if (shards > 1 || checkpointInterval > 0 || partitionBy != null) {
+				throw new IOException("The staged pipeline is not supported when writing shards, taking checkpoints or partitioning");
+			}
+			doStagedWork();
+			return;
+		}
+		if (partitionBy != null) {
+			if (shards > 1 || checkpointInterval > 0) {
+				throw new IOException("Partitioning is not supported when writing shards or taking checkpoints");
+			}
+			doPartitionedWork();
+			return;
+		}
+		if (shards > 1) {
+			if (checkpointInterval > 0) {
+				throw new IOException("Checkpoints are not supported when writing shards");
+			}
+			doShardedWork();
+			return;
+		}
+
+		IngestCheckpoint checkpoint = checkpointInterval > 0 ? readCheckpoint() : null;
+		OutputStream archiveOut = checkpoint != null ? resumeArchive(checkpoint) : null;
+		CsvRecordReader<Patient> intake;
+		if (archiveOut == null) {
+			checkpoint = null;
+			archiveOut = archiveTarget.create(PATIENT_ARCHIVE);
+			intake = openIntake(inputs.get(0));
+		} else {
+			resumable = true;
+			System.out.println("Resuming from checkpoint " + checkpoint);
+			intake = new CsvRecordReader<Patient>(hdfsTools.getInputStream(inputPath, checkpoint.getInputOffset()), checkpoint.getInputOffset(),
+					checkpoint.getRow(), Patient.getClassSchema(), false);
+		}
+		Patient patient = new Patient();
+		long resumedRows = checkpoint == null ? 0 : checkpoint.getRecords();
+		long rows = resumedRows;
+		long start = System.nanoTime();
+
+		CountingDatumWriter<Patient> datumWriter = new CountingDatumWriter<Patient>(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		CountingOutputStream archiveStream = new CountingOutputStream(archiveOut);
+		patientWriter = archiveFormat.newWriter(datumWriter);
+		ArchiveIndex.Builder indexBuilder = null;
+		try {
+			byte[] sync;
+			long archiveOffset;
+			if (checkpoint == null) {
+				sync = newSync();
+				archiveOffset = 0;
+				patientWriter.create(Patient.getClassSchema(), archiveStream, sync);
+			} else {
+				// appending takes the codec from the header, at its default level, so the writer is created with the configured format and
+				// the header it writes, the same as the one in the archive, is dropped
+				sync = checkpoint.getSync();
+				byte[] header = archiveHeader(sync);
+				archiveOffset = checkpoint.getArchiveLength() - header.length;
+				patientWriter.create(Patient.getClassSchema(), new WrittenHeaderOutputStream(archiveStream, header), sync);
+			}
+			if (index) {
+				indexBuilder = new ArchiveIndex.Builder(patientWriter, archiveStream);
+			}
+
+			int nextInput = 1;
+			while (true) {
+				while (intake.next(patient)) {
+					patientWriter.append(patient);
+					if (indexBuilder != null) {
+						indexBuilder.add(patient.getId());
+					}
+					rows++;
+					if (checkpointInterval > 0 && rows % checkpointInterval == 0) {
+						long archiveLength = archiveOffset + patientWriter.sync();
+						patientWriter.flush();
+						if (archiveOut instanceof Syncable) {
+							((Syncable) archiveOut).hflush();
+						}
+						new IngestCheckpoint(inputPath, intake.getOffset(), intake.getRow(), rows, PATIENT_ARCHIVE, archiveLength, sync,
+								archiveFormat.getCodecName()).write(hdfsTools, checkpointPath());
+						resumable = true;
+					}
+				}
+				if (nextInput == inputs.size()) {
+					break;
+				}
+				intake.close();
+				intake = openIntake(inputs.get(nextInput++));
+			}
+
+			patientWriter.flush();
+		} finally {
+			IOUtils.closeQuietly(intake);
+			patientWriter.close();
+		}
+
+		ArchiveStats stats = new ArchiveStats();
+		stats.add(rows - resumedRows, datumWriter.getByteCount(), archiveStream.getByteCount());
+		reportThroughput(rows - resumedRows, System.nanoTime() - start);
+		System.out.println(String.format("%s (%s): %s", PATIENT_ARCHIVE, archiveFormat, stats));
+		if (indexBuilder != null) {
+			writeIndex(indexBuilder);
+		}
+	}
+
+	private void writeIndex(ArchiveIndex.Builder indexBuilder) throws IOException {
+		ArchiveIndex archiveIndex = indexBuilder.build();
+		archiveIndex.write(archiveTarget.create(PATIENT_ARCHIVE + ArchiveIndex.SUFFIX));
+		System.out.println(String.format("%s%s: %d ids of %d patients", PATIENT_ARCHIVE, ArchiveIndex.SUFFIX, archiveIndex.size(),
+				indexBuilder.getRecords()));
+	}
+
+	private IngestCheckpoint readCheckpoint() throws IOException {
+		IngestCheckpoint checkpoint = IngestCheckpoint.read(hdfsTools, checkpointPath());
+		if (checkpoint != null && (!checkpoint.getInput().equals(inputPath) || !checkpoint.getCodec().equals(archiveFormat.getCodecName()))) {
+			throw new IOException(String.format("Checkpoint %s was taken for input %s with codec %s, remove it to start over", checkpointPath(),
+					checkpoint.getInput(), checkpoint.getCodec()));
+		}
+		return checkpoint;
+	}
+
+	private OutputStream resumeArchive(IngestCheckpoint checkpoint) {
+		try {
+			return archiveTarget.resume(PATIENT_ARCHIVE, checkpoint.getArchiveLength());
+		} catch (IOException e) {
+			System.err.println(String.format("Unable to resume %s from checkpoint %s, starting over: %s", PATIENT_ARCHIVE, checkpointPath(),
+					e.getMessage()));
+			return null;
+		}
+	}
+
+	private String checkpointPath() {
+		return new Path(outputPath, "_" + (runId != null ? runId + "-" : "") + PATIENT_ARCHIVE + ".checkpoint").toString();
+	}
+
+	private byte[] archiveHeader(byte[] sync) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataFileWriter<Patient> writer = archiveFormat.newWriter(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		writer.create(Patient.getClassSchema(), header, sync);
+		writer.close();
+		return header.toByteArray();
+	}
+
+	private static byte[] newSync() {
+		byte[] sync = new byte[16];
+		new SecureRandom().nextBytes(sync);
+		return sync;
+	}
+
+	private void doShardedWork() throws IOException {
+		CsvRecordReader<Patient> intake = null;
+		long rows = 0;
+		long start = System.nanoTime();
 
-		patientWriter.flush();
-		patientWriter.close();
+		ShardedArchiveWriter<Patient> shardedWriter = new ShardedArchiveWriter<Patient>(archiveTarget, archiveFormat,
+				Patient.getClassSchema(), PATIENT_ARCHIVE_PREFIX, shards, batchSize, 2 * shards);
+		try {
+			for (String input : inputs) {
+				intake = openIntake(input);
+				while (intake.next(shardedWriter.claim())) {
+					shardedWriter.publish();
+					rows++;
+				}
+				intake.close();
+			}
+		} finally {
+			IOUtils.closeQuietly(intake);
+			shardedWriter.close();
+		}
 
+		reportThroughput(rows, System.nanoTime() - start);
+		System.out.println(String.format("%d x %s-part-*.avro (%s): %s", shards, PATIENT_ARCHIVE_PREFIX, archiveFormat,
+				shardedWriter.getStats()));
+	}
+
+	private void doStagedWork() throws IOException {
+		Schema schema = Patient.getClassSchema();
+		CountingOutputStream archiveStream = new CountingOutputStream(archiveTarget.create(PATIENT_ARCHIVE));
+		patientWriter = archiveFormat.newWriter(DatumCodecs.<Patient>writerFor(schema));
+		ArchiveIndex.Builder indexBuilder = null;
+		ArchiveAppender appender = null;
+		FalloutWriter falloutWriter = null;
+		RecordValidator validator = null;
+		List<StageMetrics> metrics;
+		long start = System.nanoTime();
+		try {
+			patientWriter.create(schema, archiveStream);
+			if (index) {
+				indexBuilder = new ArchiveIndex.Builder(patientWriter, archiveStream);
+			}
+			// room for the batches the queues and threads of the stages after the source hold, which the source can get ahead by anyway
+			BatchWindow window = new BatchWindow(4 * (queueCapacity + stageThreads));
+			if (fallout) {
+				falloutWriter = new FalloutWriter(archiveFormat, archiveTarget.create(FALLOUT_ARCHIVE));
+				validator = new RecordValidator(schema, new IdSet());
+			}
+			appender = new ArchiveAppender(patientWriter, indexBuilder, validator, falloutWriter, window);
+			metrics = StagedPipeline.from("read", IntakeStages.read(hdfsTools, inputs, skipHeader, batchSize, window))
+					.then("parse", stageThreads, queueCapacity, IntakeStages.parse())
+					.then("validate", stageThreads, queueCapacity, IntakeStages.<Patient>validate(schema, validator, falloutWriter))
+					.then("encode", stageThreads, queueCapacity, IntakeStages.<Patient>encode(schema))
+					.then("write", 1, queueCapacity, appender)
+					.reportEvery(reportInterval, TimeUnit.SECONDS)
+					.build().run();
+			appender.finish();
+			patientWriter.flush();
+		} finally {
+			patientWriter.close();
+			if (falloutWriter != null) {
+				falloutWriter.close();
+			}
+		}
+
+		ArchiveStats stats = new ArchiveStats();
+		stats.add(appender.getRecords(), appender.getRawBytes(), archiveStream.getByteCount());
+		reportThroughput(appender.getRecords(), System.nanoTime() - start);
+		for (StageMetrics stage : metrics) {
+			System.out.println(stage);
+		}
+		System.out.println("Bottleneck: " + StageMetrics.bottleneck(metrics).getName());
+		System.out.println(String.format("%s (%s): %s", PATIENT_ARCHIVE, archiveFormat, stats));
+		if (falloutWriter != null) {
+			System.out.println(String.format("%s: %s", FALLOUT_ARCHIVE, falloutWriter));
+		}
+		if (indexBuilder != null) {
+			writeIndex(indexBuilder);
+		}
+	}
+
+	private void doPartitionedWork() throws IOException {
+		PartitionSpec partitionSpec;
+		try {
+			partitionSpec = PartitionSpec.parse(partitionBy, Patient.getClassSchema());
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid --partitionBy: " + e.getMessage(), e);
+		}
+		CsvRecordReader<Patient> intake = null;
+		Patient patient = new Patient();
+		long rows = 0;
+		long start = System.nanoTime();
+
+		PartitionedArchiveWriter<Patient> partitionedWriter = new PartitionedArchiveWriter<Patient>(archiveTarget, archiveFormat,
+				Patient.getClassSchema(), PATIENT_ARCHIVE_PREFIX, maxOpenFiles);
+		try {
+			for (String input : inputs) {
+				long intakeTime = hdfsTools.getFileStatus(input).getModificationTime();
+				intake = openIntake(input);
+				while (intake.next(patient)) {
+					partitionedWriter.append(partitionSpec.partitionOf(patient, intake, intakeTime), patient);
+					rows++;
+				}
+				intake.close();
+			}
+		} finally {
+			IOUtils.closeQuietly(intake);
+			partitionedWriter.close();
+		}
+
+		reportThroughput(rows, System.nanoTime() - start);
+		System.out.println(String.format("%d partitions, %d x %s-*.avro (%s): %s", partitionedWriter.getPartitions(),
+				partitionedWriter.getFiles(), PATIENT_ARCHIVE_PREFIX, archiveFormat, partitionedWriter.getStats()));
+		if (partitionedWriter.getFiles() > 2 * partitionedWriter.getPartitions()) {
+			System.err.println(String.format("Partitions were reopened %d times, sort the intake by partition or raise --maxOpenFiles above %d",
+					partitionedWriter.getFiles() - partitionedWriter.getPartitions(), maxOpenFiles));
+		}
+	}
+
+	private CsvRecordReader<Patient> openIntake(String input) throws IOException {
+		return new CsvRecordReader<Patient>(hdfsTools.getInputStream(input), 0, 0, Patient.getClassSchema(), skipHeader);
+	}
+
+	private void reportThroughput(long rows, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		System.out.println(String.format("Wrote %d patients from %s in %.1f s (%.0f rows/sec)", rows, inputPath, seconds,
+				seconds > 0 ? rows / seconds : 0));
 	}
 
 	private void upload() throws IOException {
+		archiveTarget.commit();
+	}
+
+	/**
+	 * Stream for a writer that continues an archive, which drops the header the writer writes after checking that it is the header of the
+	 * archive.
+	 */
+	private static final class WrittenHeaderOutputStream extends FilterOutputStream {
+
+		private final byte[] header;
+		private int position;
 
-		if (patientArchiveFile.exists() && patientArchiveFile.isFile()) {
-			hdfsTools.uploadToHdfs(patientArchiveFile.getName(), patientArchivePath);
+		WrittenHeaderOutputStream(OutputStream out, byte[] header) {
+			super(out);
+			this.header = header;
 		}
 
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			int skipped = Math.min(len, header.length - position);
+			for (int i = 0; i < skipped; i++) {
+				if (b[off + i] != header[position++]) {
+					throw new IOException("Archive header differs from the header of the resumed archive at position " + (position - 1));
+				}
+			}
+			out.write(b, off + skipped, len - skipped);
+		}
 	}
 
 }
@@ -0,0 +1,142 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.IndexedRecord;
+
+/**
+ * Partition directory layout of an archive, e.g. <code>state=9,date=@intakeDate</code> for <code>state=NY/date=2016-03-01</code>. Each
+ * part is <code>name=source</code>, where the source is one of
+ * <ul>
+ * <li>the name of a field of the records, e.g. <code>city</code> for hospitals;</li>
+ * <li>the 1-based number of a column of the intake CSV file, for values that are not in the records, e.g. the state of a patient;</li>
+ * <li><code>@intakeDate</code>, the date the intake file was last modified, in UTC.</li>
+ * </ul>
+ * Values are escaped like Hive partition values, so they can't add directory levels, and empty values are written to the
+ * <code>__HIVE_DEFAULT_PARTITION__</code> directory.
+ */
+public class PartitionSpec {
+
+	public static final String INTAKE_DATE = "@intakeDate";
+
+	private static final String DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private final List<Part> parts;
+	private long intakeTime;
+	private String intakeDate;
+
+	private PartitionSpec(List<Part> parts) {
+		this.parts = parts;
+	}
+
+	/**
+	 * @param spec comma separated <code>name=source</code> parts
+	 * @param schema schema of the records
+	 * @return the partition layout
+	 * @throws IllegalArgumentException when a part is invalid
+	 */
+	public static PartitionSpec parse(String spec, Schema schema) {
+		List<Part> parts = new ArrayList<Part>();
+		for (String part : spec.split(",")) {
+			int separator = part.indexOf('=');
+			if (separator <= 0 || separator == part.length() - 1) {
+				throw new IllegalArgumentException("Partition must be name=source, got '" + part + "'");
+			}
+			String name = part.substring(0, separator).trim();
+			String source = part.substring(separator + 1).trim();
+			if (source.equals(INTAKE_DATE)) {
+				parts.add(new Part(name, Source.INTAKE_DATE, -1));
+			} else if (schema.getField(source) != null) {
+				parts.add(new Part(name, Source.FIELD, schema.getField(source).pos()));
+			} else if (source.matches("[1-9][0-9]*")) {
+				parts.add(new Part(name, Source.COLUMN, Integer.parseInt(source) - 1));
+			} else {
+				throw new IllegalArgumentException(String.format("Partition %s: %s is not a field of %s, a column number or %s", name, source,
+						schema.getName(), INTAKE_DATE));
+			}
+		}
+		return new PartitionSpec(parts);
+	}
+
+	/**
+	 * @param record the record to place
+	 * @param row the intake row the record was read from
+	 * @param intakeTime modification time of the intake file
+	 * @return the relative path of the partition directory of the record
+	 */
+	public String partitionOf(IndexedRecord record, CsvRecordReader<?> row, long intakeTime) {
+		StringBuilder path = new StringBuilder();
+		for (Part part : parts) {
+			if (path.length() > 0) {
+				path.append('/');
+			}
+			Object value;
+			switch (part.source) {
+			case FIELD:
+				value = record.get(part.index);
+				break;
+			case COLUMN:
+				value = row.getColumn(part.index);
+				break;
+			default:
+				value = formatIntakeDate(intakeTime);
+			}
+			path.append(part.name).append('=');
+			appendEscaped(path, value == null ? null : value.toString().trim());
+		}
+		return path.toString();
+	}
+
+	private String formatIntakeDate(long time) {
+		// all records of an intake file have the same date
+		if (intakeDate == null || time != intakeTime) {
+			SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			intakeDate = format.format(new Date(time));
+			intakeTime = time;
+		}
+		return intakeDate;
+	}
+
+	private static void appendEscaped(StringBuilder path, String value) {
+		if (value == null || value.isEmpty()) {
+			path.append(DEFAULT_PARTITION);
+			return;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x20 || c == '"' || c == '#' || c == '%' || c == '\'' || c == '*' || c == '/' || c == ':' || c == '=' || c == '?'
+					|| c == '\\' || c == 0x7F || c == '{' || c == '[' || c == ']' || c == '^') {
+				path.append('%').append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+			} else {
+				path.append(c);
+			}
+		}
+	}
+
+	private enum Source {
+		FIELD,
+		COLUMN,
+		INTAKE_DATE
+	}
+
+	private static final class Part {
+
+		final String name;
+		final Source source;
+		final int index;
+
+		Part(String name, Source source, int index) {
+			this.name = name;
+			this.source = source;
+			this.index = index;
+		}
+	}
+
+}
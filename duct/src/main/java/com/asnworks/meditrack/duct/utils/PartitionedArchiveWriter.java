@@ -0,0 +1,160 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+/**
+ * Writes records to archive files in partition directories, e.g. <code>state=NY/date=2016-03-01/patients-00000.avro</code>, so readers
+ * can skip the directories they don't need. A writer is kept open per partition, up to a maximum: when a record for another partition
+ * arrives, the least recently used writer is closed. A partition that receives records again after its writer was closed gets an
+ * additional file, so input ordered or clustered by partition gives the fewest files.
+ *
+ * @param <T> the type of the records
+ */
+public class PartitionedArchiveWriter<T extends SpecificRecord> implements Closeable {
+
+	private final ArchiveTarget target;
+	private final ArchiveFormat format;
+	private final Schema schema;
+	private final String prefix;
+	private final int maxOpenFiles;
+	private final LinkedHashMap<String, PartitionFile> openFiles;
+	private final Map<String, Integer> fileCounts = new HashMap<String, Integer>();
+	private final ArchiveStats stats = new ArchiveStats();
+	private int files;
+
+	/**
+	 * @param target target to create the archive files in
+	 * @param format codec and sync interval of the archive files
+	 * @param schema schema of the records
+	 * @param prefix prefix of the archive file names, e.g. patients
+	 * @param maxOpenFiles maximum number of archive files open at the same time
+	 */
+	public PartitionedArchiveWriter(ArchiveTarget target, ArchiveFormat format, Schema schema, String prefix, int maxOpenFiles) {
+		if (maxOpenFiles < 1) {
+			throw new IllegalArgumentException("At least one file must be open, got " + maxOpenFiles);
+		}
+		this.target = target;
+		this.format = format;
+		this.schema = schema;
+		this.prefix = prefix;
+		this.maxOpenFiles = maxOpenFiles;
+		this.openFiles = new LinkedHashMap<String, PartitionFile>(16, 0.75f, true);
+	}
+
+	/**
+	 * Writes a record to the archive of its partition.
+	 *
+	 * @param partition relative path of the partition directory, e.g. state=NY/date=2016-03-01
+	 * @param record the record to write
+	 * @throws IOException when the record could not be written
+	 */
+	public void append(String partition, T record) throws IOException {
+		PartitionFile file = openFiles.get(partition);
+		if (file == null) {
+			if (openFiles.size() == maxOpenFiles) {
+				Iterator<PartitionFile> leastRecentlyUsed = openFiles.values().iterator();
+				PartitionFile evicted = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				evicted.close();
+			}
+			file = open(partition);
+			openFiles.put(partition, file);
+		}
+		file.writer.append(record);
+		file.records++;
+	}
+
+	/**
+	 * Closes all archive files.
+	 *
+	 * @throws IOException when one of the files could not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (PartitionFile file : openFiles.values()) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				failure = failure == null ? e : failure;
+			}
+		}
+		openFiles.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * @return the number of records and bytes written to the closed files
+	 */
+	public ArchiveStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * @return the number of partitions written to
+	 */
+	public int getPartitions() {
+		return fileCounts.size();
+	}
+
+	/**
+	 * @return the number of archive files created
+	 */
+	public int getFiles() {
+		return files;
+	}
+
+	private PartitionFile open(String partition) throws IOException {
+		Integer count = fileCounts.get(partition);
+		int sequence = count == null ? 0 : count;
+		fileCounts.put(partition, sequence + 1);
+		files++;
+		return new PartitionFile(String.format("%s/%s-%05d.avro", partition, prefix, sequence));
+	}
+
+	private final class PartitionFile {
+
+		private final CountingDatumWriter<T> datumWriter;
+		private final CountingOutputStream out;
+		private final DataFileWriter<T> writer;
+		private long records;
+
+		PartitionFile(String fileName) throws IOException {
+			this.datumWriter = new CountingDatumWriter<T>(DatumCodecs.<T>writerFor(schema));
+			this.out = new CountingOutputStream(target.create(fileName));
+			this.writer = format.newWriter(datumWriter);
+			try {
+				writer.create(schema, out);
+			} catch (IOException e) {
+				out.close();
+				throw e;
+			}
+		}
+
+		void close() throws IOException {
+			try {
+				writer.close();
+			} finally {
+				// the writer leaves the stream open when flushing the last block fails
+				IOUtils.closeQuietly(out);
+			}
+			stats.add(records, datumWriter.getByteCount(), out.getByteCount());
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * {@link ArchiveReader} for patients archives. Example that only decodes the id and email of each patient:
+ * 
+ * <pre>
+ * Schema projection = SchemaBuilder.record("Patient").namespace("com.asnworks.meditrack.model").fields()
+ * 		.requiredInt("id").requiredString("email").endRecord();
+ * PatientArchiveReader reader = new PatientArchiveReader(hdfsTools, "/archive/patients", projection);
+ * while (reader.hasNext()) {
+ * 	Patient patient = reader.next();
+ * }
+ * reader.close();
+ * </pre>
+ */
+public class PatientArchiveReader extends ArchiveReader<Patient> {
+
+	/**
+	 * Reads all fields of the patients.
+	 * 
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param path archive file, or directory containing archive files
+	 * @throws IOException when the path could not be accessed
+	 */
+	public PatientArchiveReader(HdfsTools hdfsTools, String path) throws IOException {
+		this(hdfsTools, path, Patient.getClassSchema());
+	}
+
+	/**
+	 * Reads the fields of the projection only.
+	 * 
+	 * @param hdfsTools tools for the file system of the archive
+	 * @param path archive file, or directory containing archive files
+	 * @param projection the Patient schema or a projection of it
+	 * @throws IOException when the path could not be accessed
+	 */
+	public PatientArchiveReader(HdfsTools hdfsTools, String path, Schema projection) throws IOException {
+		super(hdfsTools, path, projection);
+	}
+
+}
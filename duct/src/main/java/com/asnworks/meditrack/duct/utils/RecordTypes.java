@@ -0,0 +1,36 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.util.Locale;
+
+import org.apache.avro.specific.SpecificRecord;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Hospital;
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * The record types of the entities the tools take as an --entity option.
+ */
+public final class RecordTypes {
+
+	private RecordTypes() {
+	}
+
+	/**
+	 * @param entity name of the entity, patient, doctor or hospital, in any case
+	 * @return the class of the records of the entity
+	 * @throws IllegalArgumentException when the entity is unknown
+	 */
+	public static Class<? extends SpecificRecord> recordClass(String entity) {
+		String name = entity.toLowerCase(Locale.ROOT);
+		if (name.equals("patient")) {
+			return Patient.class;
+		} else if (name.equals("doctor")) {
+			return Doctor.class;
+		} else if (name.equals("hospital")) {
+			return Hospital.class;
+		}
+		throw new IllegalArgumentException("Unknown entity " + entity + ", expected patient, doctor or hospital");
+	}
+
+}
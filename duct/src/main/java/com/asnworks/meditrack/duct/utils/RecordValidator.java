@@ -0,0 +1,141 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.IndexedRecord;
+
+import com.asnworks.meditrack.model.Fallout;
+import com.asnworks.meditrack.model.RejectReason;
+import com.asnworks.meditrack.model.validation.FieldValidator;
+
+/**
+ * Validates {@link com.asnworks.meditrack.model.Patient}, {@link com.asnworks.meditrack.model.Doctor} and
+ * {@link com.asnworks.meditrack.model.Hospital} records, by the fields their schema has:
+ * <ul>
+ * <li>all string fields are required, blank values are rejected as {@link RejectReason#MISSING_FIELD};</li>
+ * <li>id is not negative, {@link RejectReason#INVALID_ID};</li>
+ * <li>id is not the id of an earlier valid record, {@link RejectReason#DUPLICATE_ID}, checked by {@link #claimId(int)};</li>
+ * <li>age is between 0 and {@link #MAX_AGE}, {@link RejectReason#INVALID_AGE};</li>
+ * <li>phoneNumber has 7 to 15 digits, optionally a leading + and spaces, dots, dashes and parentheses between the digits,
+ * {@link RejectReason#INVALID_PHONE};</li>
+ * <li>email has the form local@domain.tld, {@link RejectReason#INVALID_EMAIL};</li>
+ * <li>medicalRegistrationNumber has the format of {@link FieldValidator#MEDICAL_REGISTRATION_NUMBER},
+ * {@link RejectReason#INVALID_REGISTRATION_NUMBER}.</li>
+ * </ul>
+ * The string fields are checked by the {@link FieldValidator}s on their {@link org.apache.avro.util.Utf8} or {@link String} values as they
+ * are, without conversion.
+ * <p>
+ * {@link #validate(IndexedRecord)} is thread-safe and does not check for duplicate ids. These are checked by {@link #claimId(int)}, which
+ * a single thread calls for the valid records in intake order, so the first record with an id is kept.
+ */
+public class RecordValidator {
+
+	public static final int MAX_AGE = 150;
+
+	private final String entity;
+	private final int[] requiredFields;
+	private final String[] fieldNames;
+	private final int idField;
+	private final int ageField;
+	private final int phoneField;
+	private final int emailField;
+	private final int registrationNumberField;
+	private final IdSet ids;
+
+	/**
+	 * @param schema schema of the records
+	 * @param ids ids of the valid records, claimed through {@link #claimId(int)}
+	 */
+	public RecordValidator(Schema schema, IdSet ids) {
+		List<Field> fields = schema.getFields();
+		List<Integer> required = new ArrayList<Integer>();
+		this.fieldNames = new String[fields.size()];
+		for (Field field : fields) {
+			fieldNames[field.pos()] = field.name();
+			if (field.schema().getType() == Schema.Type.STRING) {
+				required.add(field.pos());
+			}
+		}
+		this.requiredFields = new int[required.size()];
+		for (int i = 0; i < requiredFields.length; i++) {
+			requiredFields[i] = required.get(i);
+		}
+		this.entity = schema.getName();
+		this.idField = position(schema, "id", Schema.Type.INT);
+		this.ageField = position(schema, "age", Schema.Type.INT);
+		this.phoneField = position(schema, "phoneNumber", Schema.Type.STRING);
+		this.emailField = position(schema, "email", Schema.Type.STRING);
+		this.registrationNumberField = position(schema, "medicalRegistrationNumber", Schema.Type.STRING);
+		this.ids = ids;
+	}
+
+	private static int position(Schema schema, String name, Schema.Type type) {
+		Field field = schema.getField(name);
+		return field != null && field.schema().getType() == type ? field.pos() : -1;
+	}
+
+	/**
+	 * Validates the fields of a record. Whether its id is a duplicate is checked by {@link #claimId(int)}.
+	 *
+	 * @param record the record
+	 * @return {@code null} if the record is valid, otherwise a {@link Fallout} with the entity, reason, field and message set
+	 */
+	public Fallout validate(IndexedRecord record) {
+		for (int field : requiredFields) {
+			if (!FieldValidator.NOT_BLANK.isValid((CharSequence) record.get(field))) {
+				return reject(RejectReason.MISSING_FIELD, field, "is missing");
+			}
+		}
+		if (ageField >= 0) {
+			int age = (Integer) record.get(ageField);
+			if (age < 0 || age > MAX_AGE) {
+				return reject(RejectReason.INVALID_AGE, ageField, String.format("%d is not between 0 and %d", age, MAX_AGE));
+			}
+		}
+		if (phoneField >= 0 && !FieldValidator.PHONE_NUMBER.isValid((CharSequence) record.get(phoneField))) {
+			return reject(RejectReason.INVALID_PHONE, phoneField, String.format("'%s' is not a phone number", record.get(phoneField)));
+		}
+		if (emailField >= 0 && !FieldValidator.EMAIL.isValid((CharSequence) record.get(emailField))) {
+			return reject(RejectReason.INVALID_EMAIL, emailField, String.format("'%s' is not an email address", record.get(emailField)));
+		}
+		if (registrationNumberField >= 0
+				&& !FieldValidator.MEDICAL_REGISTRATION_NUMBER.isValid((CharSequence) record.get(registrationNumberField))) {
+			return reject(RejectReason.INVALID_REGISTRATION_NUMBER, registrationNumberField,
+					String.format("'%s' is not a medical registration number", record.get(registrationNumberField)));
+		}
+		if (idField >= 0) {
+			int id = (Integer) record.get(idField);
+			if (id < 0) {
+				return reject(RejectReason.INVALID_ID, idField, String.format("%d is negative", id));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the id of a valid record to the ids of the valid records. Called by a single thread for the records in intake order, so the first
+	 * record with an id is kept and the later ones are rejected.
+	 *
+	 * @param id id of a record that passed {@link #validate(IndexedRecord)}
+	 * @return {@code null} if the id is new, otherwise a {@link Fallout} for the duplicate id
+	 */
+	public Fallout claimId(int id) {
+		if (idField < 0 || ids.add(id)) {
+			return null;
+		}
+		return reject(RejectReason.DUPLICATE_ID, idField, String.format("%d was already ingested", id));
+	}
+
+	private Fallout reject(RejectReason reason, int field, String message) {
+		Fallout fallout = new Fallout();
+		fallout.setEntity(entity);
+		fallout.setReason(reason);
+		fallout.setField(fieldNames[field]);
+		fallout.setMessage(fieldNames[field] + " " + message);
+		return fallout;
+	}
+
+}
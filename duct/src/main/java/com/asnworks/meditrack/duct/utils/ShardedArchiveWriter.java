@@ -0,0 +1,277 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.asnworks.meditrack.model.io.DatumCodecs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Writes records to a number of archive files in parallel. Each shard is written by its own thread that owns a {@link DataFileWriter}
+ * for a file named <code>&lt;prefix&gt;-part-NNNNN.avro</code>, so encoding and compression scale with the number of shards.
+ * <p>
+ * The producer fills batches of reused record instances that are handed to the shards through a bounded queue. All batches are allocated
+ * up front, so the memory used does not depend on the amount of data: when the shards can't keep up, the producer blocks until a batch
+ * is returned. Usage:
+ *
+ * <pre>
+ * T record = writer.claim();
+ * // fill record
+ * writer.publish();
+ * ...
+ * writer.close();
+ * </pre>
+ *
+ * @param <T> the type of the records
+ */
+public class ShardedArchiveWriter<T extends SpecificRecord> implements Closeable {
+
+	private static final long POLL_INTERVAL_MS = 100;
+
+	private final Schema schema;
+	private final BlockingQueue<Batch<T>> freeBatches;
+	private final BlockingQueue<Batch<T>> fullBatches;
+	private final Batch<T> endOfData = new Batch<T>();
+	private final List<Shard> shards = new ArrayList<Shard>();
+	private final ExecutorService executor;
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private final ArchiveStats stats = new ArchiveStats();
+	private Batch<T> current;
+	private boolean closed;
+
+	/**
+	 * Creates the archive files for all shards and starts the shard threads.
+	 *
+	 * @param target target to create the archive files in
+	 * @param format codec and sync interval of the archive files
+	 * @param schema schema of the records
+	 * @param prefix prefix of the archive file names, e.g. patients
+	 * @param shardCount number of shards, i.e. files and threads
+	 * @param batchSize number of records per batch
+	 * @param queueCapacity number of filled batches that may wait for a shard
+	 * @throws IOException when an archive file could not be created
+	 */
+	public ShardedArchiveWriter(ArchiveTarget target, ArchiveFormat format, Schema schema, String prefix, int shardCount, int batchSize,
+			int queueCapacity) throws IOException {
+		this.schema = schema;
+		this.fullBatches = new ArrayBlockingQueue<Batch<T>>(queueCapacity + shardCount);
+		int batchCount = queueCapacity + 2 * shardCount + 1;
+		this.freeBatches = new ArrayBlockingQueue<Batch<T>>(batchCount);
+		for (int i = 0; i < batchCount; i++) {
+			freeBatches.add(new Batch<T>(batchSize, schema));
+		}
+
+		try {
+			for (int i = 0; i < shardCount; i++) {
+				shards.add(new Shard(target, format, String.format("%s-part-%05d.avro", prefix, i)));
+			}
+		} catch (IOException e) {
+			for (Shard shard : shards) {
+				shard.closeQuietly();
+			}
+			throw e;
+		}
+
+		this.executor = Executors.newFixedThreadPool(shardCount, new ThreadFactoryBuilder().setNameFormat(prefix + "-shard-%d").build());
+		for (Shard shard : shards) {
+			executor.execute(shard);
+		}
+	}
+
+	/**
+	 * Returns the next record instance to fill. The instance still holds the values of an earlier record, so all fields must be set.
+	 *
+	 * @return record to fill, only written when {@link #publish()} is called
+	 * @throws IOException when one of the shards failed
+	 */
+	public T claim() throws IOException {
+		if (current == null) {
+			current = take(freeBatches);
+		}
+		return current.records.get(current.size);
+	}
+
+	/**
+	 * Marks the record returned by the last call to {@link #claim()} as filled.
+	 *
+	 * @throws IOException when one of the shards failed
+	 */
+	public void publish() throws IOException {
+		current.size++;
+		if (current.size == current.records.size()) {
+			put(current);
+			current = null;
+		}
+	}
+
+	/**
+	 * Writes the remaining records, closes all archive files and stops the shard threads.
+	 *
+	 * @throws IOException when one of the shards failed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (current != null && current.size > 0) {
+				put(current);
+			}
+			current = null;
+			for (int i = 0; i < shards.size(); i++) {
+				put(endOfData);
+			}
+		} finally {
+			executor.shutdown();
+			try {
+				while (!executor.awaitTermination(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+					if (failure.get() != null) {
+						// a shard that failed no longer takes batches, make sure the others stop too
+						fullBatches.clear();
+						executor.shutdownNow();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+			}
+			for (Shard shard : shards) {
+				shard.closeQuietly();
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * @return the number of records and bytes written by all shards, complete after {@link #close()}
+	 */
+	public ArchiveStats getStats() {
+		return stats;
+	}
+
+	private Batch<T> take(BlockingQueue<Batch<T>> queue) throws IOException {
+		try {
+			Batch<T> batch;
+			do {
+				checkFailure();
+				batch = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+			} while (batch == null);
+			return batch;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a free batch", e);
+		}
+	}
+
+	private void put(Batch<T> batch) throws IOException {
+		try {
+			do {
+				checkFailure();
+			} while (!fullBatches.offer(batch, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while handing a batch to the shards", e);
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		Throwable e = failure.get();
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		}
+		if (e != null) {
+			throw new IOException("Writing archive shard failed", e);
+		}
+	}
+
+	private static final class Batch<T> {
+
+		private final List<T> records;
+		private int size;
+
+		Batch() {
+			this.records = new ArrayList<T>(0);
+		}
+
+		@SuppressWarnings("unchecked")
+		Batch(int capacity, Schema schema) {
+			this.records = new ArrayList<T>(capacity);
+			for (int i = 0; i < capacity; i++) {
+				records.add((T) SpecificData.get().newRecord(null, schema));
+			}
+		}
+	}
+
+	private final class Shard implements Runnable {
+
+		private final String fileName;
+		private final CountingDatumWriter<T> datumWriter;
+		private final CountingOutputStream out;
+		private final DataFileWriter<T> writer;
+		private long records;
+		private boolean open;
+
+		Shard(ArchiveTarget target, ArchiveFormat format, String fileName) throws IOException {
+			this.fileName = fileName;
+			this.datumWriter = new CountingDatumWriter<T>(DatumCodecs.<T>writerFor(schema));
+			this.out = new CountingOutputStream(target.create(fileName));
+			this.writer = format.newWriter(datumWriter);
+			this.open = true;
+			writer.create(schema, out);
+		}
+
+		@Override
+		public void run() {
+			try {
+				Batch<T> batch;
+				while ((batch = fullBatches.take()) != endOfData) {
+					for (int i = 0; i < batch.size; i++) {
+						writer.append(batch.records.get(i));
+					}
+					records += batch.size;
+					batch.size = 0;
+					freeBatches.put(batch);
+				}
+				open = false;
+				writer.close();
+				stats.add(records, datumWriter.getByteCount(), out.getByteCount());
+			} catch (InterruptedException e) {
+				failure.compareAndSet(null, new IOException("Interrupted while writing " + fileName, e));
+			} catch (Throwable e) {
+				// errors too, a shard that stops without a failure leaves the producer waiting for it
+				failure.compareAndSet(null, e);
+			}
+		}
+
+		void closeQuietly() {
+			if (open) {
+				open = false;
+				try {
+					writer.close();
+				} catch (IOException e) {
+					System.err.println("Unable to close " + fileName + ": " + e);
+				}
+			}
+			// the writer leaves the stream open when flushing the last block fails
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+}
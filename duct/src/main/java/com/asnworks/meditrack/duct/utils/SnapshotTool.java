@@ -0,0 +1,86 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+import com.asnworks.meditrack.model.store.Snapshot;
+import com.asnworks.meditrack.model.store.SnapshotWriter;
+
+/**
+ * Writes the records of an archive to a local {@link Snapshot} file, which lookup services memory map at startup instead of reading the
+ * archive. The snapshot is written under a temporary name and renamed when it is complete, so a service never maps a partial snapshot.
+ *
+ * Command to run
+ *
+ * snapshot -fs hdfs://192.168.49.128:8020 -e patient /user/cloudera/meditrack/artifact-repository/ARCHIVE/<> patients.snapshot
+ */
+public class SnapshotTool extends Tool {
+
+	private static final double MB = 1024 * 1024;
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	@Argument(index = 0, required = true, usage = "Archive file, or directory containing archive files")
+	private String archivePath;
+
+	@Argument(index = 1, required = true, usage = "Local snapshot file to write")
+	private String snapshotPath;
+
+	@Option(required = false, name = "-fs", aliases = "--fileSystem", usage = "The name of the HDFS file system to use. If not specified, the local file system will be used.")
+	private String fileSystemName;
+
+	@Option(required = false, name = "-e", aliases = "--entity", usage = "Type of the records: patient, doctor or hospital. Defaults to patient.")
+	private String entity = "patient";
+
+	@Override
+	protected void run() throws Exception {
+		configureFileSystem(fileSystemName);
+		Schema schema = SpecificData.get().getSchema(RecordTypes.recordClass(entity));
+		File snapshotFile = new File(snapshotPath);
+		File temporaryFile = new File(snapshotFile.getPath() + TEMPORARY_SUFFIX);
+
+		long start = System.nanoTime();
+		int records = write(schema, temporaryFile);
+		if (!temporaryFile.renameTo(snapshotFile) && !(snapshotFile.delete() && temporaryFile.renameTo(snapshotFile))) {
+			temporaryFile.delete();
+			throw new IOException("Unable to rename snapshot; " + temporaryFile + " to " + snapshotFile);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("Wrote %d %ss from %s to %s, %.1f MB in %.1f s", records, entity, archivePath, snapshotFile,
+				snapshotFile.length() / MB, seconds));
+
+		start = System.nanoTime();
+		Snapshot<SpecificRecord> snapshot = Snapshot.open(snapshotFile, schema);
+		System.out.println(String.format("Opened snapshot of %d records in %.1f ms", snapshot.size(), (System.nanoTime() - start) / 1e6));
+	}
+
+	private int write(Schema schema, File file) throws IOException {
+		ArchiveReader<SpecificRecord> reader = new ArchiveReader<SpecificRecord>(hdfsTools, archivePath, schema);
+		SnapshotWriter<SpecificRecord> writer = null;
+		boolean written = false;
+		try {
+			writer = new SnapshotWriter<SpecificRecord>(file, schema);
+			while (reader.hasNext()) {
+				writer.append(reader.next());
+			}
+			writer.close();
+			written = true;
+			return writer.size();
+		} finally {
+			// any failure, not only I/O, such as a corrupt block of the archive or a null field
+			if (!written && writer != null) {
+				// closing removes the temporary slots file
+				IOUtils.closeQuietly(writer);
+				file.delete();
+			}
+			reader.close();
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * {@link ArchiveTarget} that publishes all files of a run at once. The files are written to <code>_temporary/&lt;runId&gt;</code> in the
+ * output path, which readers skip, and on commit a <code>_SUCCESS</code> marker is added and the directory is renamed to
+ * <code>&lt;runId&gt;</code> in the output path. Readers therefore see either none or all files of a run, and a run that crashed leaves
+ * nothing but its staging directory.
+ * <p>
+ * Retrying a run with the same id is idempotent: the staging directory of an earlier attempt is discarded when the first file is created,
+ * unless the files are {@link #resume(String, long) resumed}, and a run that was already committed, as shown by its marker, is not
+ * committed again.
+ */
+public class StagingArchiveTarget implements ArchiveTarget {
+
+	public static final String TEMPORARY_DIRECTORY = "_temporary";
+
+	public static final String SUCCESS_MARKER = "_SUCCESS";
+
+	private static final int MOVE_THREADS = 4;
+
+	private final HdfsTools hdfsTools;
+	private final Path temporaryPath;
+	private final Path stagingPath;
+	private final Path finalPath;
+	private boolean started;
+
+	/**
+	 * @param hdfsTools file system to write to
+	 * @param outputPath directory the run is published in
+	 * @param runId id of the run, the name of the directory the files are published in
+	 */
+	public StagingArchiveTarget(HdfsTools hdfsTools, String outputPath, String runId) {
+		this.hdfsTools = hdfsTools;
+		this.temporaryPath = new Path(outputPath, TEMPORARY_DIRECTORY);
+		this.stagingPath = new Path(temporaryPath, runId);
+		this.finalPath = new Path(outputPath, runId);
+	}
+
+	/**
+	 * @return {@code true} if the run was committed by an earlier attempt
+	 * @throws IOException when the file system cannot be accessed
+	 */
+	public boolean isCommitted() throws IOException {
+		return hdfsTools.exists(new Path(finalPath, SUCCESS_MARKER));
+	}
+
+	/**
+	 * @return the directory the files are published in
+	 */
+	public Path getFinalPath() {
+		return finalPath;
+	}
+
+	@Override
+	public OutputStream create(String fileName) throws IOException {
+		if (!started) {
+			// discard what an earlier, failed attempt of this run left behind
+			hdfsTools.deletePathRecursive(stagingPath);
+			hdfsTools.mkdirs(stagingPath);
+			started = true;
+		}
+		return hdfsTools.getOutputStream(new Path(stagingPath, fileName).toString());
+	}
+
+	@Override
+	public OutputStream resume(String fileName, long length) throws IOException {
+		started = true;
+		return hdfsTools.getOutputStreamTruncated(new Path(stagingPath, fileName).toString(), length);
+	}
+
+	@Override
+	public void commit() throws IOException {
+		if (isCommitted()) {
+			System.out.println("Run already committed to " + finalPath);
+			hdfsTools.deletePathRecursive(stagingPath);
+			return;
+		}
+		if (!started) {
+			hdfsTools.mkdirs(stagingPath);
+		}
+		hdfsTools.createFile(new Path(stagingPath, SUCCESS_MARKER));
+		if (hdfsTools.exists(finalPath)) {
+			// left by a promotion that moved files one by one and failed halfway, it has no marker
+			hdfsTools.deletePathRecursive(finalPath);
+		}
+		if (!hdfsTools.rename(stagingPath.toString(), finalPath.toString())) {
+			moveFiles();
+		}
+		deleteIfEmpty(temporaryPath);
+	}
+
+	@Override
+	public void abort() {
+		try {
+			hdfsTools.deletePathRecursive(stagingPath);
+		} catch (IOException e) {
+			System.err.println("Unable to delete staging directory " + stagingPath + ": " + e);
+		}
+	}
+
+	/**
+	 * Publishes the files one by one for file systems that can't rename directories. The marker is written last, so the run only counts as
+	 * committed when all files are in place.
+	 */
+	private void moveFiles() throws IOException {
+		hdfsTools.delete(new Path(stagingPath, SUCCESS_MARKER).toString());
+		FolderTransferResult result = hdfsTools.moveFolderContent(stagingPath, finalPath, MOVE_THREADS);
+		if (!result.isSuccess()) {
+			throw new IOException("Unable to move files " + result.getFailures().keySet() + "; " + stagingPath + " to " + finalPath);
+		}
+		hdfsTools.createFile(new Path(finalPath, SUCCESS_MARKER));
+	}
+
+	private void deleteIfEmpty(Path directory) {
+		try {
+			if (hdfsTools.listStatus(directory).isEmpty()) {
+				hdfsTools.delete(directory.toString());
+			}
+		} catch (IOException e) {
+			// another run is staging its files
+		}
+	}
+
+}
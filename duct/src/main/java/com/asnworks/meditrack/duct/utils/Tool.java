@@ -24,7 +24,6 @@ public abstract class Tool {
 	public void run(String[] args) throws Exception {
 		CmdLineParser parser = new CmdLineParser(this);
 		try {
-			System.out.println(args[0] + "      " + args[1]);
 			parser.parseArgument(args);
 		} catch (final CmdLineException e) {
 			parser.printUsage(System.err);
@@ -32,7 +31,13 @@ public abstract class Tool {
 			return;
 		}
 
-		run();
+		try {
+			run();
+		} finally {
+			if (hdfsTools != null) {
+				hdfsTools.close();
+			}
+		}
 	}
 
 	protected abstract void run() throws Exception;
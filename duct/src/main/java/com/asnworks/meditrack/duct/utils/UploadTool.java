@@ -0,0 +1,141 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Uploads the archive files in a local directory to HDFS with a number of parallel streams. Files are created with their final replication
+ * factor and verified against a checksum computed while reading them. The largest files are uploaded first so the streams finish at about
+ * the same time.
+ *
+ * Command to run
+ *
+ * upload -fs hdfs://192.168.49.128:8020 -t 8 -r 3 archives /user/cloudera/meditrack/artifact-repository/ARCHIVE/<>
+ */
+public class UploadTool extends Tool {
+
+	private static final double MB = 1024 * 1024;
+
+	@Argument(index = 0, required = true, usage = "Local directory containing the files to upload, or a single file")
+	private String inputPath;
+
+	@Argument(index = 1, required = true, usage = "HDFS directory to upload the files to")
+	private String outputPath;
+
+	@Option(required = false, name = "-fs", aliases = "--fileSystem", usage = "The name of the HDFS file system to use. If not specified, the local file system will be used.")
+	private String fileSystemName;
+
+	@Option(required = false, name = "-t", aliases = "--threads", usage = "Number of files uploaded in parallel. Defaults to 4.")
+	private int threads = 4;
+
+	@Option(required = false, name = "-r", aliases = "--replication", usage = "Replication factor of the uploaded files. Defaults to the replication of the file system.")
+	private short replication;
+
+	@Option(required = false, name = "-B", aliases = "--blockSize", usage = "Block size of the uploaded files in bytes. Defaults to the block size of the file system.")
+	private long blockSize;
+
+	@Option(required = false, name = "-g", aliases = "--glob", usage = "Glob the names of the files to upload must match. Defaults to all archive files.")
+	private String glob;
+
+	@Override
+	protected void run() throws Exception {
+		configureFileSystem(fileSystemName);
+		final Path outputDir = new Path(outputPath);
+		hdfsTools.mkdirs(outputDir);
+		final short fileReplication = replication > 0 ? replication : fs.getDefaultReplication(outputDir);
+		final long fileBlockSize = blockSize > 0 ? blockSize : fs.getDefaultBlockSize(outputDir);
+
+		List<File> files = localFiles();
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactoryBuilder().setNameFormat("upload-%d").build());
+		long bytes = 0;
+		int failures = 0;
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (final File file : files) {
+				results.add(executor.submit(new Callable<Boolean>() {
+
+					@Override
+					public Boolean call() throws IOException {
+						return hdfsTools.uploadToHdfs(file, new Path(outputDir, file.getName()), fileReplication, fileBlockSize);
+					}
+				}));
+			}
+
+			for (int i = 0; i < files.size(); i++) {
+				File file = files.get(i);
+				try {
+					boolean verified = results.get(i).get();
+					bytes += file.length();
+					System.out.println(String.format("%s: %.1f MB, checksum %s", file.getName(), file.length() / MB, verified ? "verified" : "not available"));
+				} catch (ExecutionException e) {
+					failures++;
+					System.err.println(String.format("Unable to upload %s: %s", file.getName(), e.getCause()));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("Uploaded %d files, %.1f MB in %.1f s, %.1f MB/s with replication %d", files.size() - failures, bytes / MB,
+				seconds, seconds > 0 ? bytes / MB / seconds : 0, fileReplication));
+		if (failures > 0) {
+			throw new IOException(String.format("Unable to upload %d of %d files; %s to %s", failures, files.size(), inputPath, outputPath));
+		}
+	}
+
+	private List<File> localFiles() throws IOException {
+		File input = new File(inputPath);
+		if (input.isFile()) {
+			return Collections.singletonList(input);
+		}
+		if (!input.isDirectory()) {
+			throw new IOException("Input directory doesn't exist: " + inputPath);
+		}
+
+		ListFilter.Builder filter = ListFilter.builder().type(HdfsTools.ListOptions.FILES);
+		if (glob != null) {
+			filter.glob(glob);
+		} else {
+			filter.regex(ArchiveReader.ARCHIVE_FILE_REGEX);
+		}
+		List<File> files = new ArrayList<File>();
+		HdfsTools localTools = HdfsTools.forLocalFileSystem();
+		try {
+			RemoteIterator<FileStatus> statuses = localTools.listStatusIterator(new Path(input.getAbsolutePath()), filter.build(), false);
+			while (statuses.hasNext()) {
+				files.add(new File(input, statuses.next().getPath().getName()));
+			}
+		} finally {
+			localTools.close();
+		}
+
+		Collections.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(b.length(), a.length());
+			}
+		});
+		return files;
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.asnworks.meditrack.duct.pipeline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class StagedPipelineTest extends TestCase {
+
+	private static Source<Integer> numbers(final int count) {
+		return new Source<Integer>() {
+
+			@Override
+			public void read(Emitter<Integer> output) throws IOException {
+				for (int i = 0; i < count; i++) {
+					output.emit(i);
+				}
+			}
+		};
+	}
+
+	public void testPassesAllItemsThroughAllStages() throws IOException {
+		final List<Integer> collected = Collections.synchronizedList(new ArrayList<Integer>());
+		List<StageMetrics> metrics = StagedPipeline.from("read", numbers(1000))
+				.then("double", 4, 2, new Stage<Integer, Integer>() {
+
+					@Override
+					public void process(Integer item, Emitter<Integer> output) throws IOException {
+						output.emit(item * 2);
+					}
+				}).then("collect", 1, 2, new Stage<Integer, Void>() {
+
+					@Override
+					public void process(Integer item, Emitter<Void> output) throws IOException {
+						collected.add(item);
+					}
+				}).build().run();
+
+		assertEquals(1000, collected.size());
+		Collections.sort(collected);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(2 * i, collected.get(i).intValue());
+		}
+		assertEquals(3, metrics.size());
+		assertEquals(1000, metrics.get(0).getItemsOut());
+		assertEquals(1000, metrics.get(1).getItemsIn());
+		assertEquals(1000, metrics.get(2).getItemsIn());
+		assertTrue(metrics.get(2).getAverageQueueDepth() <= 2 + 4);
+	}
+
+	public void testStopsAllStagesOnFailure() {
+		try {
+			StagedPipeline.from("read", numbers(1000000)).then("fail", 2, 1, new Stage<Integer, Integer>() {
+
+				@Override
+				public void process(Integer item, Emitter<Integer> output) throws IOException {
+					if (item == 500) {
+						throw new IOException("Bad item " + item);
+					}
+					output.emit(item);
+				}
+			}).build().run();
+			fail("Expected IOException from failing stage");
+		} catch (IOException e) {
+			assertEquals("Bad item 500", e.getMessage());
+		}
+	}
+
+	public void testStopsAllStagesOnError() {
+		try {
+			StagedPipeline.from("read", numbers(1000000)).then("fail", 2, 1, new Stage<Integer, Integer>() {
+
+				@Override
+				public void process(Integer item, Emitter<Integer> output) throws IOException {
+					if (item == 500) {
+						throw new AssertionError("Bad item " + item);
+					}
+					output.emit(item);
+				}
+			}).then("drop", 2, 1, new Stage<Integer, Void>() {
+
+				@Override
+				public void process(Integer item, Emitter<Void> output) {
+				}
+			}).build().run();
+			fail("Expected IOException from failing stage");
+		} catch (IOException e) {
+			assertEquals("Pipeline stage failed", e.getMessage());
+			assertEquals("Bad item 500", e.getCause().getMessage());
+		}
+	}
+
+}
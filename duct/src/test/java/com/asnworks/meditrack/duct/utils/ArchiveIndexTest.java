@@ -0,0 +1,100 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.file.DataFileWriter;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+public class ArchiveIndexTest extends TestCase {
+
+	private File directory;
+	private HdfsTools hdfsTools;
+
+	@Override
+	protected void setUp() throws IOException {
+		hdfsTools = HdfsTools.forLocalFileSystem();
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-index-" + System.nanoTime());
+		directory.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		hdfsTools.close();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	/**
+	 * @return the id of the patient at an index in the archive: negative ids, 0, which the map of the index keeps apart, and positive ids
+	 */
+	private static int id(int index) {
+		return index * 3 - 30;
+	}
+
+	// every fifth patient has empty strings, records of a single byte per field
+	private static Patient patient(int id) {
+		boolean empty = id % 5 == 0;
+		return new Patient(id, empty ? "" : "First" + id, empty ? "" : "Last" + id, Math.abs(id) % 70, "Male", empty ? "" : id
+				+ " Main Street", "9591543252", "user" + id + "@example.com");
+	}
+
+	private String writeArchive(String codec, int records) throws IOException {
+		File file = new File(directory, "patients-" + codec + ".avro");
+		CountingOutputStream out = new CountingOutputStream(new FileOutputStream(file));
+		// small blocks, so the archive has many of them
+		DataFileWriter<Patient> writer = new ArchiveFormat(codec, ArchiveFormat.DEFAULT_LEVEL, 2000).newWriter(DatumCodecs
+				.<Patient>writerFor(Patient.getClassSchema()));
+		writer.create(Patient.getClassSchema(), out);
+		ArchiveIndex.Builder builder = new ArchiveIndex.Builder(writer, out);
+		for (int i = 0; i < records; i++) {
+			writer.append(patient(id(i)));
+			builder.add(id(i));
+		}
+		writer.append(patient(0));
+		builder.add(0);
+		writer.close();
+		builder.build().write(new FileOutputStream(file.getPath() + ArchiveIndex.SUFFIX));
+		return file.getPath();
+	}
+
+	public void testLooksUpRecordsById() throws IOException {
+		for (String codec : new String[] { "null", "deflate", "snappy" }) {
+			String archive = writeArchive(codec, 5000);
+			IndexedArchiveReader<Patient> reader = new IndexedArchiveReader<Patient>(hdfsTools, archive, Patient.getClassSchema());
+			assertEquals(5000, reader.getIndex().size());
+			assertTrue(ArchiveIndex.blockOffset(reader.getIndex().positionOf(id(4999))) > 0);
+			Patient reuse = null;
+			for (int i = 4999; i >= 0; i -= 7) {
+				reuse = reader.get(id(i), reuse);
+				assertEquals(codec, patient(id(i)).toString(), reuse.toString());
+			}
+			assertEquals("", reader.get(-30, reuse).getFirstName().toString());
+			// the first record with the duplicated id 0, the eleventh of the first block
+			long position = reader.getIndex().positionOf(0);
+			assertEquals(ArchiveIndex.blockOffset(reader.getIndex().positionOf(id(0))), ArchiveIndex.blockOffset(position));
+			assertEquals(10, ArchiveIndex.ordinal(position));
+			assertNull(reader.get(1, reuse));
+			assertNull(reader.get(id(-1), reuse));
+			reader.close();
+		}
+	}
+
+	public void testRejectsIndexOfOtherArchive() throws IOException {
+		String archive = writeArchive("null", 10);
+		FileUtils.writeStringToFile(new File(archive), "changed", true);
+		try {
+			new IndexedArchiveReader<Patient>(hdfsTools, archive, Patient.getClassSchema());
+			fail("Expected IOException for an index of an archive that was changed");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("bytes"));
+		}
+	}
+
+}
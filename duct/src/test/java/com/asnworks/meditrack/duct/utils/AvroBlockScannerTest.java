@@ -0,0 +1,153 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.file.DataFileWriter;
+import org.apache.commons.io.FileUtils;
+
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+public class AvroBlockScannerTest extends TestCase {
+
+	private static final int RECORDS = 500;
+	private static final int SYNC_INTERVAL = 4000;
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-scanner-" + System.nanoTime());
+		directory.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	/**
+	 * @return the number of bytes of the encoded records
+	 */
+	private long writeArchive(File file, String codec) throws IOException {
+		CountingDatumWriter<Patient> datumWriter = new CountingDatumWriter<Patient>(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		DataFileWriter<Patient> writer = new ArchiveFormat(codec, ArchiveFormat.DEFAULT_LEVEL, SYNC_INTERVAL).newWriter(datumWriter);
+		writer.create(Patient.getClassSchema(), file);
+		for (int id = 0; id < RECORDS; id++) {
+			writer.append(new Patient(id, "First" + id, "Last" + id, 30, "Female", "Address " + id, "9591543252", "user" + id + "@example.com"));
+		}
+		writer.close();
+		return datumWriter.getByteCount();
+	}
+
+	private static ArchiveFileStats scan(File file, boolean uncompressed) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return AvroBlockScanner.scan(file.getName(), in, file.length(), uncompressed);
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testCountsBlocksOfEveryCodec() throws IOException {
+		for (String codec : new String[] { "null", "deflate", "snappy", "bzip2", "xz" }) {
+			File file = new File(directory, codec + ".avro");
+			long rawBytes = writeArchive(file, codec);
+
+			ArchiveFileStats headers = scan(file, false);
+			assertEquals(codec, headers.getCodec());
+			assertEquals(codec, RECORDS, headers.getRecords());
+			assertTrue(codec, headers.getBlocks() >= rawBytes / SYNC_INTERVAL);
+			assertEquals(codec, -1, headers.getUncompressedBytes());
+			assertEquals(codec, file.length(), headers.getFileBytes());
+			assertTrue(codec, headers.getCompressedBytes() < file.length());
+
+			ArchiveFileStats blocks = scan(file, true);
+			assertEquals(codec, headers.getBlocks(), blocks.getBlocks());
+			assertEquals(codec, headers.getCompressedBytes(), blocks.getCompressedBytes());
+			assertEquals(codec, rawBytes, blocks.getUncompressedBytes());
+		}
+	}
+
+	public void testRejectsCorruptFiles() throws IOException {
+		File file = new File(directory, "patients.avro");
+		writeArchive(file, "null");
+		RandomAccessFile corrupt = new RandomAccessFile(file, "rw");
+		try {
+			// the sync marker at the end of the last block
+			corrupt.seek(file.length() - 1);
+			int last = corrupt.read();
+			corrupt.seek(file.length() - 1);
+			corrupt.write(last ^ 0xff);
+		} finally {
+			corrupt.close();
+		}
+		try {
+			scan(file, false);
+			fail("Expected IOException for a corrupt sync marker");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid sync marker"));
+		}
+
+		RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+		try {
+			truncated.setLength(file.length() - 100);
+		} finally {
+			truncated.close();
+		}
+		try {
+			scan(file, false);
+			fail("Expected EOFException for a truncated archive");
+		} catch (EOFException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith(" in patients.avro"));
+		}
+
+		File text = new File(directory, "patients.csv");
+		FileUtils.writeStringToFile(text, "1,First,Last", "UTF-8");
+		try {
+			scan(text, false);
+			fail("Expected IOException for a file that is not an archive");
+		} catch (IOException e) {
+			assertEquals("Not an Avro data file: patients.csv", e.getMessage());
+		}
+	}
+
+	public void testReportsFilesAndTotal() throws Exception {
+		writeArchive(new File(directory, "patients-part-00000.avro"), "null");
+		writeArchive(new File(directory, "patients-part-00001.avro"), "deflate");
+		writeArchive(new File(directory, "_fallout.avro"), "null");
+
+		String stats = runTool(new ArchiveStatsTool(false), "-t", "2", directory.getAbsolutePath());
+		assertTrue(stats, stats.contains("patients-part-00000.avro: records=500 "));
+		assertTrue(stats, stats.contains("patients-part-00001.avro: records=500 "));
+		assertFalse(stats, stats.contains("_fallout"));
+		assertTrue(stats, stats.contains("total of 2 files: records=1000 "));
+		assertTrue(stats, stats.contains("codec=mixed"));
+
+		String count = runTool(new ArchiveStatsTool(true), "-u", directory.getAbsolutePath());
+		assertFalse(count, count.contains("part-00000"));
+		assertTrue(count, count.matches("(?s).*total of 2 files: records=1000 blocks=\\d+ compressed=\\d+ uncompressed=\\d+ .*"));
+	}
+
+	private static String runTool(Tool tool, String... args) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(output, true, "UTF-8"));
+		try {
+			tool.run(args);
+		} finally {
+			System.setOut(out);
+		}
+		return output.toString("UTF-8");
+	}
+
+}
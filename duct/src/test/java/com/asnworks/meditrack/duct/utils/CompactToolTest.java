@@ -0,0 +1,123 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.commons.io.FileUtils;
+
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+public class CompactToolTest extends TestCase {
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-compact-" + System.nanoTime());
+		writeArchive(new File(directory, "patients-00000.avro"), 0, 3, CodecFactory.nullCodec());
+		writeArchive(new File(directory, "patients-00001.avro"), 3, 2, CodecFactory.deflateCodec(6));
+		writeArchive(new File(directory, "state=NY/patients-00000.avro"), 5, 1, CodecFactory.nullCodec());
+		writeArchive(new File(directory, "state=NY/patients-00001.avro"), 6, 1, CodecFactory.nullCodec());
+		writeArchive(new File(directory, "state=NY/patients-00002.avro"), 7, 1000, CodecFactory.nullCodec());
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void testMergesSmallFilesPerDirectory() throws Exception {
+		new CompactTool().run(new String[] { "-m", "4096", directory.getAbsolutePath() });
+
+		String[] merged = visibleFiles(directory);
+		assertEquals(2, merged.length);
+		assertTrue(merged[0].matches("compacted-\\d{14}-\\d{5}\\.avro"));
+		assertEquals("state=NY", merged[1]);
+		String[] partition = visibleFiles(new File(directory, "state=NY"));
+		assertEquals(2, partition.length);
+		assertTrue(partition[0].startsWith("compacted-"));
+		assertEquals("patients-00002.avro", partition[1]);
+
+		HdfsTools hdfsTools = HdfsTools.forLocalFileSystem();
+		try {
+			PatientArchiveReader reader = new PatientArchiveReader(hdfsTools, new File(directory, merged[0]).getAbsolutePath());
+			for (int id = 0; id < 5; id++) {
+				assertEquals(id, reader.next().getId().intValue());
+			}
+			assertFalse(reader.hasNext());
+			reader.close();
+		} finally {
+			hdfsTools.close();
+		}
+	}
+
+	public void testReadersSeeReplacedOrMergedFilesOnly() throws Exception {
+		File temporary = new File(directory, ".compacted-20160315000000-00000.avro.tmp");
+		File merged = new File(directory, "compacted-20160315000000-00000.avro");
+		writeArchive(temporary, 0, 5, CodecFactory.nullCodec());
+		HdfsTools hdfsTools = HdfsTools.forLocalFileSystem();
+		try {
+			new CompactionJournal(temporary.getAbsolutePath(), merged.getAbsolutePath(), Arrays.asList(
+					new File(directory, "patients-00000.avro").getAbsolutePath(), new File(directory, "patients-00001.avro").getAbsolutePath()))
+					.write(hdfsTools);
+			assertEquals(1007, readIds(hdfsTools).cardinality());
+
+			// the merged file is in, the replaced files are left by a failure
+			assertTrue(temporary.renameTo(merged));
+			assertEquals(1007, readIds(hdfsTools).cardinality());
+
+			new CompactTool().run(new String[] { "-m", "4096", directory.getAbsolutePath() });
+			assertFalse(new File(directory, "patients-00000.avro").exists());
+			assertTrue(CompactionJournal.readAll(hdfsTools, directory.getAbsolutePath()).isEmpty());
+			assertEquals(1007, readIds(hdfsTools).cardinality());
+		} finally {
+			hdfsTools.close();
+		}
+	}
+
+	private BitSet readIds(HdfsTools hdfsTools) throws IOException {
+		BitSet ids = new BitSet();
+		PatientArchiveReader reader = new PatientArchiveReader(hdfsTools, directory.getAbsolutePath());
+		try {
+			while (reader.hasNext()) {
+				int id = reader.next().getId();
+				assertFalse("Read twice: " + id, ids.get(id));
+				ids.set(id);
+			}
+		} finally {
+			reader.close();
+		}
+		return ids;
+	}
+
+	private static String[] visibleFiles(File directory) {
+		String[] names = directory.list(new FilenameFilter() {
+
+			@Override
+			public boolean accept(File dir, String name) {
+				return !name.startsWith(".");
+			}
+		});
+		Arrays.sort(names);
+		return names;
+	}
+
+	private static void writeArchive(File file, int firstId, int count, CodecFactory codec) throws IOException {
+		file.getParentFile().mkdirs();
+		DataFileWriter<Patient> writer = new DataFileWriter<Patient>(DatumCodecs.<Patient>writerFor(Patient.getClassSchema())).setCodec(codec);
+		writer.create(Patient.getClassSchema(), file);
+		for (int id = firstId; id < firstId + count; id++) {
+			writer.append(new Patient(id, "First" + id, "Last" + id, 30, "Female", "Address", "123", "user" + id + "@example.com"));
+		}
+		writer.close();
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+public class CountingDatumWriterTest extends TestCase {
+
+	public void testCountsEncodedPatients() throws IOException {
+		CountingDatumWriter<Patient> counting = new CountingDatumWriter<Patient>(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		DataFileWriter<Patient> writer = ArchiveFormat.defaultFormat().newWriter(counting);
+		writer.create(Patient.getClassSchema(), new NullOutputStream());
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(expected, null);
+		for (int id : new int[] { 0, 1, -1, 63, 64, 8191, 8192, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+			Patient patient = new Patient(id, "Zoë", "A", id & 127, "Female", "Street " + id, "9591543252", "a@example.com");
+			writer.append(patient);
+			DatumCodecs.<Patient>writerFor(Patient.getClassSchema()).write(patient, encoder);
+		}
+		writer.close();
+
+		assertEquals(expected.size(), counting.getByteCount());
+	}
+
+	public void testCountsAllTypes() throws IOException {
+		Schema schema = SchemaBuilder.record("All").fields().requiredLong("l").requiredBoolean("b").requiredFloat("f").requiredDouble("d")
+				.requiredBytes("bytes").optionalString("s").name("e").type().enumeration("E").symbols("X", "Y").noDefault().name("a").type()
+				.array().items().longType().noDefault().name("m").type().map().values().intType().noDefault().endRecord();
+		GenericRecord record = new GenericData.Record(schema);
+		record.put("l", Long.MIN_VALUE);
+		record.put("b", true);
+		record.put("f", 1.5f);
+		record.put("d", 2.5);
+		record.put("bytes", ByteBuffer.wrap(new byte[200]));
+		record.put("s", "välue");
+		record.put("e", new GenericData.EnumSymbol(schema.getField("e").schema(), "Y"));
+		record.put("a", Arrays.asList(1L, 1L << 40));
+		record.put("m", Collections.singletonMap("key", 300));
+
+		CountingDatumWriter<GenericRecord> counting = new CountingDatumWriter<GenericRecord>(new GenericDatumWriter<GenericRecord>(schema));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+		counting.write(record, encoder);
+		record.put("s", null);
+		counting.write(record, encoder);
+		encoder.flush();
+
+		assertEquals(out.size(), counting.getByteCount());
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import com.asnworks.meditrack.model.Patient;
+
+public class CsvRecordReaderTest extends TestCase {
+
+	private static final String INTAKE = "id,firstName,lastName,age,gender,address,phoneNumber,email\n"
+			+ "111,AAA,A,21,Male,\"Street 1, City\",9591543252,email@email.com\n"
+			+ "222,BBB,B, 22 ,Female,Address1,9591543253,email1@email.com\n";
+
+	public void testReadsRowsIntoReusedRecord() throws IOException {
+		CsvRecordReader<Patient> reader = new CsvRecordReader<Patient>(new StringReader(INTAKE), Patient.getClassSchema(), true);
+		Patient patient = new Patient();
+
+		assertTrue(reader.next(patient));
+		assertEquals(111, patient.getId().intValue());
+		assertEquals("Street 1, City", patient.getAddress().toString());
+		assertEquals(2, reader.getRow());
+
+		assertTrue(reader.next(patient));
+		assertEquals(222, patient.getId().intValue());
+		assertEquals(22, patient.getAge().intValue());
+		assertEquals("email1@email.com", patient.getEmail().toString());
+
+		assertFalse(reader.next(patient));
+		reader.close();
+	}
+
+	public void testTracksOffsetToResumeReading() throws IOException {
+		byte[] intake = (INTAKE.replace("Street 1, City", "Stra\u00dfe 1\r\nCity") + "333,CCC,C,23,Male,Addr,1,a@b.c").getBytes("UTF-8");
+		CsvRecordReader<Patient> reader = new CsvRecordReader<Patient>(new ByteArrayInputStream(intake), 0, 0, Patient.getClassSchema(), true);
+		Patient patient = new Patient();
+
+		assertTrue(reader.next(patient));
+		assertEquals("Stra\u00dfe 1\nCity", patient.getAddress().toString());
+		long offset = reader.getOffset();
+		reader.close();
+
+		reader = new CsvRecordReader<Patient>(new ByteArrayInputStream(intake, (int) offset, intake.length), offset, 2, Patient.getClassSchema(),
+				false);
+		assertTrue(reader.next(patient));
+		assertEquals(222, patient.getId().intValue());
+		assertEquals(3, reader.getRow());
+		assertTrue(reader.next(patient));
+		assertEquals(333, patient.getId().intValue());
+		assertEquals(intake.length, reader.getOffset());
+		assertFalse(reader.next(patient));
+		reader.close();
+	}
+
+	public void testRejectsInvalidNumber() throws IOException {
+		CsvRecordReader<Patient> reader = new CsvRecordReader<Patient>(new StringReader("x1,A,B,21,Male,Addr,1,a@b.c\n"),
+				Patient.getClassSchema(), false);
+		try {
+			reader.next(new Patient());
+			fail("Expected IOException for invalid id");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("Row 1"));
+		} finally {
+			reader.close();
+		}
+	}
+
+}
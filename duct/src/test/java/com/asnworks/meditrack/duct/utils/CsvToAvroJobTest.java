@@ -0,0 +1,89 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+import com.asnworks.meditrack.model.Patient;
+
+public class CsvToAvroJobTest extends TestCase {
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-convert-" + System.nanoTime());
+		FileUtils.writeStringToFile(new File(directory, "intake/2015/01.csv"), "id,firstName,lastName,age,gender,address,phoneNumber,email\n"
+				+ "111,AAA,A,21,Male,\"Street 1\nCity\",9591543252,email@email.com\n" + "x222,BBB,B,22,Female,Address1,9591543253,b@b.c\n",
+				"UTF-8");
+		FileUtils.writeStringToFile(new File(directory, "intake/2015/02.csv"), "id,firstName,lastName,age,gender,address,phoneNumber,email\n"
+				+ "333,CCC,C,23,Male,Address3,9591543254,c@c.c\n", "UTF-8");
+		FileUtils.writeStringToFile(new File(directory, "intake/2015/_ignored.csv"), "not,an,intake,file\n", "UTF-8");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void testConvertsIntakeFilesWithLocalJobRunner() throws Exception {
+		File output = new File(directory, "archive");
+		new CsvToAvroJob().run(new String[] { "-i", new File(directory, "intake").getAbsolutePath(), "-H", "-x", "-c", "deflate",
+				output.getAbsolutePath() });
+
+		assertTrue(new File(output, "_SUCCESS").exists());
+		HdfsTools hdfsTools = HdfsTools.forLocalFileSystem();
+		try {
+			PatientArchiveReader reader = new PatientArchiveReader(hdfsTools, output.getAbsolutePath());
+			int total = 0;
+			while (reader.hasNext()) {
+				Patient patient = reader.next();
+				if (patient.getId() == 111) {
+					assertEquals("Street 1\nCity", patient.getAddress().toString());
+				} else {
+					assertEquals(333, patient.getId().intValue());
+				}
+				total++;
+			}
+			reader.close();
+			assertEquals(2, total);
+			assertEquals(2, reader.getFiles().size());
+		} finally {
+			hdfsTools.close();
+		}
+	}
+
+	public void testSplitsIntakeFilesOnlyWhenAsked() throws Exception {
+		StringBuilder csv = new StringBuilder();
+		for (int id = 0; id < 100; id++) {
+			csv.append(id).append(",AAA,A,21,Male,Address,9591543252,a@b.c\n");
+		}
+		File intake = new File(directory, "large.csv");
+		FileUtils.writeStringToFile(intake, csv.toString(), "UTF-8");
+
+		File whole = new File(directory, "whole");
+		new CsvToAvroJob().run(new String[] { "-i", intake.getAbsolutePath(), "-S", "1000", whole.getAbsolutePath() });
+		File split = new File(directory, "split");
+		new CsvToAvroJob().run(new String[] { "-i", intake.getAbsolutePath(), "-p", "-S", "1000", split.getAbsolutePath() });
+
+		HdfsTools hdfsTools = HdfsTools.forLocalFileSystem();
+		try {
+			assertEquals(1, hdfsTools.listFiles(whole.getAbsolutePath(), "part-.*\\.avro").size());
+			assertTrue(hdfsTools.listFiles(split.getAbsolutePath(), "part-.*\\.avro").size() > 1);
+			PatientArchiveReader reader = new PatientArchiveReader(hdfsTools, split.getAbsolutePath());
+			int total = 0;
+			while (reader.hasNext()) {
+				reader.next();
+				total++;
+			}
+			reader.close();
+			assertEquals(100, total);
+		} finally {
+			hdfsTools.close();
+		}
+	}
+
+}
@@ -0,0 +1,178 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.MD5MD5CRC32GzipFileChecksum;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.hadoop.util.DataChecksum;
+
+public class FileChecksumCalculatorTest extends TestCase {
+
+	private static final int BYTES_PER_CRC = 512;
+	private static final int BLOCK_SIZE = 1024;
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-checksum-" + System.nanoTime());
+		directory.mkdirs();
+		ReportingFileSystem.reported = null;
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private static byte[] content(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 251);
+		}
+		return data;
+	}
+
+	private static FileChecksum calculate(DataChecksum.Type type, byte[] data, int... splits) {
+		FileChecksumCalculator calculator = new FileChecksumCalculator(type, BYTES_PER_CRC, BLOCK_SIZE);
+		int start = 0;
+		for (int split : splits) {
+			calculator.update(data, start, split - start);
+			start = split;
+		}
+		calculator.update(data, start, data.length - start);
+		return calculator.getChecksum();
+	}
+
+	public void testMatchesKnownChecksums() {
+		// known values for this content with 512 bytes per CRC and blocks of 1024 bytes
+		byte[] data = content(2500);
+		assertEquals("MD5-of-2MD5-of-512CRC32:e39414a4a28c53dffb1db55fd71804b4", calculate(DataChecksum.Type.CRC32, data).toString());
+		assertEquals("MD5-of-2MD5-of-512CRC32C:7cc5e9b243f64bf35def98ae0bda8eee", calculate(DataChecksum.Type.CRC32C, data).toString());
+		assertNull(calculate(DataChecksum.Type.NULL, data));
+	}
+
+	public void testMatchesBlockwiseComputation() throws NoSuchAlgorithmException {
+		for (int length : new int[] { 1, 511, 512, 1023, 1024, 1025, 2500, 4096 }) {
+			byte[] data = content(length);
+			FileChecksum expected = expected(data);
+			assertEquals("length " + length, expected, calculate(DataChecksum.Type.CRC32, data));
+			// the result does not depend on how the data is passed in
+			assertEquals("length " + length, expected, calculate(DataChecksum.Type.CRC32, data, length / 3, length / 2, length - 1));
+		}
+	}
+
+	/**
+	 * Computes the checksum the way a data node does: the MD5 of the big-endian CRC32 of each chunk of a block, and the MD5 of the block
+	 * digests for the file.
+	 */
+	private static FileChecksum expected(byte[] data) throws NoSuchAlgorithmException {
+		MessageDigest fileDigest = MessageDigest.getInstance("MD5");
+		int blocks = 0;
+		for (int block = 0; block < data.length; block += BLOCK_SIZE, blocks++) {
+			MessageDigest blockDigest = MessageDigest.getInstance("MD5");
+			for (int chunk = block; chunk < Math.min(block + BLOCK_SIZE, data.length); chunk += BYTES_PER_CRC) {
+				CRC32 crc = new CRC32();
+				crc.update(data, chunk, Math.min(BYTES_PER_CRC, data.length - chunk));
+				blockDigest.update(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+			}
+			fileDigest.update(blockDigest.digest());
+		}
+		return new MD5MD5CRC32GzipFileChecksum(BYTES_PER_CRC, blocks > 1 ? BLOCK_SIZE / BYTES_PER_CRC : 0, new MD5Hash(fileDigest.digest()));
+	}
+
+	public void testVerifiesUploadAgainstReportedChecksum() throws IOException {
+		File src = new File(directory, "patients-part-00000.avro");
+		FileUtils.writeByteArrayToFile(src, content(2500));
+		Configuration conf = new Configuration();
+		conf.set("fs.defaultFS", "checksum:///");
+		conf.setClass("fs.checksum.impl", ReportingFileSystem.class, RawLocalFileSystem.class);
+		conf.setBoolean("fs.checksum.impl.disable.cache", true);
+		HdfsTools hdfsTools = HdfsTools.forConfiguration(conf);
+		Path dst = new Path(new File(directory, "uploaded.avro").getAbsolutePath());
+		try {
+			// no checksum from the file system, nothing to verify
+			assertFalse(hdfsTools.uploadToHdfs(src, dst, (short) 1, BLOCK_SIZE));
+			assertTrue(FileUtils.contentEquals(src, new File(dst.toUri().getPath())));
+
+			ReportingFileSystem.reported = new FileChecksumCalculator(conf, BLOCK_SIZE);
+			ReportingFileSystem.reported.update(content(2500), 0, 2500);
+			assertTrue(hdfsTools.uploadToHdfs(src, dst, (short) 1, BLOCK_SIZE));
+
+			ReportingFileSystem.reported = new FileChecksumCalculator(conf, BLOCK_SIZE);
+			ReportingFileSystem.reported.update(content(2501), 0, 2501);
+			try {
+				hdfsTools.uploadToHdfs(src, dst, (short) 1, BLOCK_SIZE);
+				fail("Expected IOException for a checksum mismatch");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains(" does not match local checksum "));
+			}
+			assertFalse("Destination of a failed upload is not removed", new File(dst.toUri().getPath()).exists());
+
+			// HDFS reports a checksum of empty files that can't be computed from the content
+			File empty = new File(directory, "empty.avro");
+			empty.createNewFile();
+			assertFalse(hdfsTools.uploadToHdfs(empty, dst, (short) 1, BLOCK_SIZE));
+		} finally {
+			hdfsTools.close();
+		}
+	}
+
+	public void testReportsUnverifiedUploads() throws Exception {
+		File input = new File(directory, "archives");
+		FileUtils.writeByteArrayToFile(new File(input, "patients-part-00000.avro"), content(2500));
+		FileUtils.writeByteArrayToFile(new File(input, "patients-part-00001.avro"), content(100));
+		FileUtils.writeStringToFile(new File(input, "notes.txt"), "not an archive", "UTF-8");
+		File output = new File(directory, "uploaded");
+
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(captured, true, "UTF-8"));
+		try {
+			new UploadTool().run(new String[] { "-t", "2", input.getAbsolutePath(), output.getAbsolutePath() });
+		} finally {
+			System.setOut(out);
+		}
+		String report = captured.toString("UTF-8");
+
+		assertTrue(report, report.contains("patients-part-00000.avro: 0.0 MB, checksum not available"));
+		assertTrue(report, report.indexOf("part-00000") < report.indexOf("part-00001"));
+		assertTrue(report, report.contains("Uploaded 2 files"));
+		assertFalse(new File(output, "notes.txt").exists());
+		assertTrue(FileUtils.contentEquals(new File(input, "patients-part-00001.avro"), new File(output, "patients-part-00001.avro")));
+	}
+
+	/**
+	 * Local file system that reports the checksum set by the test, like HDFS reports the checksum computed by the data nodes.
+	 */
+	public static class ReportingFileSystem extends RawLocalFileSystem {
+
+		private static volatile FileChecksumCalculator reported;
+
+		@Override
+		public URI getUri() {
+			return URI.create("checksum:///");
+		}
+
+		@Override
+		public FileChecksum getFileChecksum(Path f) {
+			return reported != null ? reported.getChecksum() : null;
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.hadoop.fs.RemoteIterator;
+
+public class HdfsToolsTest extends TestCase {
+
+	private File directory;
+	private HdfsTools hdfsTools;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-hdfstools-" + System.nanoTime());
+		hdfsTools = HdfsTools.forLocalFileSystem();
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		hdfsTools.close();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void testCopyFolderContentInParallel() throws IOException {
+		File src = createTree("src", 25);
+
+		FolderTransferResult result = hdfsTools.copyFolderContent(path(src), path(new File(directory, "dst")), 4);
+
+		assertTrue(result.getFailures().toString(), result.isSuccess());
+		assertEquals(50, result.getFiles());
+		assertEquals("line 7", FileUtils.readFileToString(new File(directory, "dst/year=2016/part-00007.csv"), "UTF-8"));
+		assertTrue(new File(src, "year=2017/part-00024.csv").exists());
+	}
+
+	public void testMoveFolderContentInParallel() throws IOException {
+		File src = createTree("src", 10);
+		File dst = new File(directory, "dst");
+		FileUtils.writeStringToFile(new File(dst, "year=2017/part-00003.csv"), "old", "UTF-8");
+
+		FolderTransferResult result = hdfsTools.moveFolderContent(path(src), path(dst), 3);
+
+		assertTrue(result.getFailures().toString(), result.isSuccess());
+		assertEquals(20, result.getFiles());
+		assertEquals("line 3", FileUtils.readFileToString(new File(dst, "year=2017/part-00003.csv"), "UTF-8"));
+		assertFalse(src.exists());
+	}
+
+	public void testMoveFolderContentKeepsSourceOnUncheckedFailure() throws IOException {
+		File src = createTree("src", 3);
+		File dst = new File(directory, "dst");
+		Configuration conf = new Configuration();
+		conf.set("fs.defaultFS", "failing:///");
+		conf.setClass("fs.failing.impl", FailingRenameFileSystem.class, RawLocalFileSystem.class);
+		conf.setBoolean("fs.failing.impl.disable.cache", true);
+		HdfsTools failing = HdfsTools.forConfiguration(conf);
+		try {
+			FolderTransferResult result = failing.moveFolderContent(path(src), path(dst), 2);
+
+			assertFalse(result.isSuccess());
+			assertEquals(5, result.getFiles());
+			Throwable failure = result.getFailures().get(new Path("failing:" + new File(src, "year=2017/part-00001.csv").getAbsolutePath()));
+			assertTrue(String.valueOf(result.getFailures()), failure instanceof IllegalStateException);
+			assertTrue(new File(src, "year=2017/part-00001.csv").exists());
+			assertFalse(new File(dst, "year=2017/part-00001.csv").exists());
+		} finally {
+			failing.close();
+		}
+	}
+
+	public void testCopyFolderContentReportsFailures() throws IOException {
+		File src = createTree("src", 2);
+		File dst = new File(directory, "dst");
+		FileUtils.writeStringToFile(new File(dst, "year=2016"), "a file where a directory is expected", "UTF-8");
+
+		FolderTransferResult result = hdfsTools.copyFolderContent(path(src), path(dst), 2);
+
+		assertFalse(result.isSuccess());
+		assertEquals(1, result.getFailures().size());
+		assertEquals(2, result.getFiles());
+	}
+
+	public void testReadLinesInBatches() throws IOException {
+		File file = new File(directory, "intake.csv");
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 25; i++) {
+			content.append("line ").append(i).append('\n');
+		}
+		FileUtils.writeStringToFile(file, content.toString(), "UTF-8");
+		final List<Integer> batchSizes = new ArrayList<Integer>();
+
+		long lines = hdfsTools.readLines(file.getAbsolutePath(), 16, 10, new HdfsTools.LineBatchHandler() {
+
+			@Override
+			public void handle(List<String> batch) {
+				batchSizes.add(batch.size());
+			}
+		});
+
+		assertEquals(25, lines);
+		assertEquals(Arrays.asList(10, 10, 5), batchSizes);
+		List<String> all = hdfsTools.readLines(file.getAbsolutePath());
+		assertEquals(25, all.size());
+		assertEquals("line 24", all.get(24));
+	}
+
+	public void testListStatusIteratorWalksTreeWithFilter() throws IOException {
+		File root = createTree("archive", 3);
+		FileUtils.writeStringToFile(new File(root, "year=2017/part-00010.csv"), "a longer line 10", "UTF-8");
+		FileUtils.writeStringToFile(new File(root, "year=2017/_SUCCESS"), "", "UTF-8");
+
+		List<String> names = new ArrayList<String>();
+		ListFilter filter = ListFilter.builder().type(HdfsTools.ListOptions.FILES).glob("part-*.csv").maxSize(6).build();
+		RemoteIterator<FileStatus> files = hdfsTools.listStatusIterator(path(root), filter, true);
+		while (files.hasNext()) {
+			FileStatus status = files.next();
+			names.add(status.getPath().getParent().getName() + "/" + status.getPath().getName());
+		}
+
+		Collections.sort(names);
+		assertEquals(6, names.size());
+		assertEquals("year=2016/part-00000.csv", names.get(0));
+		assertEquals("year=2017/part-00002.csv", names.get(5));
+		assertFalse(hdfsTools.listStatusIterator(path(new File(directory, "missing")), ListFilter.all(), true).hasNext());
+	}
+
+	public void testPublishFileReplacesPublishedFile() throws IOException {
+		File published = new File(directory, "patients.avro");
+		File temporary = new File(directory, ".patients.avro.tmp");
+		FileUtils.writeStringToFile(published, "old", "UTF-8");
+		FileUtils.writeStringToFile(temporary, "new", "UTF-8");
+
+		hdfsTools.publishFile(temporary.getPath(), published.getPath());
+
+		assertEquals("new", FileUtils.readFileToString(published, "UTF-8"));
+		assertFalse(temporary.exists());
+		assertFalse(new File(directory, ".patients.avro.replaced").exists());
+	}
+
+	public void testPublishFileCompletesInterruptedPublish() throws IOException {
+		// a publish that crashed after the old file was renamed aside
+		File published = new File(directory, "patients.avro");
+		File aside = new File(directory, ".patients.avro.replaced");
+		File temporary = new File(directory, ".patients.avro.tmp");
+		FileUtils.writeStringToFile(aside, "old", "UTF-8");
+		FileUtils.writeStringToFile(temporary, "new", "UTF-8");
+
+		hdfsTools.publishFile(temporary.getPath(), published.getPath());
+
+		assertEquals("new", FileUtils.readFileToString(published, "UTF-8"));
+		assertFalse(aside.exists());
+	}
+
+	public void testPublishFileKeepsPublishedFileWhenRenameFails() throws IOException {
+		File published = new File(directory, "patients.avro");
+		FileUtils.writeStringToFile(published, "old", "UTF-8");
+
+		try {
+			hdfsTools.publishFile(new File(directory, ".missing.tmp").getPath(), published.getPath());
+			fail("Expected IOException for a missing temporary file");
+		} catch (IOException e) {
+			assertEquals("old", FileUtils.readFileToString(published, "UTF-8"));
+		}
+	}
+
+	private File createTree(String name, int filesPerYear) throws IOException {
+		File root = new File(directory, name);
+		for (String year : new String[] { "year=2016", "year=2017" }) {
+			for (int i = 0; i < filesPerYear; i++) {
+				FileUtils.writeStringToFile(new File(root, String.format("%s/part-%05d.csv", year, i)), "line " + i, "UTF-8");
+			}
+		}
+		return root;
+	}
+
+	private static Path path(File file) {
+		return new Path(file.getAbsolutePath());
+	}
+
+	public static class FailingRenameFileSystem extends RawLocalFileSystem {
+
+		@Override
+		public URI getUri() {
+			return URI.create("failing:///");
+		}
+
+		@Override
+		public boolean rename(Path src, Path dst) throws IOException {
+			if (src.toString().endsWith("year=2017/part-00001.csv")) {
+				throw new IllegalStateException("Lease expired");
+			}
+			return super.rename(src, dst);
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+
+public class IngestWatermarkTest extends TestCase {
+
+	private static final long SECOND = 1458000000000L;
+
+	private static FileStatus file(String path, long modificationTime) {
+		return new FileStatus(100, false, 1, 1024, modificationTime, new Path(path));
+	}
+
+	public void testOrdersByModificationTimeThenPath() {
+		FileStatus a = file("hdfs://nn/intake/a.csv", SECOND + 1);
+		FileStatus b = file("hdfs://nn/intake/b.csv", SECOND);
+		FileStatus c = file("hdfs://nn/intake/2016/c.csv", SECOND + 1);
+		List<FileStatus> files = new ArrayList<FileStatus>(Arrays.asList(a, b, c));
+		Collections.sort(files, IngestWatermark.ORDER);
+		assertEquals(Arrays.asList(b, c, a), files);
+	}
+
+	public void testPicksFilesAfterTheWatermark() {
+		IngestWatermark watermark = IngestWatermark.of(file("hdfs://nn/intake/b.csv", SECOND + 500));
+		assertFalse(watermark.isBefore(file("hdfs://nn/intake/b.csv", SECOND + 500)));
+		// same millisecond, ordered by path
+		assertTrue(watermark.isBefore(file("hdfs://nn/intake/c.csv", SECOND + 500)));
+		assertFalse(watermark.isBefore(file("hdfs://nn/intake/a.csv", SECOND + 500)));
+		// same second, other millisecond
+		assertTrue(watermark.isBefore(file("hdfs://nn/intake/a.csv", SECOND + 501)));
+		assertFalse(watermark.isBefore(file("hdfs://nn/intake/c.csv", SECOND + 499)));
+	}
+
+	public void testWritesAndReadsWatermark() throws IOException {
+		File directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-watermark-" + System.nanoTime());
+		HdfsTools hdfsTools = HdfsTools.forLocalFileSystem();
+		try {
+			String path = new File(directory, "_intake.watermark").getAbsolutePath();
+			assertNull(IngestWatermark.read(hdfsTools, path));
+
+			new IngestWatermark(SECOND + 500, "hdfs://nn/intake/b.csv").write(hdfsTools, path);
+			new IngestWatermark(SECOND + 700, "hdfs://nn/intake/c.csv").write(hdfsTools, path);
+			IngestWatermark watermark = IngestWatermark.read(hdfsTools, path);
+			assertEquals(SECOND + 700, watermark.getModificationTime());
+			assertEquals("hdfs://nn/intake/c.csv", watermark.getPath());
+
+			Properties invalid = new Properties();
+			invalid.setProperty("modificationTime", "yesterday");
+			invalid.setProperty("path", "hdfs://nn/intake/a.csv");
+			hdfsTools.writeProperties(path, invalid, null);
+			try {
+				IngestWatermark.read(hdfsTools, path);
+				fail("Expected IOException for an invalid watermark");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid watermark "));
+			}
+		} finally {
+			hdfsTools.close();
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.commons.io.FileUtils;
+
+import com.asnworks.meditrack.duct.pipeline.Emitter;
+import com.asnworks.meditrack.duct.utils.IntakeStages.ArchiveAppender;
+import com.asnworks.meditrack.duct.utils.IntakeStages.Batch;
+import com.asnworks.meditrack.duct.utils.IntakeStages.BatchWindow;
+import com.asnworks.meditrack.duct.utils.IntakeStages.EncodedBatch;
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+public class IntakeStagesTest extends TestCase {
+
+	private File directory;
+	private HdfsTools hdfsTools;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-stages-" + System.nanoTime());
+		directory.mkdirs();
+		hdfsTools = HdfsTools.forLocalFileSystem();
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		hdfsTools.close();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void testFindsOpenQuotedValues() {
+		assertFalse(IntakeStages.endsInQuotes("1,a,b", false));
+		assertTrue(IntakeStages.endsInQuotes("1,\"a", false));
+		assertFalse(IntakeStages.endsInQuotes("1,\"a,b\",c", false));
+		assertFalse(IntakeStages.endsInQuotes("line\",x", true));
+		assertTrue(IntakeStages.endsInQuotes("still open", true));
+		// a doubled quote and an escaped quote don't end the value
+		assertTrue(IntakeStages.endsInQuotes("1,\"say \"\"hi", false));
+		assertTrue(IntakeStages.endsInQuotes("1,\"say \\\"hi", false));
+		assertFalse(IntakeStages.endsInQuotes("1,\"say \\\"hi\\\"\"", false));
+		assertTrue(IntakeStages.endsInQuotes("1,\"C:\\\\", false));
+	}
+
+	public void testBatchesRowsSpanningLines() throws IOException {
+		File a = new File(directory, "a.csv");
+		FileUtils.writeStringToFile(a, "id,address\n1,\"multi\nline\",x\n2,b\n3,\"c \"\"quoted\"\"\nstill\",y\n4,d\n5,e\n", "UTF-8");
+		File b = new File(directory, "b.csv");
+		FileUtils.writeStringToFile(b, "id,address\n6,f\n7,\"open\nto the end\n", "UTF-8");
+
+		List<Batch<String>> batches = new ArrayList<Batch<String>>();
+		IntakeStages.read(hdfsTools, Arrays.asList(a.getAbsolutePath(), b.getAbsolutePath()), true, 2, new BatchWindow(10)).read(
+				collect(batches));
+
+		assertEquals(4, batches.size());
+		assertEquals(Arrays.asList("1,\"multi\nline\",x", "2,b"), batches.get(0).getRows());
+		assertEquals(Arrays.asList("3,\"c \"\"quoted\"\"\nstill\",y", "4,d"), batches.get(1).getRows());
+		assertEquals(Arrays.asList("5,e"), batches.get(2).getRows());
+		// an unterminated quoted value is passed on as a row, it fails in the parse stage
+		assertEquals(Arrays.asList("6,f", "7,\"open\nto the end"), batches.get(3).getRows());
+		for (int i = 0; i < batches.size(); i++) {
+			assertEquals(i, batches.get(i).getSequence());
+		}
+	}
+
+	public void testSourceWaitsForTheWindow() throws Exception {
+		File a = new File(directory, "a.csv");
+		FileUtils.writeStringToFile(a, "1,a\n2,b\n3,c\n", "UTF-8");
+		final BatchWindow window = new BatchWindow(1);
+		final List<Batch<String>> batches = Collections.synchronizedList(new ArrayList<Batch<String>>());
+		final List<String> inputs = Arrays.asList(a.getAbsolutePath());
+		Thread source = new Thread() {
+
+			@Override
+			public void run() {
+				try {
+					IntakeStages.read(hdfsTools, inputs, false, 1, window).read(collect(batches));
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		source.start();
+		try {
+			source.join(200);
+			assertEquals(1, batches.size());
+			window.leave();
+			source.join(200);
+			assertEquals(2, batches.size());
+			window.leave();
+			source.join(5000);
+			assertFalse(source.isAlive());
+			assertEquals(3, batches.size());
+		} finally {
+			source.interrupt();
+		}
+	}
+
+	public void testAppendsBatchesInIntakeOrder() throws IOException {
+		List<EncodedBatch> batches = encode(4, 3);
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		DataFileWriter<Patient> writer = ArchiveFormat.defaultFormat().newWriter(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		writer.create(Patient.getClassSchema(), archive);
+		BatchWindow window = new BatchWindow(4);
+		for (int i = 0; i < 4; i++) {
+			window.enter();
+		}
+		ArchiveAppender appender = new ArchiveAppender(writer, window);
+		List<Void> appended = new ArrayList<Void>();
+		for (int sequence : new int[] { 2, 0, 3, 1 }) {
+			appender.process(batches.get(sequence), collect(appended));
+			if (sequence == 0) {
+				assertEquals(1, appended.size());
+			}
+		}
+		appender.finish();
+		writer.close();
+
+		assertEquals(4, appended.size());
+		assertEquals(12, appender.getRecords());
+		List<Integer> ids = new ArrayList<Integer>();
+		DataFileStream<Patient> stream = new DataFileStream<Patient>(new ByteArrayInputStream(archive.toByteArray()),
+				new SpecificDatumReader<Patient>(Patient.class));
+		for (Patient patient : stream) {
+			ids.add(patient.getId());
+		}
+		stream.close();
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), ids);
+		// every appended batch freed its slot
+		for (int i = 0; i < 4; i++) {
+			window.enter();
+		}
+	}
+
+	public void testReportsMissingBatch() throws IOException {
+		DataFileWriter<Patient> writer = ArchiveFormat.defaultFormat().newWriter(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		writer.create(Patient.getClassSchema(), new ByteArrayOutputStream());
+		ArchiveAppender appender = new ArchiveAppender(writer, new BatchWindow(2));
+		appender.process(encode(2, 1).get(1), collect(new ArrayList<Void>()));
+		try {
+			appender.finish();
+			fail("Expected IOException for a missing batch");
+		} catch (IOException e) {
+			assertEquals("1 batches were not appended, batch 0 is missing", e.getMessage());
+		}
+		writer.close();
+	}
+
+	private static List<EncodedBatch> encode(int count, int batchSize) throws IOException {
+		List<EncodedBatch> encoded = new ArrayList<EncodedBatch>();
+		for (int sequence = 0; sequence < count; sequence++) {
+			List<Patient> rows = new ArrayList<Patient>();
+			for (int id = sequence * batchSize; id < (sequence + 1) * batchSize; id++) {
+				rows.add(new Patient(id, "First" + id, "Last", 30, "Female", "Street " + id, "9591543252", "user" + id + "@example.com"));
+			}
+			IntakeStages.<Patient>encode(Patient.getClassSchema()).process(
+					new Batch<Patient>(sequence, "intake.csv", sequence * batchSize + 1, null, rows), collect(encoded));
+		}
+		return encoded;
+	}
+
+	private static <T> Emitter<T> collect(final List<T> items) {
+		return new Emitter<T>() {
+
+			@Override
+			public void emit(T item) {
+				items.add(item);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,269 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.Path;
+
+import com.asnworks.meditrack.model.Fallout;
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.RejectReason;
+
+public class MediTrackPipelineTest extends TestCase {
+
+	private File directory;
+	private File output;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-pipeline-" + System.nanoTime());
+		directory.mkdirs();
+		output = new File(directory, "out");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private static void writeIntake(File file, int from, int to, int badRow) throws IOException {
+		StringBuilder csv = new StringBuilder();
+		for (int id = from; id < to; id++) {
+			csv.append(id == badRow ? "x" : Integer.toString(id)).append(",First").append(id).append(",Last").append(id).append(',')
+					.append(id % 90).append(",Female,Street ").append(id).append(",9591543252,user").append(id).append("@example.com\n");
+		}
+		FileUtils.writeStringToFile(file, csv.toString(), "UTF-8");
+	}
+
+	public void testResumesInterruptedRunFromCheckpoint() throws Exception {
+		File intake = new File(directory, "intake.csv");
+		writeIntake(intake, 0, 5000, 1200);
+		// deflate level 0 stores the blocks, the default level would compress them
+		String[] args = { "-d", "-k", "500", "-c", "deflate", "-l", "0", "-s", "4000", "-i", intake.getAbsolutePath(), output.getAbsolutePath() };
+		try {
+			runTool(new MediTrackPipeline(), args);
+			fail("Expected IOException for the malformed row");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Row 1201 "));
+		}
+		// the run stopped after the checkpoint at 1000 patients, with more patients in the archive
+		assertTrue(new File(output, "_patients.avro.checkpoint").exists());
+		File partial = new File(output, ".patients.avro.tmp");
+		assertTrue(partial.exists());
+		assertFalse(new File(output, "patients.avro").exists());
+		long partialLength = partial.length();
+
+		writeIntake(intake, 0, 5000, -1);
+		String resumed = runTool(new MediTrackPipeline(), args);
+		assertTrue(resumed, resumed.contains("Resuming from checkpoint"));
+		assertTrue(resumed, resumed.contains("Wrote 4000 patients"));
+		assertFalse(new File(output, "_patients.avro.checkpoint").exists());
+		assertFalse(partial.exists());
+
+		File archive = new File(output, "patients.avro");
+		assertTrue(archive.length() > partialLength);
+		assertEquals(ids(0, 5000), readIds(archive));
+
+		InputStream in = new FileInputStream(archive);
+		try {
+			ArchiveFileStats stats = AvroBlockScanner.scan(archive.getName(), in, archive.length(), true);
+			assertEquals(5000, stats.getRecords());
+			assertTrue("Resumed blocks ignore the codec level", stats.getCompressedBytes() > stats.getUncompressedBytes());
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testKeepsFirstOfDuplicateIdsInIntakeOrder() throws Exception {
+		File intake = new File(directory, "intake.csv");
+		writeIntake(intake, 0, 3000, -1);
+		// every 10th id again at the end, and id 7 in the first rows, in batches that other threads may validate first
+		StringBuilder duplicates = new StringBuilder(FileUtils.readFileToString(intake, "UTF-8"));
+		for (int id = 0; id < 3000; id += 10) {
+			duplicates.append(id).append(",Again,Again,40,Male,Other street,9591543252,again@example.com\n");
+		}
+		duplicates.insert(0, "7,Early,Early,40,Male,Other street,9591543252,early@example.com\n");
+		FileUtils.writeStringToFile(intake, duplicates.toString(), "UTF-8");
+
+		List<Integer> expected = new ArrayList<Integer>();
+		expected.add(7);
+		for (int id = 0; id < 3000; id++) {
+			if (id != 7) {
+				expected.add(id);
+			}
+		}
+		for (int run = 0; run < 5; run++) {
+			FileUtils.deleteDirectory(output);
+			String report = runTool(new MediTrackPipeline(), "-d", "-F", "-T", "4", "-b", "7", "-i", intake.getAbsolutePath(), output
+					.getAbsolutePath());
+			assertTrue(report, report.contains("Wrote 3000 patients"));
+
+			List<String> firstNames = new ArrayList<String>();
+			DataFileReader<Patient> reader = new DataFileReader<Patient>(new File(output, "patients.avro"), new SpecificDatumReader<Patient>(
+					Patient.class));
+			try {
+				List<Integer> ids = new ArrayList<Integer>();
+				for (Patient patient : reader) {
+					ids.add(patient.getId());
+					firstNames.add(patient.getFirstName().toString());
+				}
+				assertEquals(expected, ids);
+			} finally {
+				reader.close();
+			}
+			assertEquals("Early", firstNames.get(0));
+			assertFalse(firstNames.contains("Again"));
+
+			List<Long> rows = new ArrayList<Long>();
+			DataFileReader<Fallout> fallout = new DataFileReader<Fallout>(new File(output, "_fallout/patients.avro"),
+					new SpecificDatumReader<Fallout>(Fallout.class));
+			try {
+				for (Fallout reject : fallout) {
+					assertEquals(RejectReason.DUPLICATE_ID, reject.getReason());
+					rows.add(reject.getRow());
+				}
+			} finally {
+				fallout.close();
+			}
+			List<Long> expectedRows = new ArrayList<Long>();
+			// the id 7 of the intake, after the early one
+			expectedRows.add(9L);
+			for (long row = 3002; row <= 3301; row++) {
+				expectedRows.add(row);
+			}
+			assertEquals(expectedRows, rows);
+		}
+	}
+
+	public void testIngestsNewFilesOfTheSameSecondInAnotherRun() throws Exception {
+		File intake = new File(directory, "intake");
+		long second = 1458000000000L;
+		writeIntake(intake, "a.csv", 0, 10, -1, second + 100);
+		writeIntake(intake, "2016/b.csv", 10, 20, -1, second + 200);
+		String[] args = { "-I", "-i", intake.getAbsolutePath(), output.getAbsolutePath() };
+		String first = runTool(new MediTrackPipeline(), args);
+		assertTrue(first, first.contains("Ingesting 2 new intake files since the first run"));
+		assertEquals(1, runs().size());
+
+		// a new file in the same second that fails is picked up again by the next run
+		File c = writeIntake(intake, "c.csv", 20, 30, 25, second + 300);
+		try {
+			runTool(new MediTrackPipeline(), args);
+			fail("Expected IOException for the malformed row");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Row 6 "));
+		}
+		assertEquals(1, runs().size());
+		assertTrue(watermark().getPath().endsWith("/2016/b.csv"));
+
+		writeIntake(intake, "c.csv", 20, 30, -1, second + 300);
+		String next = runTool(new MediTrackPipeline(), args);
+		assertTrue(next, next.contains("Ingesting 1 new intake files since "));
+		List<File> runs = runs();
+		assertEquals(2, runs.size());
+		assertEquals(ids(0, 20), readIds(new File(runs.get(0), "patients.avro")));
+		assertEquals(ids(20, 30), readIds(new File(runs.get(1), "patients.avro")));
+		assertEquals(second + 300, watermark().getModificationTime());
+		assertEquals(c.getAbsolutePath(), new Path(watermark().getPath()).toUri().getPath());
+
+		String third = runTool(new MediTrackPipeline(), args);
+		assertTrue(third, third.contains("No new intake files"));
+		assertEquals(2, runs().size());
+	}
+
+	public void testRefusesCommittedExplicitRunIdForNewFiles() throws Exception {
+		File intake = new File(directory, "intake");
+		writeIntake(intake, "a.csv", 0, 10, -1, 1458000000100L);
+		String[] args = { "-I", "-r", "daily", "-i", intake.getAbsolutePath(), output.getAbsolutePath() };
+		runTool(new MediTrackPipeline(), args);
+
+		writeIntake(intake, "b.csv", 10, 20, -1, 1458000000200L);
+		try {
+			runTool(new MediTrackPipeline(), args);
+			fail("Expected IOException for a committed run id");
+		} catch (IOException e) {
+			assertEquals("Run daily is already committed, ingest the 1 new intake files with another run id", e.getMessage());
+		}
+		assertTrue(watermark().getPath().endsWith("/a.csv"));
+	}
+
+	private static File writeIntake(File directory, String name, int from, int to, int badRow, long modificationTime) throws IOException {
+		File file = new File(directory, name);
+		writeIntake(file, from, to, badRow);
+		assertTrue(file.setLastModified(modificationTime));
+		return file;
+	}
+
+	/**
+	 * @return the run directories in the output, oldest first
+	 */
+	private List<File> runs() {
+		List<File> runs = new ArrayList<File>();
+		File[] files = output.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().startsWith("intake-")) {
+					assertTrue(new File(file, StagingArchiveTarget.SUCCESS_MARKER).exists());
+					runs.add(file);
+				}
+			}
+		}
+		Collections.sort(runs);
+		return runs;
+	}
+
+	private IngestWatermark watermark() throws IOException {
+		HdfsTools hdfsTools = HdfsTools.forLocalFileSystem();
+		try {
+			return IngestWatermark.read(hdfsTools, new File(output, "_intake.watermark").getAbsolutePath());
+		} finally {
+			hdfsTools.close();
+		}
+	}
+
+	private static List<Integer> ids(int from, int to) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int id = from; id < to; id++) {
+			ids.add(id);
+		}
+		return ids;
+	}
+
+	private static List<Integer> readIds(File archive) throws IOException {
+		List<Integer> ids = new ArrayList<Integer>();
+		DataFileReader<Patient> reader = new DataFileReader<Patient>(archive, new SpecificDatumReader<Patient>(Patient.class));
+		try {
+			for (Patient patient : reader) {
+				ids.add(patient.getId());
+			}
+		} finally {
+			reader.close();
+		}
+		return ids;
+	}
+
+	static String runTool(Tool tool, String... args) throws Exception {
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(captured, true, "UTF-8"));
+		try {
+			tool.run(args);
+		} finally {
+			System.setOut(out);
+		}
+		return captured.toString("UTF-8");
+	}
+
+}
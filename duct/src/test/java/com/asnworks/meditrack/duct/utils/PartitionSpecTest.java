@@ -0,0 +1,39 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import com.asnworks.meditrack.model.Patient;
+
+public class PartitionSpecTest extends TestCase {
+
+	public void testPartitionsByColumnFieldAndIntakeDate() throws IOException {
+		CsvRecordReader<Patient> reader = new CsvRecordReader<Patient>(new StringReader(
+				"111,AAA,A,21,Male,Addr,1,a@b.c,NY\n222,BBB,B,22,Female,Addr,2,b@b.c,a/b=c\n333,CCC,C,23,Male,Addr,3,c@b.c\n"),
+				Patient.getClassSchema(), false);
+		PartitionSpec spec = PartitionSpec.parse("state=9,gender=gender,date=@intakeDate", Patient.getClassSchema());
+		Patient patient = new Patient();
+		long intakeTime = 1456790400000L; // 2016-03-01T00:00:00Z
+
+		assertTrue(reader.next(patient));
+		assertEquals("state=NY/gender=Male/date=2016-03-01", spec.partitionOf(patient, reader, intakeTime));
+		assertTrue(reader.next(patient));
+		assertEquals("state=a%2Fb%3Dc/gender=Female/date=2016-03-01", spec.partitionOf(patient, reader, intakeTime));
+		assertTrue(reader.next(patient));
+		assertEquals("state=__HIVE_DEFAULT_PARTITION__/gender=Male/date=2016-03-02",
+				spec.partitionOf(patient, reader, intakeTime + 24 * 3600 * 1000L));
+		reader.close();
+	}
+
+	public void testRejectsUnknownSource() {
+		try {
+			PartitionSpec.parse("state=province", Patient.getClassSchema());
+			fail("Expected IllegalArgumentException for unknown field");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("province"));
+		}
+	}
+
+}
@@ -0,0 +1,204 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.commons.io.FileUtils;
+
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+public class PartitionedArchiveWriterTest extends TestCase {
+
+	private static Patient patient(int id) {
+		return new Patient(id, "First" + id, "Last", id % 90, "Male", "Street " + id, "9591543252", "user" + id + "@example.com");
+	}
+
+	public void testReopensEvictedPartitionInAnotherFile() throws IOException {
+		MemoryTarget target = new MemoryTarget(Long.MAX_VALUE);
+		PartitionedArchiveWriter<Patient> writer = new PartitionedArchiveWriter<Patient>(target, ArchiveFormat.defaultFormat(),
+				Patient.getClassSchema(), "patients", 2);
+		writer.append("state=NY", patient(0));
+		writer.append("state=CA", patient(1));
+		writer.append("state=NY", patient(2));
+		// NY was used last, CA is evicted
+		writer.append("state=TX", patient(3));
+		assertTrue(target.files.get("state=CA/patients-00000.avro").closed);
+		assertFalse(target.files.get("state=NY/patients-00000.avro").closed);
+		// NY is evicted, CA gets a second file
+		writer.append("state=CA", patient(4));
+		assertTrue(target.files.get("state=NY/patients-00000.avro").closed);
+		assertFalse(target.files.get("state=TX/patients-00000.avro").closed);
+		writer.append("state=TX", patient(5));
+		writer.close();
+
+		assertEquals("[state=CA/patients-00000.avro, state=CA/patients-00001.avro, state=NY/patients-00000.avro, state=TX/patients-00000.avro]",
+				target.files.keySet().toString());
+		for (Map.Entry<String, ClosingStream> file : target.files.entrySet()) {
+			assertTrue(file.getKey() + " is not closed", file.getValue().closed);
+		}
+		assertEquals(Arrays.asList(1), read(target.files.get("state=CA/patients-00000.avro")));
+		assertEquals(Arrays.asList(4), read(target.files.get("state=CA/patients-00001.avro")));
+		assertEquals(Arrays.asList(0, 2), read(target.files.get("state=NY/patients-00000.avro")));
+		assertEquals(Arrays.asList(3, 5), read(target.files.get("state=TX/patients-00000.avro")));
+		assertEquals(3, writer.getPartitions());
+		assertEquals(4, writer.getFiles());
+		assertEquals(6, writer.getStats().getRecords());
+	}
+
+	public void testClosesEveryFileWhenOneFails() throws IOException {
+		// enough for the headers, the blocks written on close fail
+		MemoryTarget target = new MemoryTarget(1000);
+		PartitionedArchiveWriter<Patient> writer = new PartitionedArchiveWriter<Patient>(target, ArchiveFormat.defaultFormat(),
+				Patient.getClassSchema(), "patients", 10);
+		for (int id = 0; id < 300; id++) {
+			writer.append(id % 3 == 0 ? "state=NY" : "state=CA", patient(id));
+		}
+		try {
+			writer.close();
+			fail("Expected IOException from a failing partition file");
+		} catch (IOException e) {
+			assertEquals("Disk full", e.getMessage());
+		}
+
+		assertEquals(2, target.files.size());
+		for (Map.Entry<String, ClosingStream> file : target.files.entrySet()) {
+			assertTrue(file.getKey() + " is not closed", file.getValue().closed);
+		}
+	}
+
+	public void testReaderOnlyDescendsIntoPartitionDirectories() throws IOException {
+		File directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-partitions-" + System.nanoTime());
+		HdfsTools hdfsTools = HdfsTools.forLocalFileSystem();
+		try {
+			writeArchive(new File(directory, "patients-00000.avro"), 0);
+			writeArchive(new File(directory, "state=NY/patients-00000.avro"), 1);
+			writeArchive(new File(directory, "state=NY/date=2016-03-01/patients-00000.avro"), 2);
+			writeArchive(new File(directory, "state=a%2Fb%3Dc/patients-00000.avro"), 3);
+			writeArchive(new File(directory, "backup/patients-00000.avro"), 4);
+			writeArchive(new File(directory, "intake-20160315000000100-1a2b3c4d/patients.avro"), 5);
+			writeArchive(new File(directory, "_temporary/state=NY/patients-00000.avro"), 6);
+			writeArchive(new File(directory, "=NY/patients-00000.avro"), 7);
+
+			List<Integer> ids = new ArrayList<Integer>();
+			PatientArchiveReader reader = new PatientArchiveReader(hdfsTools, directory.getAbsolutePath());
+			try {
+				while (reader.hasNext()) {
+					ids.add(reader.next().getId());
+				}
+			} finally {
+				reader.close();
+			}
+			assertEquals(Arrays.asList(0, 1, 2, 3), ids);
+		} finally {
+			hdfsTools.close();
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+	private static void writeArchive(File file, int id) throws IOException {
+		file.getParentFile().mkdirs();
+		DataFileWriter<Patient> writer = new DataFileWriter<Patient>(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		writer.create(Patient.getClassSchema(), file);
+		writer.append(patient(id));
+		writer.close();
+	}
+
+	private static List<Integer> read(ClosingStream file) throws IOException {
+		List<Integer> ids = new ArrayList<Integer>();
+		DataFileStream<Patient> stream = new DataFileStream<Patient>(new ByteArrayInputStream(file.toByteArray()),
+				new SpecificDatumReader<Patient>(Patient.class));
+		for (Patient patient : stream) {
+			ids.add(patient.getId());
+		}
+		stream.close();
+		return ids;
+	}
+
+	private static final class ClosingStream extends ByteArrayOutputStream {
+
+		private final long capacity;
+		private boolean closed;
+
+		ClosingStream(long capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			if (size() + len > capacity) {
+				throw new IllegalStateException("Disk full");
+			}
+			super.write(b, off, len);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	private static final class MemoryTarget implements ArchiveTarget {
+
+		private final long capacity;
+		private final Map<String, ClosingStream> files = new TreeMap<String, ClosingStream>();
+
+		MemoryTarget(long capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public OutputStream create(String fileName) {
+			final ClosingStream stream = new ClosingStream(capacity);
+			files.put(fileName, stream);
+			return new OutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					write(new byte[] { (byte) b }, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					try {
+						stream.write(b, off, len);
+					} catch (IllegalStateException e) {
+						throw new IOException(e.getMessage());
+					}
+				}
+
+				@Override
+				public void close() {
+					stream.close();
+				}
+			};
+		}
+
+		@Override
+		public OutputStream resume(String fileName, long length) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void commit() {
+		}
+
+		@Override
+		public void abort() {
+		}
+	}
+
+}
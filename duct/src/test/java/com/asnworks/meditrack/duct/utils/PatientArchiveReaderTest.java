@@ -0,0 +1,75 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.commons.io.FileUtils;
+
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.io.DatumCodecs;
+
+public class PatientArchiveReaderTest extends TestCase {
+
+	private File directory;
+	private HdfsTools hdfsTools;
+
+	@Override
+	protected void setUp() throws IOException {
+		hdfsTools = HdfsTools.forLocalFileSystem();
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-reader-" + System.nanoTime());
+		writeArchive(new File(directory, "patients-part-00000.avro"), 0, 3);
+		writeArchive(new File(directory, "patients-part-00001.avro"), 3, 2);
+		writeArchive(new File(directory, "_ignored.avro"), 100, 1);
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		hdfsTools.close();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void testReadsAllPartFilesWithReusedInstance() throws IOException {
+		PatientArchiveReader reader = new PatientArchiveReader(hdfsTools, directory.getAbsolutePath());
+		Patient first = reader.next();
+		int count = 1;
+		while (reader.hasNext()) {
+			Patient patient = reader.next();
+			assertSame(first, patient);
+			assertEquals(count, patient.getId().intValue());
+			count++;
+		}
+		reader.close();
+
+		assertEquals(5, count);
+		assertEquals(2, reader.getFiles().size());
+	}
+
+	public void testReadsProjection() throws IOException {
+		Schema projection = SchemaBuilder.record("Patient").namespace("com.asnworks.meditrack.model").fields().requiredInt("id")
+				.requiredString("email").endRecord();
+		PatientArchiveReader reader = new PatientArchiveReader(hdfsTools,
+				new File(directory, "patients-part-00001.avro").getAbsolutePath(), projection);
+
+		Patient patient = reader.next();
+		assertEquals(3, patient.getId().intValue());
+		assertEquals("user3@example.com", patient.getEmail().toString());
+		assertNull(patient.getFirstName());
+		reader.close();
+	}
+
+	private static void writeArchive(File file, int firstId, int count) throws IOException {
+		file.getParentFile().mkdirs();
+		DataFileWriter<Patient> writer = new DataFileWriter<Patient>(DatumCodecs.<Patient>writerFor(Patient.getClassSchema()));
+		writer.create(Patient.getClassSchema(), file);
+		for (int id = firstId; id < firstId + count; id++) {
+			writer.append(new Patient(id, "First" + id, "Last" + id, 30, "Female", "Address", "123", "user" + id + "@example.com"));
+		}
+		writer.close();
+	}
+
+}
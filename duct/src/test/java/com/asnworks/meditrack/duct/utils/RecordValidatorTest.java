@@ -0,0 +1,70 @@
+package com.asnworks.meditrack.duct.utils;
+
+import junit.framework.TestCase;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Fallout;
+import com.asnworks.meditrack.model.Patient;
+import com.asnworks.meditrack.model.RejectReason;
+
+public class RecordValidatorTest extends TestCase {
+
+	private static Patient patient(int id, int age, String phoneNumber, String email) {
+		return new Patient(id, "AAA", "A", age, "Male", "Street 1, City", phoneNumber, email);
+	}
+
+	public void testRejectsPatientsWithReason() {
+		RecordValidator validator = new RecordValidator(Patient.getClassSchema(), new IdSet());
+
+		assertNull(validator.validate(patient(1, 21, "9591543252", "a@example.com")));
+		assertNull(validator.validate(patient(2, 0, "+1 (555) 123-4567", "a.b@mail.example.co.uk")));
+		assertReject(RejectReason.MISSING_FIELD, "lastName", validator.validate(new Patient(3, "AAA", " ", 21, "Male", "Addr",
+				"9591543252", "a@example.com")));
+		assertReject(RejectReason.INVALID_AGE, "age", validator.validate(patient(4, 151, "9591543252", "a@example.com")));
+		assertReject(RejectReason.INVALID_PHONE, "phoneNumber", validator.validate(patient(5, 21, "12345", "a@example.com")));
+		assertReject(RejectReason.INVALID_EMAIL, "email", validator.validate(patient(6, 21, "9591543252", "a@example")));
+		assertReject(RejectReason.INVALID_ID, "id", validator.validate(patient(-7, 21, "9591543252", "a@example.com")));
+		// ids are claimed separately, in intake order
+		assertNull(validator.validate(patient(1, 21, "9591543252", "a@example.com")));
+	}
+
+	public void testClaimsIdsOnce() {
+		RecordValidator validator = new RecordValidator(Patient.getClassSchema(), new IdSet());
+
+		assertNull(validator.claimId(1));
+		assertNull(validator.claimId(2));
+		Fallout reject = validator.claimId(1);
+		assertReject(RejectReason.DUPLICATE_ID, "id", reject);
+		assertEquals("id 1 was already ingested", reject.getMessage().toString());
+	}
+
+	public void testValidatesDoctorsByTheirFields() {
+		RecordValidator validator = new RecordValidator(Doctor.getClassSchema(), new IdSet());
+
+		assertNull(validator.validate(new Doctor(1, "MRN-1", "AAA", "A", "Female", "Cardiology", "Addr", "9591543252", "a@example.com")));
+		Fallout reject = validator.validate(new Doctor(2, "", "AAA", "A", "Female", "Cardiology", "Addr", "9591543252", "a@example.com"));
+		assertReject(RejectReason.MISSING_FIELD, "medicalRegistrationNumber", reject);
+		assertEquals("Doctor", reject.getEntity().toString());
+		assertReject(RejectReason.INVALID_REGISTRATION_NUMBER, "medicalRegistrationNumber", validator.validate(new Doctor(3, "MRN 3", "AAA",
+				"A", "Female", "Cardiology", "Addr", "9591543252", "a@example.com")));
+	}
+
+	public void testIdSetAcrossPages() {
+		IdSet ids = new IdSet();
+		assertTrue(ids.add(0));
+		assertTrue(ids.add(Integer.MAX_VALUE));
+		assertTrue(ids.add(1 << 20));
+		assertFalse(ids.add(0));
+		assertFalse(ids.add(Integer.MAX_VALUE));
+		assertTrue(ids.contains(1 << 20));
+		assertFalse(ids.contains((1 << 20) + 1));
+		assertFalse(ids.contains(-1));
+	}
+
+	private static void assertReject(RejectReason reason, String field, Fallout reject) {
+		assertNotNull("Expected " + reason, reject);
+		assertEquals(reason, reject.getReason());
+		assertEquals(field, reject.getField().toString());
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.specific.SpecificDatumReader;
+
+import com.asnworks.meditrack.model.Patient;
+
+public class ShardedArchiveWriterTest extends TestCase {
+
+	private static final int BATCH_SIZE = 10;
+
+	private static void fill(Patient patient, int id) {
+		patient.setId(id);
+		patient.setFirstName("First" + id);
+		patient.setLastName("Last");
+		patient.setAge(id % 90);
+		patient.setGender("Male");
+		patient.setAddress("Street " + id);
+		patient.setPhoneNumber("9591543252");
+		patient.setEmail("user" + id + "@example.com");
+	}
+
+	public void testWritesWholeBatchesToEveryShard() throws IOException {
+		MemoryTarget target = new MemoryTarget(Long.MAX_VALUE);
+		ShardedArchiveWriter<Patient> writer = new ShardedArchiveWriter<Patient>(target, ArchiveFormat.defaultFormat(),
+				Patient.getClassSchema(), "patients", 3, BATCH_SIZE, 2);
+		for (int id = 0; id < 1005; id++) {
+			fill(writer.claim(), id);
+			writer.publish();
+		}
+		writer.close();
+
+		assertEquals("[patients-part-00000.avro, patients-part-00001.avro, patients-part-00002.avro]", target.files.keySet().toString());
+		BitSet seen = new BitSet();
+		for (Map.Entry<String, ClosingStream> file : target.files.entrySet()) {
+			assertTrue(file.getKey() + " is not closed", file.getValue().closed);
+			List<Integer> ids = read(file.getValue());
+			// a shard takes whole batches, in the order they were filled
+			for (int i = 0; i < ids.size(); i++) {
+				int id = ids.get(i);
+				assertFalse("Written twice: " + id, seen.get(id));
+				seen.set(id);
+				if (id % BATCH_SIZE != 0) {
+					assertEquals(file.getKey(), id - 1, ids.get(i - 1).intValue());
+				}
+			}
+		}
+		assertEquals(1005, seen.cardinality());
+		assertEquals(1005, writer.getStats().getRecords());
+	}
+
+	public void testClosesEveryShardWhenOneFails() throws IOException {
+		// enough for the headers, the first block fails
+		MemoryTarget target = new MemoryTarget(2000);
+		ShardedArchiveWriter<Patient> writer = new ShardedArchiveWriter<Patient>(target, new ArchiveFormat("null", ArchiveFormat.DEFAULT_LEVEL,
+				1000), Patient.getClassSchema(), "patients", 2, BATCH_SIZE, 2);
+		try {
+			try {
+				for (int id = 0; id < 100000; id++) {
+					fill(writer.claim(), id);
+					writer.publish();
+				}
+			} finally {
+				writer.close();
+			}
+			fail("Expected IOException from a failing shard");
+		} catch (IOException e) {
+			assertEquals("Disk full", e.getMessage());
+		}
+
+		assertEquals(2, target.files.size());
+		for (Map.Entry<String, ClosingStream> file : target.files.entrySet()) {
+			assertTrue(file.getKey() + " is not closed", file.getValue().closed);
+		}
+	}
+
+	private static List<Integer> read(ClosingStream file) throws IOException {
+		List<Integer> ids = new ArrayList<Integer>();
+		DataFileStream<Patient> stream = new DataFileStream<Patient>(new ByteArrayInputStream(file.toByteArray()),
+				new SpecificDatumReader<Patient>(Patient.class));
+		for (Patient patient : stream) {
+			ids.add(patient.getId());
+		}
+		stream.close();
+		return ids;
+	}
+
+	private static final class ClosingStream extends ByteArrayOutputStream {
+
+		private final long capacity;
+		private volatile boolean closed;
+
+		ClosingStream(long capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			if (size() + len > capacity) {
+				throw new IllegalStateException("Disk full");
+			}
+			super.write(b, off, len);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	private static final class MemoryTarget implements ArchiveTarget {
+
+		private final long capacity;
+		private final Map<String, ClosingStream> files = new TreeMap<String, ClosingStream>();
+
+		MemoryTarget(long capacity) {
+			this.capacity = capacity;
+		}
+
+		@Override
+		public synchronized OutputStream create(String fileName) {
+			ClosingStream stream = new ClosingStream(capacity);
+			files.put(fileName, stream);
+			return new OutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					write(new byte[] { (byte) b }, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					try {
+						stream.write(b, off, len);
+					} catch (IllegalStateException e) {
+						throw new IOException(e.getMessage());
+					}
+				}
+
+				@Override
+				public void close() {
+					stream.close();
+				}
+			};
+		}
+
+		@Override
+		public OutputStream resume(String fileName, long length) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void commit() {
+		}
+
+		@Override
+		public void abort() {
+		}
+	}
+
+}
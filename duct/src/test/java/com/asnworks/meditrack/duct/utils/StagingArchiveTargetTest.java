@@ -0,0 +1,61 @@
+package com.asnworks.meditrack.duct.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+public class StagingArchiveTargetTest extends TestCase {
+
+	private File directory;
+	private HdfsTools hdfsTools;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = new File(System.getProperty("java.io.tmpdir"), "meditrack-staging-" + System.nanoTime());
+		hdfsTools = HdfsTools.forLocalFileSystem();
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		hdfsTools.close();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	public void testRetryDiscardsFailedAttemptAndPublishesRunAtOnce() throws IOException {
+		StagingArchiveTarget failed = new StagingArchiveTarget(hdfsTools, directory.getAbsolutePath(), "run-1");
+		write(failed, "patients-part-00000.avro", "partial");
+		write(failed, "patients-part-00001.avro", "partial");
+
+		StagingArchiveTarget retry = new StagingArchiveTarget(hdfsTools, directory.getAbsolutePath(), "run-1");
+		assertFalse(retry.isCommitted());
+		write(retry, "patients-part-00000.avro", "complete");
+		assertFalse(new File(directory, "run-1").exists());
+		retry.commit();
+
+		File run = new File(directory, "run-1");
+		assertTrue(retry.isCommitted());
+		assertTrue(new File(run, StagingArchiveTarget.SUCCESS_MARKER).exists());
+		assertEquals("complete", FileUtils.readFileToString(new File(run, "patients-part-00000.avro"), "UTF-8"));
+		assertFalse(new File(run, "patients-part-00001.avro").exists());
+		assertFalse(new File(directory, StagingArchiveTarget.TEMPORARY_DIRECTORY).exists());
+
+		StagingArchiveTarget repeated = new StagingArchiveTarget(hdfsTools, directory.getAbsolutePath(), "run-1");
+		assertTrue(repeated.isCommitted());
+		repeated.commit();
+		assertEquals("complete", FileUtils.readFileToString(new File(run, "patients-part-00000.avro"), "UTF-8"));
+	}
+
+	private static void write(ArchiveTarget target, String fileName, String content) throws IOException {
+		OutputStream out = target.create(fileName);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,616 @@
+/**
+ * Autogenerated by Avro
+ *
+ * DO NOT EDIT DIRECTLY
+ */
+package com.asnworks.meditrack.model;
+
+import org.apache.avro.specific.SpecificData;
+
+@SuppressWarnings("all")
+@org.apache.avro.specific.AvroGenerated
+public class Fallout extends org.apache.avro.specific.SpecificRecordBase implements org.apache.avro.specific.SpecificRecord {
+  private static final long serialVersionUID = 1406002434408947225L;
+  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Fallout\",\"namespace\":\"com.asnworks.meditrack.model\",\"fields\":[{\"name\":\"entity\",\"type\":\"string\"},{\"name\":\"input\",\"type\":\"string\"},{\"name\":\"row\",\"type\":\"long\"},{\"name\":\"reason\",\"type\":{\"type\":\"enum\",\"name\":\"RejectReason\",\"symbols\":[\"MALFORMED_ROW\",\"MISSING_FIELD\",\"INVALID_ID\",\"INVALID_AGE\",\"INVALID_PHONE\",\"INVALID_EMAIL\",\"DUPLICATE_ID\",\"INVALID_REGISTRATION_NUMBER\"]}},{\"name\":\"field\",\"type\":[\"null\",\"string\"],\"default\":null},{\"name\":\"message\",\"type\":\"string\"},{\"name\":\"line\",\"type\":\"string\"}]}");
+  public static org.apache.avro.Schema getClassSchema() { return SCHEMA$; }
+  @Deprecated public java.lang.CharSequence entity;
+  @Deprecated public java.lang.CharSequence input;
+  @Deprecated public long row;
+  @Deprecated public com.asnworks.meditrack.model.RejectReason reason;
+  @Deprecated public java.lang.CharSequence field;
+  @Deprecated public java.lang.CharSequence message;
+  @Deprecated public java.lang.CharSequence line;
+
+  /**
+   * Default constructor.  Note that this does not initialize fields
+   * to their default values from the schema.  If that is desired then
+   * one should use <code>newBuilder()</code>.
+   */
+  public Fallout() {}
+
+  /**
+   * All-args constructor.
+   * @param entity The new value for entity
+   * @param input The new value for input
+   * @param row The new value for row
+   * @param reason The new value for reason
+   * @param field The new value for field
+   * @param message The new value for message
+   * @param line The new value for line
+   */
+  public Fallout(java.lang.CharSequence entity, java.lang.CharSequence input, java.lang.Long row, com.asnworks.meditrack.model.RejectReason reason, java.lang.CharSequence field, java.lang.CharSequence message, java.lang.CharSequence line) {
+    this.entity = entity;
+    this.input = input;
+    this.row = row;
+    this.reason = reason;
+    this.field = field;
+    this.message = message;
+    this.line = line;
+  }
+
+  public org.apache.avro.Schema getSchema() { return SCHEMA$; }
+  // Used by DatumWriter.  Applications should not call.
+  public java.lang.Object get(int field$) {
+    switch (field$) {
+    case 0: return entity;
+    case 1: return input;
+    case 2: return row;
+    case 3: return reason;
+    case 4: return field;
+    case 5: return message;
+    case 6: return line;
+    default: throw new org.apache.avro.AvroRuntimeException("Bad index");
+    }
+  }
+
+  // Used by DatumReader.  Applications should not call.
+  @SuppressWarnings(value="unchecked")
+  public void put(int field$, java.lang.Object value$) {
+    switch (field$) {
+    case 0: entity = (java.lang.CharSequence)value$; break;
+    case 1: input = (java.lang.CharSequence)value$; break;
+    case 2: row = (java.lang.Long)value$; break;
+    case 3: reason = (com.asnworks.meditrack.model.RejectReason)value$; break;
+    case 4: field = (java.lang.CharSequence)value$; break;
+    case 5: message = (java.lang.CharSequence)value$; break;
+    case 6: line = (java.lang.CharSequence)value$; break;
+    default: throw new org.apache.avro.AvroRuntimeException("Bad index");
+    }
+  }
+
+  /**
+   * Gets the value of the 'entity' field.
+   * @return The value of the 'entity' field.
+   */
+  public java.lang.CharSequence getEntity() {
+    return entity;
+  }
+
+  /**
+   * Sets the value of the 'entity' field.
+   * @param value the value to set.
+   */
+  public void setEntity(java.lang.CharSequence value) {
+    this.entity = value;
+  }
+
+  /**
+   * Gets the value of the 'input' field.
+   * @return The value of the 'input' field.
+   */
+  public java.lang.CharSequence getInput() {
+    return input;
+  }
+
+  /**
+   * Sets the value of the 'input' field.
+   * @param value the value to set.
+   */
+  public void setInput(java.lang.CharSequence value) {
+    this.input = value;
+  }
+
+  /**
+   * Gets the value of the 'row' field.
+   * @return The value of the 'row' field.
+   */
+  public java.lang.Long getRow() {
+    return row;
+  }
+
+  /**
+   * Sets the value of the 'row' field.
+   * @param value the value to set.
+   */
+  public void setRow(java.lang.Long value) {
+    this.row = value;
+  }
+
+  /**
+   * Gets the value of the 'reason' field.
+   * @return The value of the 'reason' field.
+   */
+  public com.asnworks.meditrack.model.RejectReason getReason() {
+    return reason;
+  }
+
+  /**
+   * Sets the value of the 'reason' field.
+   * @param value the value to set.
+   */
+  public void setReason(com.asnworks.meditrack.model.RejectReason value) {
+    this.reason = value;
+  }
+
+  /**
+   * Gets the value of the 'field' field.
+   * @return The value of the 'field' field.
+   */
+  public java.lang.CharSequence getField() {
+    return field;
+  }
+
+  /**
+   * Sets the value of the 'field' field.
+   * @param value the value to set.
+   */
+  public void setField(java.lang.CharSequence value) {
+    this.field = value;
+  }
+
+  /**
+   * Gets the value of the 'message' field.
+   * @return The value of the 'message' field.
+   */
+  public java.lang.CharSequence getMessage() {
+    return message;
+  }
+
+  /**
+   * Sets the value of the 'message' field.
+   * @param value the value to set.
+   */
+  public void setMessage(java.lang.CharSequence value) {
+    this.message = value;
+  }
+
+  /**
+   * Gets the value of the 'line' field.
+   * @return The value of the 'line' field.
+   */
+  public java.lang.CharSequence getLine() {
+    return line;
+  }
+
+  /**
+   * Sets the value of the 'line' field.
+   * @param value the value to set.
+   */
+  public void setLine(java.lang.CharSequence value) {
+    this.line = value;
+  }
+
+  /**
+   * Creates a new Fallout RecordBuilder.
+   * @return A new Fallout RecordBuilder
+   */
+  public static com.asnworks.meditrack.model.Fallout.Builder newBuilder() {
+    return new com.asnworks.meditrack.model.Fallout.Builder();
+  }
+
+  /**
+   * Creates a new Fallout RecordBuilder by copying an existing Builder.
+   * @param other The existing builder to copy.
+   * @return A new Fallout RecordBuilder
+   */
+  public static com.asnworks.meditrack.model.Fallout.Builder newBuilder(com.asnworks.meditrack.model.Fallout.Builder other) {
+    return new com.asnworks.meditrack.model.Fallout.Builder(other);
+  }
+
+  /**
+   * Creates a new Fallout RecordBuilder by copying an existing Fallout instance.
+   * @param other The existing instance to copy.
+   * @return A new Fallout RecordBuilder
+   */
+  public static com.asnworks.meditrack.model.Fallout.Builder newBuilder(com.asnworks.meditrack.model.Fallout other) {
+    return new com.asnworks.meditrack.model.Fallout.Builder(other);
+  }
+
+  /**
+   * RecordBuilder for Fallout instances.
+   */
+  public static class Builder extends org.apache.avro.specific.SpecificRecordBuilderBase<Fallout>
+    implements org.apache.avro.data.RecordBuilder<Fallout> {
+
+    private java.lang.CharSequence entity;
+    private java.lang.CharSequence input;
+    private long row;
+    private com.asnworks.meditrack.model.RejectReason reason;
+    private java.lang.CharSequence field;
+    private java.lang.CharSequence message;
+    private java.lang.CharSequence line;
+
+    /** Creates a new Builder */
+    private Builder() {
+      super(SCHEMA$);
+    }
+
+    /**
+     * Creates a Builder by copying an existing Builder.
+     * @param other The existing Builder to copy.
+     */
+    private Builder(com.asnworks.meditrack.model.Fallout.Builder other) {
+      super(other);
+      if (isValidValue(fields()[0], other.entity)) {
+        this.entity = data().deepCopy(fields()[0].schema(), other.entity);
+        fieldSetFlags()[0] = true;
+      }
+      if (isValidValue(fields()[1], other.input)) {
+        this.input = data().deepCopy(fields()[1].schema(), other.input);
+        fieldSetFlags()[1] = true;
+      }
+      if (isValidValue(fields()[2], other.row)) {
+        this.row = data().deepCopy(fields()[2].schema(), other.row);
+        fieldSetFlags()[2] = true;
+      }
+      if (isValidValue(fields()[3], other.reason)) {
+        this.reason = data().deepCopy(fields()[3].schema(), other.reason);
+        fieldSetFlags()[3] = true;
+      }
+      if (isValidValue(fields()[4], other.field)) {
+        this.field = data().deepCopy(fields()[4].schema(), other.field);
+        fieldSetFlags()[4] = true;
+      }
+      if (isValidValue(fields()[5], other.message)) {
+        this.message = data().deepCopy(fields()[5].schema(), other.message);
+        fieldSetFlags()[5] = true;
+      }
+      if (isValidValue(fields()[6], other.line)) {
+        this.line = data().deepCopy(fields()[6].schema(), other.line);
+        fieldSetFlags()[6] = true;
+      }
+    }
+
+    /**
+     * Creates a Builder by copying an existing Fallout instance
+     * @param other The existing instance to copy.
+     */
+    private Builder(com.asnworks.meditrack.model.Fallout other) {
+            super(SCHEMA$);
+      if (isValidValue(fields()[0], other.entity)) {
+        this.entity = data().deepCopy(fields()[0].schema(), other.entity);
+        fieldSetFlags()[0] = true;
+      }
+      if (isValidValue(fields()[1], other.input)) {
+        this.input = data().deepCopy(fields()[1].schema(), other.input);
+        fieldSetFlags()[1] = true;
+      }
+      if (isValidValue(fields()[2], other.row)) {
+        this.row = data().deepCopy(fields()[2].schema(), other.row);
+        fieldSetFlags()[2] = true;
+      }
+      if (isValidValue(fields()[3], other.reason)) {
+        this.reason = data().deepCopy(fields()[3].schema(), other.reason);
+        fieldSetFlags()[3] = true;
+      }
+      if (isValidValue(fields()[4], other.field)) {
+        this.field = data().deepCopy(fields()[4].schema(), other.field);
+        fieldSetFlags()[4] = true;
+      }
+      if (isValidValue(fields()[5], other.message)) {
+        this.message = data().deepCopy(fields()[5].schema(), other.message);
+        fieldSetFlags()[5] = true;
+      }
+      if (isValidValue(fields()[6], other.line)) {
+        this.line = data().deepCopy(fields()[6].schema(), other.line);
+        fieldSetFlags()[6] = true;
+      }
+    }
+
+    /**
+      * Gets the value of the 'entity' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getEntity() {
+      return entity;
+    }
+
+    /**
+      * Sets the value of the 'entity' field.
+      * @param value The value of 'entity'.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder setEntity(java.lang.CharSequence value) {
+      validate(fields()[0], value);
+      this.entity = value;
+      fieldSetFlags()[0] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'entity' field has been set.
+      * @return True if the 'entity' field has been set, false otherwise.
+      */
+    public boolean hasEntity() {
+      return fieldSetFlags()[0];
+    }
+
+
+    /**
+      * Clears the value of the 'entity' field.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder clearEntity() {
+      entity = null;
+      fieldSetFlags()[0] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'input' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getInput() {
+      return input;
+    }
+
+    /**
+      * Sets the value of the 'input' field.
+      * @param value The value of 'input'.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder setInput(java.lang.CharSequence value) {
+      validate(fields()[1], value);
+      this.input = value;
+      fieldSetFlags()[1] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'input' field has been set.
+      * @return True if the 'input' field has been set, false otherwise.
+      */
+    public boolean hasInput() {
+      return fieldSetFlags()[1];
+    }
+
+
+    /**
+      * Clears the value of the 'input' field.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder clearInput() {
+      input = null;
+      fieldSetFlags()[1] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'row' field.
+      * @return The value.
+      */
+    public java.lang.Long getRow() {
+      return row;
+    }
+
+    /**
+      * Sets the value of the 'row' field.
+      * @param value The value of 'row'.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder setRow(long value) {
+      validate(fields()[2], value);
+      this.row = value;
+      fieldSetFlags()[2] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'row' field has been set.
+      * @return True if the 'row' field has been set, false otherwise.
+      */
+    public boolean hasRow() {
+      return fieldSetFlags()[2];
+    }
+
+
+    /**
+      * Clears the value of the 'row' field.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder clearRow() {
+      fieldSetFlags()[2] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'reason' field.
+      * @return The value.
+      */
+    public com.asnworks.meditrack.model.RejectReason getReason() {
+      return reason;
+    }
+
+    /**
+      * Sets the value of the 'reason' field.
+      * @param value The value of 'reason'.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder setReason(com.asnworks.meditrack.model.RejectReason value) {
+      validate(fields()[3], value);
+      this.reason = value;
+      fieldSetFlags()[3] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'reason' field has been set.
+      * @return True if the 'reason' field has been set, false otherwise.
+      */
+    public boolean hasReason() {
+      return fieldSetFlags()[3];
+    }
+
+
+    /**
+      * Clears the value of the 'reason' field.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder clearReason() {
+      reason = null;
+      fieldSetFlags()[3] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'field' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getField() {
+      return field;
+    }
+
+    /**
+      * Sets the value of the 'field' field.
+      * @param value The value of 'field'.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder setField(java.lang.CharSequence value) {
+      validate(fields()[4], value);
+      this.field = value;
+      fieldSetFlags()[4] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'field' field has been set.
+      * @return True if the 'field' field has been set, false otherwise.
+      */
+    public boolean hasField() {
+      return fieldSetFlags()[4];
+    }
+
+
+    /**
+      * Clears the value of the 'field' field.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder clearField() {
+      field = null;
+      fieldSetFlags()[4] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'message' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getMessage() {
+      return message;
+    }
+
+    /**
+      * Sets the value of the 'message' field.
+      * @param value The value of 'message'.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder setMessage(java.lang.CharSequence value) {
+      validate(fields()[5], value);
+      this.message = value;
+      fieldSetFlags()[5] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'message' field has been set.
+      * @return True if the 'message' field has been set, false otherwise.
+      */
+    public boolean hasMessage() {
+      return fieldSetFlags()[5];
+    }
+
+
+    /**
+      * Clears the value of the 'message' field.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder clearMessage() {
+      message = null;
+      fieldSetFlags()[5] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'line' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getLine() {
+      return line;
+    }
+
+    /**
+      * Sets the value of the 'line' field.
+      * @param value The value of 'line'.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder setLine(java.lang.CharSequence value) {
+      validate(fields()[6], value);
+      this.line = value;
+      fieldSetFlags()[6] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'line' field has been set.
+      * @return True if the 'line' field has been set, false otherwise.
+      */
+    public boolean hasLine() {
+      return fieldSetFlags()[6];
+    }
+
+
+    /**
+      * Clears the value of the 'line' field.
+      * @return This builder.
+      */
+    public com.asnworks.meditrack.model.Fallout.Builder clearLine() {
+      line = null;
+      fieldSetFlags()[6] = false;
+      return this;
+    }
+
+    @Override
+    public Fallout build() {
+      try {
+        Fallout record = new Fallout();
+        record.entity = fieldSetFlags()[0] ? this.entity : (java.lang.CharSequence) defaultValue(fields()[0]);
+        record.input = fieldSetFlags()[1] ? this.input : (java.lang.CharSequence) defaultValue(fields()[1]);
+        record.row = fieldSetFlags()[2] ? this.row : (java.lang.Long) defaultValue(fields()[2]);
+        record.reason = fieldSetFlags()[3] ? this.reason : (com.asnworks.meditrack.model.RejectReason) defaultValue(fields()[3]);
+        record.field = fieldSetFlags()[4] ? this.field : (java.lang.CharSequence) defaultValue(fields()[4]);
+        record.message = fieldSetFlags()[5] ? this.message : (java.lang.CharSequence) defaultValue(fields()[5]);
+        record.line = fieldSetFlags()[6] ? this.line : (java.lang.CharSequence) defaultValue(fields()[6]);
+        return record;
+      } catch (Exception e) {
+        throw new org.apache.avro.AvroRuntimeException(e);
+      }
+    }
+  }
+
+  private static final org.apache.avro.io.DatumWriter
+    WRITER$ = new org.apache.avro.specific.SpecificDatumWriter(SCHEMA$);
+
+  @Override public void writeExternal(java.io.ObjectOutput out)
+    throws java.io.IOException {
+    WRITER$.write(this, SpecificData.getEncoder(out));
+  }
+
+  private static final org.apache.avro.io.DatumReader
+    READER$ = new org.apache.avro.specific.SpecificDatumReader(SCHEMA$);
+
+  @Override public void readExternal(java.io.ObjectInput in)
+    throws java.io.IOException {
+    READER$.read(this, SpecificData.getDecoder(in));
+  }
+
+}
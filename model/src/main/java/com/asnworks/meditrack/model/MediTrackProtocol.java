@@ -8,7 +8,7 @@ package com.asnworks.meditrack.model;
 @SuppressWarnings("all")
 @org.apache.avro.specific.AvroGenerated
 public interface MediTrackProtocol {
-  public static final org.apache.avro.Protocol PROTOCOL = org.apache.avro.Protocol.parse("{\"protocol\":\"MediTrackProtocol\",\"namespace\":\"com.asnworks.meditrack.model\",\"types\":[{\"type\":\"record\",\"name\":\"Hospital\",\"fields\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"type\",\"type\":\"string\"},{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"city\",\"type\":\"string\"},{\"name\":\"state\",\"type\":\"string\"},{\"name\":\"phoneNumber\",\"type\":\"string\"},{\"name\":\"email\",\"type\":\"string\"}]},{\"type\":\"record\",\"name\":\"Patient\",\"fields\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"firstName\",\"type\":\"string\"},{\"name\":\"lastName\",\"type\":\"string\"},{\"name\":\"age\",\"type\":\"int\"},{\"name\":\"gender\",\"type\":\"string\"},{\"name\":\"address\",\"type\":\"string\"},{\"name\":\"phoneNumber\",\"type\":\"string\"},{\"name\":\"email\",\"type\":\"string\"}]},{\"type\":\"record\",\"name\":\"Doctor\",\"fields\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"medicalRegistrationNumber\",\"type\":\"string\"},{\"name\":\"firstName\",\"type\":\"string\"},{\"name\":\"lastName\",\"type\":\"string\"},{\"name\":\"gender\",\"type\":\"string\"},{\"name\":\"specialisation\",\"type\":\"string\"},{\"name\":\"address\",\"type\":\"string\"},{\"name\":\"phoneNumber\",\"type\":\"string\"},{\"name\":\"email\",\"type\":\"string\"}]}],\"messages\":{}}");
+  public static final org.apache.avro.Protocol PROTOCOL = org.apache.avro.Protocol.parse("{\"protocol\":\"MediTrackProtocol\",\"namespace\":\"com.asnworks.meditrack.model\",\"types\":[{\"type\":\"record\",\"name\":\"Hospital\",\"fields\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"type\",\"type\":\"string\"},{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"city\",\"type\":\"string\"},{\"name\":\"state\",\"type\":\"string\"},{\"name\":\"phoneNumber\",\"type\":\"string\"},{\"name\":\"email\",\"type\":\"string\"}]},{\"type\":\"record\",\"name\":\"Patient\",\"fields\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"firstName\",\"type\":\"string\"},{\"name\":\"lastName\",\"type\":\"string\"},{\"name\":\"age\",\"type\":\"int\"},{\"name\":\"gender\",\"type\":\"string\"},{\"name\":\"address\",\"type\":\"string\"},{\"name\":\"phoneNumber\",\"type\":\"string\"},{\"name\":\"email\",\"type\":\"string\"}]},{\"type\":\"record\",\"name\":\"Doctor\",\"fields\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"medicalRegistrationNumber\",\"type\":\"string\"},{\"name\":\"firstName\",\"type\":\"string\"},{\"name\":\"lastName\",\"type\":\"string\"},{\"name\":\"gender\",\"type\":\"string\"},{\"name\":\"specialisation\",\"type\":\"string\"},{\"name\":\"address\",\"type\":\"string\"},{\"name\":\"phoneNumber\",\"type\":\"string\"},{\"name\":\"email\",\"type\":\"string\"}]},{\"type\":\"enum\",\"name\":\"RejectReason\",\"symbols\":[\"MALFORMED_ROW\",\"MISSING_FIELD\",\"INVALID_ID\",\"INVALID_AGE\",\"INVALID_PHONE\",\"INVALID_EMAIL\",\"DUPLICATE_ID\",\"INVALID_REGISTRATION_NUMBER\"]},{\"type\":\"record\",\"name\":\"Fallout\",\"fields\":[{\"name\":\"entity\",\"type\":\"string\"},{\"name\":\"input\",\"type\":\"string\"},{\"name\":\"row\",\"type\":\"long\"},{\"name\":\"reason\",\"type\":\"RejectReason\"},{\"name\":\"field\",\"type\":[\"null\",\"string\"],\"default\":null},{\"name\":\"message\",\"type\":\"string\"},{\"name\":\"line\",\"type\":\"string\"}]}],\"messages\":{}}");
 
   @SuppressWarnings("all")
   public interface Callback extends MediTrackProtocol {
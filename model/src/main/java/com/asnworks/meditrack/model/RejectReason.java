@@ -0,0 +1,13 @@
+/**
+ * Autogenerated by Avro
+ *
+ * DO NOT EDIT DIRECTLY
+ */
+package com.asnworks.meditrack.model;
+@SuppressWarnings("all")
+@org.apache.avro.specific.AvroGenerated
+public enum RejectReason {
+  MALFORMED_ROW, MISSING_FIELD, INVALID_ID, INVALID_AGE, INVALID_PHONE, INVALID_EMAIL, DUPLICATE_ID, INVALID_REGISTRATION_NUMBER  ;
+  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"enum\",\"name\":\"RejectReason\",\"namespace\":\"com.asnworks.meditrack.model\",\"symbols\":[\"MALFORMED_ROW\",\"MISSING_FIELD\",\"INVALID_ID\",\"INVALID_AGE\",\"INVALID_PHONE\",\"INVALID_EMAIL\",\"DUPLICATE_ID\",\"INVALID_REGISTRATION_NUMBER\"]}");
+  public static org.apache.avro.Schema getClassSchema() { return SCHEMA$; }
+}
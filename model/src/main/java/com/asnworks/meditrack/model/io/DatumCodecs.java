@@ -0,0 +1,114 @@
+package com.asnworks.meditrack.model.io;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Hospital;
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * Factory methods for the {@link DatumWriter} and {@link DatumReader} to use for the MediTrack records. The hand-written
+ * {@link FixedSchemaCodec}s are used for {@link Patient}, {@link Doctor} and {@link Hospital}; any other schema, or data that needs schema
+ * resolution, falls back to the generic specific implementations.
+ */
+public final class DatumCodecs {
+
+	private DatumCodecs() {
+	}
+
+	/**
+	 * Returns a writer for records of the specified schema.
+	 * 
+	 * @param schema schema of the records
+	 * @return a {@link FixedSchemaCodec} for a MediTrack record schema, a {@link SpecificDatumWriter} otherwise
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> DatumWriter<T> writerFor(Schema schema) {
+		FixedSchemaCodec<?> codec = codecFor(schema);
+		if (codec != null) {
+			return (DatumWriter<T>) codec;
+		}
+		return new SpecificDatumWriter<T>(schema);
+	}
+
+	/**
+	 * Returns a reader for records of the specified reader schema. The writer schema is set by the file reader through
+	 * {@link DatumReader#setSchema(Schema)}; when a {@link FixedSchemaCodec} exists for it and the reader schema is the same schema or a
+	 * projection of it, that codec is used, otherwise the data is resolved by a {@link SpecificDatumReader}. This makes it safe to use for
+	 * projections and older data.
+	 * 
+	 * @param readerSchema schema of the records to read, or a projection of it that contains only the fields that are needed
+	 * @return a {@link DatumReader}
+	 */
+	public static <T> DatumReader<T> readerFor(Schema readerSchema) {
+		return new AdaptiveDatumReader<T>(readerSchema);
+	}
+
+	/**
+	 * @return the hand-written codec for the schema, {@code null} if there is none
+	 */
+	public static FixedSchemaCodec<?> codecFor(Schema schema) {
+		if (Patient.getClassSchema().equals(schema)) {
+			return new PatientCodec();
+		}
+		if (Doctor.getClassSchema().equals(schema)) {
+			return new DoctorCodec();
+		}
+		if (Hospital.getClassSchema().equals(schema)) {
+			return new HospitalCodec();
+		}
+		return null;
+	}
+
+	private static final class AdaptiveDatumReader<T> implements DatumReader<T> {
+
+		private final Schema readerSchema;
+		private DatumReader<T> delegate;
+
+		AdaptiveDatumReader(Schema readerSchema) {
+			this.readerSchema = readerSchema;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void setSchema(Schema writerSchema) {
+			FixedSchemaCodec<?> codec = codecFor(writerSchema);
+			if (codec != null && FixedSchemaCodec.isProjection(writerSchema, readerSchema)) {
+				codec.setProjection(readerSchema);
+				delegate = (DatumReader<T>) codec;
+			} else {
+				delegate = new SpecificDatumReader<T>(writerSchema, resolvedSchema());
+			}
+		}
+
+		/**
+		 * Specific records are filled by the field positions of the reader schema, so a projection of a generated class is resolved
+		 * against the complete schema of the class instead.
+		 */
+		private Schema resolvedSchema() {
+			Class<?> recordClass = SpecificData.get().getClass(readerSchema);
+			if (recordClass != null && SpecificRecord.class.isAssignableFrom(recordClass)) {
+				Schema classSchema = SpecificData.get().getSchema(recordClass);
+				if (FixedSchemaCodec.isProjection(classSchema, readerSchema)) {
+					return classSchema;
+				}
+			}
+			return readerSchema;
+		}
+
+		@Override
+		public T read(T reuse, Decoder in) throws IOException {
+			return delegate.read(reuse, in);
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.asnworks.meditrack.model.io;
+
+import java.io.IOException;
+
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+import com.asnworks.meditrack.model.Doctor;
+
+/**
+ * Hand-written codec for {@link Doctor} records. Fields are encoded in schema order without going through {@link Doctor#get(int)} and
+ * {@link Doctor#put(int, Object)}.
+ */
+@SuppressWarnings("deprecation")
+public class DoctorCodec extends FixedSchemaCodec<Doctor> {
+
+	public DoctorCodec() {
+		super(Doctor.getClassSchema());
+	}
+
+	@Override
+	protected Doctor newRecord() {
+		return new Doctor();
+	}
+
+	@Override
+	protected void encode(Doctor record, Encoder out) throws IOException {
+		out.writeInt(record.id);
+		writeString(out, record.medicalRegistrationNumber, "medicalRegistrationNumber");
+		writeString(out, record.firstName, "firstName");
+		writeString(out, record.lastName, "lastName");
+		writeString(out, record.gender, "gender");
+		writeString(out, record.specialisation, "specialisation");
+		writeString(out, record.address, "address");
+		writeString(out, record.phoneNumber, "phoneNumber");
+		writeString(out, record.email, "email");
+	}
+
+	@Override
+	protected void decode(Doctor record, Decoder in, boolean[] projection) throws IOException {
+		record.id = readInt(in, projection[0]);
+		record.medicalRegistrationNumber = readString(in, record.medicalRegistrationNumber, projection[1]);
+		record.firstName = readString(in, record.firstName, projection[2]);
+		record.lastName = readString(in, record.lastName, projection[3]);
+		record.gender = readString(in, record.gender, projection[4]);
+		record.specialisation = readString(in, record.specialisation, projection[5]);
+		record.address = readString(in, record.address, projection[6]);
+		record.phoneNumber = readString(in, record.phoneNumber, projection[7]);
+		record.email = readString(in, record.email, projection[8]);
+	}
+
+}
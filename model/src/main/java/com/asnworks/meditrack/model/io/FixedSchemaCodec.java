@@ -0,0 +1,145 @@
+package com.asnworks.meditrack.model.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Base class for hand-written {@link DatumWriter}s and {@link DatumReader}s of a single record schema. Unlike the reflective
+ * {@link org.apache.avro.specific.SpecificDatumWriter} and {@link org.apache.avro.specific.SpecificDatumReader}, the implementations
+ * access the record fields directly, so int fields are never boxed, and string fields are read into the {@link Utf8} instances of the
+ * reused record.
+ * <p>
+ * A codec only handles data written with exactly its own schema; {@link #setSchema(Schema)} fails for any other schema. Use
+ * {@link DatumCodecs} to fall back to the generic implementation when schemas differ.
+ * <p>
+ * A codec can be restricted to a projection of its schema with {@link #setProjection(Schema)}. String fields outside the projection are
+ * skipped in the input instead of decoded and left {@code null}, int fields are left 0.
+ * 
+ * @param <T> the record type
+ */
+public abstract class FixedSchemaCodec<T extends SpecificRecord> implements DatumWriter<T>, DatumReader<T> {
+
+	private final Schema schema;
+	private final boolean[] projection;
+
+	protected FixedSchemaCodec(Schema schema) {
+		this.schema = schema;
+		this.projection = new boolean[schema.getFields().size()];
+		Arrays.fill(projection, true);
+	}
+
+	/**
+	 * @return the schema handled by this codec
+	 */
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @throws AvroRuntimeException when the schema is not the schema of this codec
+	 */
+	@Override
+	public void setSchema(Schema schema) {
+		if (!this.schema.equals(schema)) {
+			throw new AvroRuntimeException("Schema " + schema.getFullName() + " does not match the schema of " + getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Restricts the fields that are read to the fields of the specified projection.
+	 * 
+	 * @param readerSchema schema with the same name as the schema of this codec and a subset of its fields
+	 * @throws AvroRuntimeException when the reader schema is not a projection of the schema of this codec
+	 */
+	public void setProjection(Schema readerSchema) {
+		if (!isProjection(schema, readerSchema)) {
+			throw new AvroRuntimeException("Schema " + readerSchema + " is not a projection of " + schema.getFullName());
+		}
+		for (Field field : schema.getFields()) {
+			projection[field.pos()] = readerSchema.getField(field.name()) != null;
+		}
+	}
+
+	/**
+	 * @return {@code true} if the reader schema has the same name as the schema and each of its fields is a field of the schema with the
+	 *         same type
+	 */
+	public static boolean isProjection(Schema schema, Schema readerSchema) {
+		if (readerSchema.getType() != Schema.Type.RECORD || !schema.getFullName().equals(readerSchema.getFullName())) {
+			return false;
+		}
+		for (Field field : readerSchema.getFields()) {
+			Field schemaField = schema.getField(field.name());
+			if (schemaField == null || !schemaField.schema().equals(field.schema())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public T read(T reuse, Decoder in) throws IOException {
+		T record = reuse != null ? reuse : newRecord();
+		decode(record, in, projection);
+		return record;
+	}
+
+	@Override
+	public void write(T datum, Encoder out) throws IOException {
+		encode(datum, out);
+	}
+
+	protected abstract T newRecord();
+
+	protected abstract void encode(T record, Encoder out) throws IOException;
+
+	/**
+	 * Decodes the fields of a record in schema order.
+	 * 
+	 * @param record record to decode into
+	 * @param in decoder
+	 * @param projection for each field of the schema, by position, whether it must be read
+	 */
+	protected abstract void decode(T record, Decoder in, boolean[] projection) throws IOException;
+
+	/**
+	 * Reads an int, returning 0 when it is not part of the projection.
+	 */
+	protected static int readInt(Decoder in, boolean selected) throws IOException {
+		int value = in.readInt();
+		return selected ? value : 0;
+	}
+
+	/**
+	 * Reads a string, reusing the previous value of the field when it is a {@link Utf8}. Skips it and returns {@code null} when it is
+	 * not part of the projection.
+	 */
+	protected static Utf8 readString(Decoder in, CharSequence old, boolean selected) throws IOException {
+		if (!selected) {
+			in.skipString();
+			return null;
+		}
+		return in.readString(old instanceof Utf8 ? (Utf8) old : null);
+	}
+
+	/**
+	 * Writes a non-null string, failing with the name of the field like the generic writer does.
+	 */
+	protected static void writeString(Encoder out, CharSequence value, String field) throws IOException {
+		if (value == null) {
+			throw new NullPointerException("null of string in field " + field);
+		}
+		out.writeString(value);
+	}
+
+}
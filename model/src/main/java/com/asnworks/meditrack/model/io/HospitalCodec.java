@@ -0,0 +1,48 @@
+package com.asnworks.meditrack.model.io;
+
+import java.io.IOException;
+
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+import com.asnworks.meditrack.model.Hospital;
+
+/**
+ * Hand-written codec for {@link Hospital} records. Fields are encoded in schema order without going through {@link Hospital#get(int)} and
+ * {@link Hospital#put(int, Object)}.
+ */
+@SuppressWarnings("deprecation")
+public class HospitalCodec extends FixedSchemaCodec<Hospital> {
+
+	public HospitalCodec() {
+		super(Hospital.getClassSchema());
+	}
+
+	@Override
+	protected Hospital newRecord() {
+		return new Hospital();
+	}
+
+	@Override
+	protected void encode(Hospital record, Encoder out) throws IOException {
+		out.writeInt(record.id);
+		writeString(out, record.type, "type");
+		writeString(out, record.name, "name");
+		writeString(out, record.city, "city");
+		writeString(out, record.state, "state");
+		writeString(out, record.phoneNumber, "phoneNumber");
+		writeString(out, record.email, "email");
+	}
+
+	@Override
+	protected void decode(Hospital record, Decoder in, boolean[] projection) throws IOException {
+		record.id = readInt(in, projection[0]);
+		record.type = readString(in, record.type, projection[1]);
+		record.name = readString(in, record.name, projection[2]);
+		record.city = readString(in, record.city, projection[3]);
+		record.state = readString(in, record.state, projection[4]);
+		record.phoneNumber = readString(in, record.phoneNumber, projection[5]);
+		record.email = readString(in, record.email, projection[6]);
+	}
+
+}
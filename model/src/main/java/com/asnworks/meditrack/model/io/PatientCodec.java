@@ -0,0 +1,50 @@
+package com.asnworks.meditrack.model.io;
+
+import java.io.IOException;
+
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * Hand-written codec for {@link Patient} records. Fields are encoded in schema order without going through {@link Patient#get(int)} and
+ * {@link Patient#put(int, Object)}.
+ */
+@SuppressWarnings("deprecation")
+public class PatientCodec extends FixedSchemaCodec<Patient> {
+
+	public PatientCodec() {
+		super(Patient.getClassSchema());
+	}
+
+	@Override
+	protected Patient newRecord() {
+		return new Patient();
+	}
+
+	@Override
+	protected void encode(Patient record, Encoder out) throws IOException {
+		out.writeInt(record.id);
+		writeString(out, record.firstName, "firstName");
+		writeString(out, record.lastName, "lastName");
+		out.writeInt(record.age);
+		writeString(out, record.gender, "gender");
+		writeString(out, record.address, "address");
+		writeString(out, record.phoneNumber, "phoneNumber");
+		writeString(out, record.email, "email");
+	}
+
+	@Override
+	protected void decode(Patient record, Decoder in, boolean[] projection) throws IOException {
+		record.id = readInt(in, projection[0]);
+		record.firstName = readString(in, record.firstName, projection[1]);
+		record.lastName = readString(in, record.lastName, projection[2]);
+		record.age = readInt(in, projection[3]);
+		record.gender = readString(in, record.gender, projection[4]);
+		record.address = readString(in, record.address, projection[5]);
+		record.phoneNumber = readString(in, record.phoneNumber, projection[6]);
+		record.email = readString(in, record.email, projection[7]);
+	}
+
+}
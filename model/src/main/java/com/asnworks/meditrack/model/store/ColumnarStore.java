@@ -0,0 +1,373 @@
+package com.asnworks.meditrack.model.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.util.Utf8;
+
+/**
+ * In-memory store of MediTrack records in a columnar layout, for lookups over millions of records without an object per record. Each
+ * field of the schema is a column:
+ * <ul>
+ * <li>int fields are an {@code int[]};</li>
+ * <li>string fields with few distinct values, {@link #DICTIONARY_FIELDS} by default, are dictionary encoded: a {@code char[]} of codes
+ * into a list of the distinct values;</li>
+ * <li>other string fields are the UTF-8 bytes of all values packed in one {@code byte[]}, with an {@code int[]} of offsets.</li>
+ * </ul>
+ * A patient takes about 110 bytes, against about 400 bytes for a {@link com.asnworks.meditrack.model.Patient} object with its
+ * {@link Utf8} fields.
+ * <p>
+ * {@link #get(int, SpecificRecord)} fills a reused record, a flyweight over the columns: int fields are set through
+ * {@link #setInt(SpecificRecord, int, int)} and the bytes of string fields are copied into the {@link Utf8} instances of the record, so
+ * the record can be modified or passed to a reader that reuses it. {@link PatientStore}, {@link DoctorStore} and {@link HospitalStore} set
+ * the int fields of their records directly; once the {@link Utf8}s of the record have grown to the longest values, getting records from
+ * them allocates nothing. Other stores set int fields through {@link SpecificRecord#put(int, Object)}, which boxes values above 127.
+ * <p>
+ * Records are added by a single thread; a store that is no longer added to can be read by any number of threads, each with its own
+ * reused record. Every text column holds up to 2 GB of UTF-8 bytes, and every dictionary up to 65536 distinct values.
+ *
+ * @param <T> the record type
+ */
+public class ColumnarStore<T extends SpecificRecord> {
+
+	/** Fields that are dictionary encoded by default. */
+	public static final Set<String> DICTIONARY_FIELDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("gender", "state",
+			"specialisation")));
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private final Schema schema;
+	private final Column[] columns;
+	private int size;
+	private int capacity;
+
+	/**
+	 * Creates a store with the default dictionary fields.
+	 *
+	 * @param schema schema of the records, with int and string fields only
+	 * @param expectedRecords number of records to allocate room for, the store grows beyond it as needed
+	 */
+	public ColumnarStore(Schema schema, int expectedRecords) {
+		this(schema, expectedRecords, DICTIONARY_FIELDS);
+	}
+
+	/**
+	 * @param schema schema of the records, with int and string fields only
+	 * @param expectedRecords number of records to allocate room for, the store grows beyond it as needed
+	 * @param dictionaryFields names of the string fields to dictionary encode, names that are not fields of the schema are ignored
+	 * @throws IllegalArgumentException when the schema has a field of another type
+	 */
+	public ColumnarStore(Schema schema, int expectedRecords, Set<String> dictionaryFields) {
+		this.schema = schema;
+		this.capacity = Math.max(expectedRecords, 1);
+		List<Field> fields = schema.getFields();
+		this.columns = new Column[fields.size()];
+		for (Field field : fields) {
+			Schema.Type type = field.schema().getType();
+			if (type == Schema.Type.INT) {
+				columns[field.pos()] = new IntColumn(capacity);
+			} else if (type == Schema.Type.STRING) {
+				columns[field.pos()] = dictionaryFields.contains(field.name()) ? new DictionaryColumn(field.name(), capacity)
+						: new TextColumn(field.name(), capacity);
+			} else {
+				throw new IllegalArgumentException(String.format("Field %s of type %s can not be stored", field.name(), type));
+			}
+		}
+	}
+
+	/**
+	 * Creates a store with the default dictionary fields and room for 1024 records.
+	 *
+	 * @param schema schema of the records, with int and string fields only
+	 */
+	public ColumnarStore(Schema schema) {
+		this(schema, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Adds the values of a record. The record is not kept, so it can be the reused record of an archive reader.
+	 *
+	 * @param record a record of the schema of the store, without {@code null} fields
+	 * @return the row of the record, rows are numbered from 0 in the order the records are added
+	 * @throws IllegalArgumentException when a field is {@code null}
+	 * @throws IllegalStateException when a text column or dictionary is full
+	 */
+	public int add(T record) {
+		if (size == capacity) {
+			capacity = capacity + (capacity >> 1) + 1;
+			for (Column column : columns) {
+				column.resize(capacity);
+			}
+		}
+		for (int i = 0; i < columns.length; i++) {
+			Object value = record.get(i);
+			if (value == null) {
+				throw new IllegalArgumentException(String.format("Field %s of record %d is null", schema.getFields().get(i).name(), size));
+			}
+			columns[i].add(size, value);
+		}
+		return size++;
+	}
+
+	/**
+	 * Fills a record with the values of a row.
+	 *
+	 * @param row the row of the record
+	 * @param reuse the record to fill, {@code null} to create a new record
+	 * @return the filled record
+	 * @throws IndexOutOfBoundsException when the row does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int row, T reuse) {
+		checkRow(row);
+		T record = reuse != null ? reuse : (T) SpecificData.get().newRecord(null, schema);
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].get(row, record, i);
+		}
+		return record;
+	}
+
+	/**
+	 * Sets an int field of a record that is being filled. Boxes the value for {@link SpecificRecord#put(int, Object)}; subclasses for a
+	 * record type override this to set the field of the record directly.
+	 *
+	 * @param record the record
+	 * @param field position of an int field in the schema
+	 * @param value the value
+	 */
+	protected void setInt(T record, int field, int value) {
+		record.put(field, value);
+	}
+
+	/**
+	 * Returns the value of an int field without filling a record.
+	 *
+	 * @param row the row of the record
+	 * @param field position of an int field in the schema
+	 * @return the value
+	 * @throws ClassCastException when the field is not an int field
+	 */
+	public int getInt(int row, int field) {
+		checkRow(row);
+		return ((IntColumn) columns[field]).values[row];
+	}
+
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the number of records
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the approximate number of bytes of the arrays and dictionaries of the columns
+	 */
+	public long getMemoryUsage() {
+		long bytes = 0;
+		for (Column column : columns) {
+			bytes += column.memoryUsage();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Releases the room allocated for more records, after the last record was added.
+	 */
+	public void trimToSize() {
+		capacity = Math.max(size, 1);
+		for (Column column : columns) {
+			column.resize(capacity);
+			column.trim(size);
+		}
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException(String.format("Row %d of %d", row, size));
+		}
+	}
+
+	private static byte[] utf8Bytes(Object value) {
+		return value instanceof Utf8 ? ((Utf8) value).getBytes() : value.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int utf8Length(Object value, byte[] bytes) {
+		return value instanceof Utf8 ? ((Utf8) value).getByteLength() : bytes.length;
+	}
+
+	private static void setUtf8(SpecificRecord record, int field, byte[] bytes, int start, int length) {
+		Object current = record.get(field);
+		Utf8 value = current instanceof Utf8 ? (Utf8) current : new Utf8();
+		value.setByteLength(length);
+		System.arraycopy(bytes, start, value.getBytes(), 0, length);
+		record.put(field, value);
+	}
+
+	private abstract static class Column {
+
+		abstract void add(int row, Object value);
+
+		abstract void get(int row, SpecificRecord record, int field);
+
+		abstract void resize(int capacity);
+
+		/**
+		 * Releases unused room beyond the values of the rows, after the rows were resized to the size.
+		 */
+		void trim(int size) {
+		}
+
+		abstract long memoryUsage();
+	}
+
+	// not static, the values are set through the setInt of the store
+	private final class IntColumn extends Column {
+
+		int[] values;
+
+		IntColumn(int capacity) {
+			this.values = new int[capacity];
+		}
+
+		@Override
+		void add(int row, Object value) {
+			values[row] = (Integer) value;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void get(int row, SpecificRecord record, int field) {
+			setInt((T) record, field, values[row]);
+		}
+
+		@Override
+		void resize(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		@Override
+		long memoryUsage() {
+			return 4L * values.length;
+		}
+	}
+
+	private static final class DictionaryColumn extends Column {
+
+		private static final int MAX_VALUES = Character.MAX_VALUE + 1;
+		// estimate of a Utf8 with its byte array and the map entry pointing to it
+		private static final int VALUE_OVERHEAD = 100;
+
+		private final String name;
+		private final List<Utf8> values = new ArrayList<Utf8>();
+		private final Map<Utf8, Character> codes = new HashMap<Utf8, Character>();
+		private char[] rows;
+
+		DictionaryColumn(String name, int capacity) {
+			this.name = name;
+			this.rows = new char[capacity];
+		}
+
+		@Override
+		void add(int row, Object value) {
+			Utf8 key = value instanceof Utf8 ? (Utf8) value : new Utf8(value.toString());
+			Character code = codes.get(key);
+			if (code == null) {
+				if (values.size() == MAX_VALUES) {
+					throw new IllegalStateException(String.format("Field %s has more than %d distinct values", name, MAX_VALUES));
+				}
+				// the key may be the reused Utf8 of the record, the dictionary keeps its own copy
+				Utf8 copy = new Utf8(key);
+				code = (char) values.size();
+				values.add(copy);
+				codes.put(copy, code);
+			}
+			rows[row] = code;
+		}
+
+		@Override
+		void get(int row, SpecificRecord record, int field) {
+			Utf8 value = values.get(rows[row]);
+			setUtf8(record, field, value.getBytes(), 0, value.getByteLength());
+		}
+
+		@Override
+		void resize(int capacity) {
+			rows = Arrays.copyOf(rows, capacity);
+		}
+
+		@Override
+		long memoryUsage() {
+			long bytes = 2L * rows.length;
+			for (Utf8 value : values) {
+				bytes += VALUE_OVERHEAD + value.getByteLength();
+			}
+			return bytes;
+		}
+	}
+
+	private static final class TextColumn extends Column {
+
+		private final String name;
+		private byte[] data = new byte[64];
+		// offsets[row] is the end of the value of the row, and the start of the value of the next row
+		private int[] offsets;
+
+		TextColumn(String name, int capacity) {
+			this.name = name;
+			this.offsets = new int[capacity + 1];
+		}
+
+		@Override
+		void add(int row, Object value) {
+			byte[] bytes = utf8Bytes(value);
+			int length = utf8Length(value, bytes);
+			int start = offsets[row];
+			if (length > Integer.MAX_VALUE - start) {
+				throw new IllegalStateException(String.format("Field %s holds more than 2 GB of text", name));
+			}
+			if (start + length > data.length) {
+				long grown = (long) data.length + (data.length >> 1) + length;
+				data = Arrays.copyOf(data, (int) Math.min(grown, Integer.MAX_VALUE - 8));
+			}
+			System.arraycopy(bytes, 0, data, start, length);
+			offsets[row + 1] = start + length;
+		}
+
+		@Override
+		void get(int row, SpecificRecord record, int field) {
+			int start = offsets[row];
+			setUtf8(record, field, data, start, offsets[row + 1] - start);
+		}
+
+		@Override
+		void resize(int capacity) {
+			offsets = Arrays.copyOf(offsets, capacity + 1);
+		}
+
+		@Override
+		void trim(int size) {
+			data = Arrays.copyOf(data, offsets[size]);
+		}
+
+		@Override
+		long memoryUsage() {
+			return data.length + 4L * offsets.length;
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.asnworks.meditrack.model.store;
+
+import com.asnworks.meditrack.model.Doctor;
+
+/**
+ * {@link ColumnarStore} for doctors, with direct access to the id, which is set in reused doctors without boxing.
+ */
+public class DoctorStore extends ColumnarStore<Doctor> {
+
+	private static final int ID = Doctor.SCHEMA$.getField("id").pos();
+
+	/**
+	 * @param expectedDoctors number of doctors to allocate room for, the store grows beyond it as needed
+	 */
+	public DoctorStore(int expectedDoctors) {
+		super(Doctor.SCHEMA$, expectedDoctors);
+	}
+
+	public int getId(int row) {
+		return getInt(row, ID);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	protected void setInt(Doctor doctor, int field, int value) {
+		if (field == ID) {
+			doctor.id = value;
+		} else {
+			super.setInt(doctor, field, value);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.asnworks.meditrack.model.store;
+
+import com.asnworks.meditrack.model.Hospital;
+
+/**
+ * {@link ColumnarStore} for hospitals, with direct access to the id, which is set in reused hospitals without boxing.
+ */
+public class HospitalStore extends ColumnarStore<Hospital> {
+
+	private static final int ID = Hospital.SCHEMA$.getField("id").pos();
+
+	/**
+	 * @param expectedHospitals number of hospitals to allocate room for, the store grows beyond it as needed
+	 */
+	public HospitalStore(int expectedHospitals) {
+		super(Hospital.SCHEMA$, expectedHospitals);
+	}
+
+	public int getId(int row) {
+		return getInt(row, ID);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	protected void setInt(Hospital hospital, int field, int value) {
+		if (field == ID) {
+			hospital.id = value;
+		} else {
+			super.setInt(hospital, field, value);
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.asnworks.meditrack.model.store;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Map from int keys to long values in two primitive arrays, without boxing or an object per entry: an open addressing hash table with
+ * linear probing, 12 bytes per slot and at least a third of the slots free. Key 0 marks a free slot, so its value is kept apart.
+ * The map can be written to a stream and read back as it is, without rehashing. Not thread-safe while entries are added.
+ */
+public class IntLongHashMap {
+
+	private static final int FREE_KEY = 0;
+	private static final double MAX_LOAD = 0.65;
+
+	private int[] keys;
+	private long[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+	private boolean hasFreeKey;
+	private long freeKeyValue;
+
+	/**
+	 * @param expectedSize number of entries to allocate room for, the map grows beyond it as needed
+	 */
+	public IntLongHashMap(int expectedSize) {
+		allocate(Math.max(Integer.highestOneBit((int) (Math.max(expectedSize, 2) / MAX_LOAD)) << 1, 4));
+	}
+
+	private IntLongHashMap(int[] keys, long[] values, int size, boolean hasFreeKey, long freeKeyValue) {
+		this.keys = keys;
+		this.values = values;
+		this.mask = keys.length - 1;
+		this.resizeAt = (int) (keys.length * MAX_LOAD);
+		this.size = size;
+		this.hasFreeKey = hasFreeKey;
+		this.freeKeyValue = freeKeyValue;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new long[capacity];
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * MAX_LOAD);
+	}
+
+	/**
+	 * @param key a key
+	 * @param defaultValue value to return when the key is not in the map
+	 * @return the value of the key, or the default value
+	 */
+	public long get(int key, long defaultValue) {
+		if (key == FREE_KEY) {
+			return hasFreeKey ? freeKeyValue : defaultValue;
+		}
+		for (int slot = Snapshot.mix(key) & mask;; slot = (slot + 1) & mask) {
+			int current = keys[slot];
+			if (current == key) {
+				return values[slot];
+			}
+			if (current == FREE_KEY) {
+				return defaultValue;
+			}
+		}
+	}
+
+	/**
+	 * @param key a key
+	 * @return {@code true} if the key is in the map
+	 */
+	public boolean containsKey(int key) {
+		if (key == FREE_KEY) {
+			return hasFreeKey;
+		}
+		for (int slot = Snapshot.mix(key) & mask;; slot = (slot + 1) & mask) {
+			int current = keys[slot];
+			if (current == key) {
+				return true;
+			}
+			if (current == FREE_KEY) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Adds an entry unless the key is already in the map.
+	 *
+	 * @param key a key
+	 * @param value the value of the key
+	 * @return {@code true} if the entry was added, {@code false} if the key was in the map, which keeps its value
+	 */
+	public boolean putIfAbsent(int key, long value) {
+		if (key == FREE_KEY) {
+			if (hasFreeKey) {
+				return false;
+			}
+			hasFreeKey = true;
+			freeKeyValue = value;
+			size++;
+			return true;
+		}
+		int slot = Snapshot.mix(key) & mask;
+		while (keys[slot] != FREE_KEY) {
+			if (keys[slot] == key) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > resizeAt) {
+			rehash(keys.length << 1);
+		}
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		long[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			int key = oldKeys[i];
+			if (key != FREE_KEY) {
+				int slot = Snapshot.mix(key) & mask;
+				while (keys[slot] != FREE_KEY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Writes the entries, as the slots of the table.
+	 *
+	 * @param output the stream to write to
+	 * @throws IOException when the stream could not be written
+	 */
+	public void writeTo(DataOutput output) throws IOException {
+		output.writeInt(keys.length);
+		output.writeInt(size);
+		output.writeBoolean(hasFreeKey);
+		output.writeLong(freeKeyValue);
+		for (int key : keys) {
+			output.writeInt(key);
+		}
+		for (long value : values) {
+			output.writeLong(value);
+		}
+	}
+
+	/**
+	 * Reads a map written by {@link #writeTo(DataOutput)}.
+	 *
+	 * @param input the stream to read from
+	 * @return the map
+	 * @throws IOException when the stream could not be read or is not a map
+	 */
+	public static IntLongHashMap readFrom(DataInput input) throws IOException {
+		int capacity = input.readInt();
+		int size = input.readInt();
+		if (capacity < 4 || Integer.bitCount(capacity) != 1 || size < 0 || size > capacity) {
+			throw new IOException(String.format("Invalid map of %d entries in %d slots", size, capacity));
+		}
+		boolean hasFreeKey = input.readBoolean();
+		long freeKeyValue = input.readLong();
+		int[] keys = new int[capacity];
+		for (int i = 0; i < capacity; i++) {
+			keys[i] = input.readInt();
+		}
+		long[] values = new long[capacity];
+		for (int i = 0; i < capacity; i++) {
+			values[i] = input.readLong();
+		}
+		return new IntLongHashMap(keys, values, size, hasFreeKey, freeKeyValue);
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.asnworks.meditrack.model.store;
+
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * {@link ColumnarStore} for patients, with direct access to the int fields, which are set in reused patients without boxing. Doctors and
+ * hospitals are stored in a {@link DoctorStore} and a {@link HospitalStore}. Example that loads an archive and finds the patients older
+ * than 90:
+ *
+ * <pre>
+ * PatientStore store = new PatientStore(1000000);
+ * while (reader.hasNext()) {
+ * 	store.add(reader.next());
+ * }
+ * store.trimToSize();
+ * Patient patient = new Patient();
+ * for (int row = 0; row &lt; store.size(); row++) {
+ * 	if (store.getAge(row) &gt; 90) {
+ * 		store.get(row, patient);
+ * 	}
+ * }
+ * </pre>
+ */
+public class PatientStore extends ColumnarStore<Patient> {
+
+	private static final int ID = Patient.SCHEMA$.getField("id").pos();
+	private static final int AGE = Patient.SCHEMA$.getField("age").pos();
+
+	/**
+	 * @param expectedPatients number of patients to allocate room for, the store grows beyond it as needed
+	 */
+	public PatientStore(int expectedPatients) {
+		super(Patient.SCHEMA$, expectedPatients);
+	}
+
+	public int getId(int row) {
+		return getInt(row, ID);
+	}
+
+	public int getAge(int row) {
+		return getInt(row, AGE);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	protected void setInt(Patient patient, int field, int value) {
+		if (field == ID) {
+			patient.id = value;
+		} else if (field == AGE) {
+			patient.age = value;
+		} else {
+			super.setInt(patient, field, value);
+		}
+	}
+
+}
@@ -0,0 +1,240 @@
+package com.asnworks.meditrack.model.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Read-only view of a snapshot file written by {@link SnapshotWriter}, for lookup services that need their records right after they
+ * start. The file is memory mapped, so opening it only reads the header, and the records are read straight from the mapped pages, outside
+ * the Java heap, without decoding. A snapshot file has a fixed layout:
+ * <ul>
+ * <li>a header of 64 bytes with the offsets of the sections, followed by the schema of the records as JSON;</li>
+ * <li>the heap: the UTF-8 bytes of all string values;</li>
+ * <li>the slots: a fixed size slot per record, in the order the records were written, with every int field as 4 bytes and every string
+ * field as the offset and length of its bytes in the heap;</li>
+ * <li>the index: an open addressing hash table of id and row + 1 pairs, with linear probing and 0 for empty entries.</li>
+ * </ul>
+ * All numbers are big endian. Every section is mapped on its own, so each can be up to 2 GB; the heap, with about 80 bytes per patient,
+ * is full first, at about 25 million patients. A snapshot is thread-safe, each thread uses its own reused record.
+ *
+ * @param <T> the record type
+ */
+public class Snapshot<T extends SpecificRecord> {
+
+	static final byte[] MAGIC = { 'M', 'T', 'S', 'N', 'A', 'P', 0, 1 };
+	static final int HEADER_SIZE = 64;
+	static final int INDEX_ENTRY_SIZE = 8;
+
+	private final File file;
+	private final Schema schema;
+	private final int size;
+	private final int slotSize;
+	private final int[] fieldOffsets;
+	private final boolean[] stringFields;
+	private final ByteBuffer heap;
+	private final ByteBuffer slots;
+	private final ByteBuffer index;
+	private final int indexMask;
+
+	private Snapshot(File file, Schema schema, ByteBuffer header, FileChannel channel) throws IOException {
+		this.file = file;
+		this.schema = schema;
+		this.size = header.getInt(8);
+		this.slotSize = header.getInt(12);
+		int indexCapacity = header.getInt(16);
+		long heapOffset = header.getLong(24);
+		long heapLength = header.getLong(32);
+		long slotsOffset = header.getLong(40);
+		long indexOffset = header.getLong(48);
+		this.heap = channel.map(FileChannel.MapMode.READ_ONLY, heapOffset, heapLength);
+		this.slots = channel.map(FileChannel.MapMode.READ_ONLY, slotsOffset, (long) size * slotSize);
+		this.index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) indexCapacity * INDEX_ENTRY_SIZE);
+		this.indexMask = indexCapacity - 1;
+
+		List<Field> fields = schema.getFields();
+		this.fieldOffsets = new int[fields.size()];
+		this.stringFields = new boolean[fields.size()];
+		int offset = 0;
+		for (Field field : fields) {
+			fieldOffsets[field.pos()] = offset;
+			stringFields[field.pos()] = field.schema().getType() == Schema.Type.STRING;
+			offset += slotSize(field);
+		}
+	}
+
+	/**
+	 * Maps a snapshot file. The file is not kept open, the mapping stays valid until the snapshot is garbage collected.
+	 *
+	 * @param file the snapshot file
+	 * @param schema the schema of the records, must be the schema the snapshot was written with
+	 * @return the snapshot
+	 * @throws IOException when the file could not be read, is not a snapshot or has another schema
+	 */
+	public static <T extends SpecificRecord> Snapshot<T> open(File file, Schema schema) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0, file);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			if (!Arrays.equals(magic, MAGIC)) {
+				throw new IOException(String.format("File %s is not a snapshot", file));
+			}
+			ByteBuffer schemaJson = ByteBuffer.allocate(header.getInt(20));
+			readFully(channel, schemaJson, HEADER_SIZE, file);
+			Schema fileSchema = new Schema.Parser().parse(new String(schemaJson.array(), StandardCharsets.UTF_8));
+			if (!fileSchema.equals(schema)) {
+				throw new IOException(String.format("Snapshot %s has schema %s, expected %s", file, fileSchema.getFullName(),
+						schema.getFullName()));
+			}
+			return new Snapshot<T>(file, schema, header, channel);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position, File file) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException(String.format("Snapshot %s is truncated", file));
+			}
+		}
+		buffer.flip();
+	}
+
+	static int slotSize(Field field) {
+		Schema.Type type = field.schema().getType();
+		if (type == Schema.Type.INT) {
+			return 4;
+		}
+		if (type == Schema.Type.STRING) {
+			return 8;
+		}
+		throw new IllegalArgumentException(String.format("Field %s of type %s can not be stored in a snapshot", field.name(), type));
+	}
+
+	/**
+	 * Spreads the bits of an id over the table, the finalizer of MurmurHash3, so sequential ids don't end up in clusters.
+	 */
+	static int mix(int id) {
+		int h = id;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * @param id an id
+	 * @return the row of the record with the id, {@code -1} if there is none
+	 */
+	public int rowOf(int id) {
+		for (int entry = mix(id) & indexMask;; entry = (entry + 1) & indexMask) {
+			int row = index.getInt(entry * INDEX_ENTRY_SIZE + 4);
+			if (row == 0) {
+				return -1;
+			}
+			if (index.getInt(entry * INDEX_ENTRY_SIZE) == id) {
+				return row - 1;
+			}
+		}
+	}
+
+	/**
+	 * Looks up a record by id.
+	 *
+	 * @param id an id
+	 * @param reuse the record to fill, {@code null} to create a new record
+	 * @return the filled record, {@code null} if there is no record with the id
+	 */
+	public T get(int id, T reuse) {
+		int row = rowOf(id);
+		return row < 0 ? null : getRow(row, reuse);
+	}
+
+	/**
+	 * Fills a record with the values of a row. String values are copied into the {@link Utf8} instances of the record.
+	 *
+	 * @param row the row of the record
+	 * @param reuse the record to fill, {@code null} to create a new record
+	 * @return the filled record
+	 * @throws IndexOutOfBoundsException when the row does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	public T getRow(int row, T reuse) {
+		checkRow(row);
+		T record = reuse != null ? reuse : (T) SpecificData.get().newRecord(null, schema);
+		for (int field = 0; field < fieldOffsets.length; field++) {
+			if (stringFields[field]) {
+				Object current = record.get(field);
+				record.put(field, getUtf8(row, field, current instanceof Utf8 ? (Utf8) current : null));
+			} else {
+				record.put(field, getInt(row, field));
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * @param row the row of the record
+	 * @param field position of an int field in the schema
+	 * @return the value of the field
+	 */
+	public int getInt(int row, int field) {
+		checkRow(row);
+		return slots.getInt(row * slotSize + fieldOffsets[field]);
+	}
+
+	/**
+	 * @param row the row of the record
+	 * @param field position of a string field in the schema
+	 * @param reuse the {@link Utf8} to copy the value into, {@code null} to create a new one
+	 * @return the value of the field
+	 */
+	public Utf8 getUtf8(int row, int field, Utf8 reuse) {
+		checkRow(row);
+		int slot = row * slotSize + fieldOffsets[field];
+		int offset = slots.getInt(slot);
+		int length = slots.getInt(slot + 4);
+		Utf8 value = reuse != null ? reuse : new Utf8();
+		value.setByteLength(length);
+		// a duplicate has its own position, so readers on other threads don't interfere
+		ByteBuffer bytes = heap.duplicate();
+		bytes.position(offset);
+		bytes.get(value.getBytes(), 0, length);
+		return value;
+	}
+
+	public Schema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the number of records
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException(String.format("Row %d of %d in snapshot %s", row, size, file));
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.asnworks.meditrack.model.store;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Writes records to a {@link Snapshot} file. The string values are streamed to the heap section of the file and the slots to a temporary
+ * file next to it, which is appended to the file by {@link #close()}; only the ids are kept in memory, 4 bytes per record. The index is
+ * built in a memory mapped section at the end of the file, so building a snapshot needs little Java heap. When several records have the
+ * same id, the index finds the first one.
+ *
+ * @param <T> the record type
+ */
+public class SnapshotWriter<T extends SpecificRecord> implements Closeable {
+
+	private static final String SLOTS_SUFFIX = ".slots";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+	private final File slotsFile;
+	private final Schema schema;
+	private final Schema.Type[] fieldTypes;
+	private final int idField;
+	private final int slotSize;
+	private final long heapOffset;
+	private final DataOutputStream heap;
+	private final DataOutputStream slots;
+	// the UTF-8 bytes of the string fields of the record being appended
+	private final byte[][] strings;
+	private final int[] stringLengths;
+	private long heapLength;
+	private int[] ids = new int[1024];
+	private int size;
+
+	/**
+	 * Creates a snapshot file, an existing file is overwritten.
+	 *
+	 * @param file the snapshot file
+	 * @param schema schema of the records, with an int id field, and int and string fields only
+	 * @throws IOException when the file could not be created
+	 * @throws IllegalArgumentException when the schema has no int id field or a field of another type
+	 */
+	public SnapshotWriter(File file, Schema schema) throws IOException {
+		Field id = schema.getField("id");
+		if (id == null || id.schema().getType() != Schema.Type.INT) {
+			throw new IllegalArgumentException(String.format("Schema %s has no int id field", schema.getFullName()));
+		}
+		List<Field> fields = schema.getFields();
+		this.fieldTypes = new Schema.Type[fields.size()];
+		int size = 0;
+		for (Field field : fields) {
+			size += Snapshot.slotSize(field);
+			fieldTypes[field.pos()] = field.schema().getType();
+		}
+		this.file = file;
+		this.slotsFile = new File(file.getPath() + SLOTS_SUFFIX);
+		this.schema = schema;
+		this.idField = id.pos();
+		this.slotSize = size;
+		this.strings = new byte[fields.size()][];
+		this.stringLengths = new int[fields.size()];
+
+		byte[] schemaJson = schema.toString().getBytes(StandardCharsets.UTF_8);
+		this.heapOffset = Snapshot.HEADER_SIZE + schemaJson.length;
+		this.heap = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+		this.slots = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(slotsFile), BUFFER_SIZE));
+		// the header is written last, when the sizes of the sections are known
+		heap.write(new byte[Snapshot.HEADER_SIZE]);
+		heap.write(schemaJson);
+	}
+
+	/**
+	 * Appends a record. All fields are checked before the slot of the record is written, so a record that is rejected leaves the snapshot
+	 * as it was and the next records can still be appended.
+	 *
+	 * @param record a record of the schema of the snapshot, without {@code null} fields
+	 * @throws IOException when the record could not be written, or the heap is full
+	 * @throws IllegalArgumentException when a field is {@code null}
+	 */
+	public void append(T record) throws IOException {
+		long newHeapLength = heapLength;
+		for (int i = 0; i < fieldTypes.length; i++) {
+			Object value = record.get(i);
+			if (value == null) {
+				throw new IllegalArgumentException(String.format("Field %s of record %d is null", schema.getFields().get(i).name(), size));
+			}
+			if (fieldTypes[i] != Schema.Type.INT) {
+				strings[i] = value instanceof Utf8 ? ((Utf8) value).getBytes() : value.toString().getBytes(StandardCharsets.UTF_8);
+				stringLengths[i] = value instanceof Utf8 ? ((Utf8) value).getByteLength() : strings[i].length;
+				newHeapLength += stringLengths[i];
+			}
+		}
+		if (newHeapLength > Integer.MAX_VALUE) {
+			throw new IOException(String.format("Snapshot %s holds more than 2 GB of text after %d records", file, size));
+		}
+
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (fieldTypes[i] == Schema.Type.INT) {
+				slots.writeInt((Integer) record.get(i));
+			} else {
+				heap.write(strings[i], 0, stringLengths[i]);
+				slots.writeInt((int) heapLength);
+				slots.writeInt(stringLengths[i]);
+				heapLength += stringLengths[i];
+				strings[i] = null;
+			}
+		}
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1));
+		}
+		ids[size++] = (Integer) record.get(idField);
+	}
+
+	/**
+	 * Completes the snapshot file: appends the slots, builds the index and writes the header.
+	 *
+	 * @throws IOException when the file could not be completed
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			slots.close();
+			FileInputStream slotsInput = new FileInputStream(slotsFile);
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = slotsInput.read(buffer)) >= 0) {
+					heap.write(buffer, 0, read);
+				}
+			} finally {
+				slotsInput.close();
+			}
+		} finally {
+			heap.close();
+			slotsFile.delete();
+		}
+
+		long slotsOffset = heapOffset + heapLength;
+		long indexOffset = slotsOffset + (long) size * slotSize;
+		int indexCapacity = Integer.highestOneBit(Math.max(size, 1) * 3 / 2 + 1) << 1;
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = output.getChannel();
+			output.setLength(indexOffset + (long) indexCapacity * Snapshot.INDEX_ENTRY_SIZE);
+			MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, indexOffset, (long) indexCapacity
+					* Snapshot.INDEX_ENTRY_SIZE);
+			int mask = indexCapacity - 1;
+			for (int row = 0; row < size; row++) {
+				int entry = Snapshot.mix(ids[row]) & mask;
+				while (index.getInt(entry * Snapshot.INDEX_ENTRY_SIZE + 4) != 0 && index.getInt(entry * Snapshot.INDEX_ENTRY_SIZE) != ids[row]) {
+					entry = (entry + 1) & mask;
+				}
+				if (index.getInt(entry * Snapshot.INDEX_ENTRY_SIZE + 4) == 0) {
+					index.putInt(entry * Snapshot.INDEX_ENTRY_SIZE, ids[row]);
+					index.putInt(entry * Snapshot.INDEX_ENTRY_SIZE + 4, row + 1);
+				}
+			}
+			index.force();
+
+			ByteBuffer header = ByteBuffer.allocate(Snapshot.HEADER_SIZE);
+			header.put(Snapshot.MAGIC);
+			header.putInt(size).putInt(slotSize).putInt(indexCapacity).putInt((int) (heapOffset - Snapshot.HEADER_SIZE));
+			header.putLong(heapOffset).putLong(heapLength).putLong(slotsOffset).putLong(indexOffset);
+			header.rewind();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * @return the number of records written
+	 */
+	public int size() {
+		return size;
+	}
+
+}
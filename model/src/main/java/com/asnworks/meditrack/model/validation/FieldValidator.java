@@ -0,0 +1,209 @@
+package com.asnworks.meditrack.model.validation;
+
+import org.apache.avro.util.Utf8;
+
+/**
+ * Checks the format of a string field of a MediTrack record without converting it to a {@link String}. A validator is a state machine
+ * that is fed one character at a time: for a {@link Utf8} value the UTF-8 bytes are scanned directly, for any other {@link CharSequence}
+ * the chars. All characters the formats care about are ASCII, and every byte of a multi-byte UTF-8 character is, like a non-ASCII char,
+ * just an "other" character, so both scans accept the same values. Validators keep no state between calls and are thread-safe.
+ */
+public abstract class FieldValidator {
+
+	/**
+	 * At least one character other than whitespace (a char up to space, like {@link String#trim()}).
+	 */
+	public static final FieldValidator NOT_BLANK = new NotBlank();
+
+	/**
+	 * local@domain.tld: the local part is at least one character other than @ and whitespace, followed by two or more labels of
+	 * characters other than @, whitespace and dots, separated by dots. Equivalent to the pattern
+	 * <code>[^@\s]+@[^@\s.]+(\.[^@\s.]+)+</code>.
+	 */
+	public static final FieldValidator EMAIL = new Email();
+
+	/**
+	 * 7 to 15 digits, optionally a leading +, with spaces, dots, dashes and parentheses between the digits and spaces and closing
+	 * parentheses after the last digit. Equivalent to the pattern <code>\+?([ ().-]*[0-9]){7,15}[ )]*</code>.
+	 */
+	public static final FieldValidator PHONE_NUMBER = new PhoneNumber();
+
+	/**
+	 * 4 to 20 ASCII letters, digits, dashes and slashes, with at least one digit, that does not start or end with a dash or slash, e.g.
+	 * MRN00012345 or KA/2011-0042.
+	 */
+	public static final FieldValidator MEDICAL_REGISTRATION_NUMBER = new MedicalRegistrationNumber();
+
+	/**
+	 * State of a validator after the last character, when the value is invalid whatever characters follow.
+	 */
+	protected static final int REJECT = -1;
+
+	/**
+	 * @param value a field value, may be {@code null}
+	 * @return {@code true} if the value has the format of this validator, {@code false} for {@code null}
+	 */
+	public final boolean isValid(CharSequence value) {
+		if (value == null) {
+			return false;
+		}
+		int state = 0;
+		if (value instanceof Utf8) {
+			Utf8 utf8 = (Utf8) value;
+			byte[] bytes = utf8.getBytes();
+			int length = utf8.getByteLength();
+			for (int i = 0; i < length && state != REJECT; i++) {
+				state = next(state, bytes[i] & 0xff);
+			}
+		} else {
+			int length = value.length();
+			for (int i = 0; i < length && state != REJECT; i++) {
+				state = next(state, value.charAt(i));
+			}
+		}
+		return state != REJECT && accepts(state);
+	}
+
+	/**
+	 * @param state the state after the previous characters, 0 before the first character
+	 * @param c the next character, or byte of a multi-byte UTF-8 character
+	 * @return the new state, not negative, or {@link #REJECT}
+	 */
+	protected abstract int next(int state, int c);
+
+	/**
+	 * @param state the state after the last character
+	 * @return {@code true} if a value that ends in this state is valid
+	 */
+	protected abstract boolean accepts(int state);
+
+	private static boolean isWhitespace(int c) {
+		return c <= ' ';
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static final class NotBlank extends FieldValidator {
+
+		@Override
+		protected int next(int state, int c) {
+			return state == 1 || !isWhitespace(c) ? 1 : 0;
+		}
+
+		@Override
+		protected boolean accepts(int state) {
+			return state == 1;
+		}
+	}
+
+	private static final class Email extends FieldValidator {
+
+		private static final int LOCAL_START = 0;
+		private static final int LOCAL = 1;
+		private static final int DOMAIN_START = 2;
+		private static final int DOMAIN = 3;
+		private static final int LABEL_START = 4;
+		private static final int LABEL = 5;
+
+		@Override
+		protected int next(int state, int c) {
+			if (c == '@') {
+				return state == LOCAL ? DOMAIN_START : REJECT;
+			}
+			// \s of the pattern, ASCII whitespace only
+			if (c == ' ' || c >= '\t' && c <= '\r') {
+				return REJECT;
+			}
+			switch (state) {
+			case LOCAL_START:
+			case LOCAL:
+				return LOCAL;
+			case DOMAIN_START:
+			case LABEL_START:
+				return c == '.' ? REJECT : state + 1;
+			default:
+				return c == '.' ? LABEL_START : state;
+			}
+		}
+
+		@Override
+		protected boolean accepts(int state) {
+			return state == LABEL;
+		}
+	}
+
+	/**
+	 * The state is the number of digits shifted left by 2, a bit set once a character was read, so a + is only accepted first, and a bit
+	 * set while a separator after the last digit needs another digit.
+	 */
+	private static final class PhoneNumber extends FieldValidator {
+
+		private static final int MIN_DIGITS = 7;
+		private static final int MAX_DIGITS = 15;
+		private static final int STARTED = 1;
+		private static final int DIGIT_EXPECTED = 2;
+
+		@Override
+		protected int next(int state, int c) {
+			if (isDigit(c)) {
+				int digits = (state >> 2) + 1;
+				return digits > MAX_DIGITS ? REJECT : digits << 2 | STARTED;
+			}
+			switch (c) {
+			case '+':
+				return state == 0 ? STARTED : REJECT;
+			case ' ':
+			case ')':
+				return state | STARTED;
+			case '(':
+			case '.':
+			case '-':
+				return state | STARTED | DIGIT_EXPECTED;
+			default:
+				return REJECT;
+			}
+		}
+
+		@Override
+		protected boolean accepts(int state) {
+			return state >> 2 >= MIN_DIGITS && (state & DIGIT_EXPECTED) == 0;
+		}
+	}
+
+	/**
+	 * The state is the length shifted left by 2, a bit set once a digit was read and a bit set while the last character is a separator.
+	 */
+	private static final class MedicalRegistrationNumber extends FieldValidator {
+
+		private static final int MIN_LENGTH = 4;
+		private static final int MAX_LENGTH = 20;
+		private static final int HAS_DIGIT = 1;
+		private static final int SEPARATOR = 2;
+
+		@Override
+		protected int next(int state, int c) {
+			int length = (state >> 2) + 1;
+			if (length > MAX_LENGTH) {
+				return REJECT;
+			}
+			if (isDigit(c)) {
+				return length << 2 | HAS_DIGIT;
+			}
+			if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z') {
+				return length << 2 | state & HAS_DIGIT;
+			}
+			if (c == '-' || c == '/') {
+				return state == 0 ? REJECT : length << 2 | state & HAS_DIGIT | SEPARATOR;
+			}
+			return REJECT;
+		}
+
+		@Override
+		protected boolean accepts(int state) {
+			return state >> 2 >= MIN_LENGTH && (state & HAS_DIGIT) != 0 && (state & SEPARATOR) == 0;
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.asnworks.meditrack.model.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.util.Utf8;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Hospital;
+import com.asnworks.meditrack.model.Patient;
+
+public class DatumCodecsTest extends TestCase {
+
+	private static final Patient PATIENT = new Patient(111, "AAA", "A", 21, "Male", "Address", "9591543252", "email@email.com");
+	private static final Doctor DOCTOR = new Doctor(7, "MRN-42", "Doc", "Tor", "Female", "Cardiology", "Street 2", "12345", "doc@tor.com");
+	private static final Hospital HOSPITAL = new Hospital(3, "General", "City Hospital", "Springfield", "IL", "555-1234", "info@city.org");
+
+	public void testEncodesSameBytesAsSpecificDatumWriter() throws IOException {
+		for (SpecificRecord record : Arrays.<SpecificRecord>asList(PATIENT, DOCTOR, HOSPITAL)) {
+			byte[] expected = encode(new SpecificDatumWriter<SpecificRecord>(record.getSchema()), record);
+			byte[] actual = encode(DatumCodecs.<SpecificRecord>writerFor(record.getSchema()), record);
+			assertTrue(record.getSchema().getName(), Arrays.equals(expected, actual));
+		}
+	}
+
+	public void testDecodesIntoReusedRecord() throws IOException {
+		byte[] bytes = encode(new PatientCodec(), PATIENT);
+		DatumReader<Patient> reader = DatumCodecs.readerFor(Patient.getClassSchema());
+		reader.setSchema(Patient.getClassSchema());
+
+		Patient reuse = reader.read(null, decoder(bytes));
+		Utf8 firstName = (Utf8) reuse.getFirstName();
+		Patient patient = reader.read(reuse, decoder(bytes));
+
+		assertSame(reuse, patient);
+		assertSame(firstName, patient.getFirstName());
+		assertEquals(PATIENT.toString(), patient.toString());
+	}
+
+	public void testSkipsFieldsOutsideProjection() throws IOException {
+		Schema projection = SchemaBuilder.record("Patient").namespace("com.asnworks.meditrack.model").fields()
+				.requiredInt("id").requiredString("email").endRecord();
+		DatumReader<Patient> reader = DatumCodecs.readerFor(projection);
+		reader.setSchema(Patient.getClassSchema());
+
+		Patient patient = reader.read(null, decoder(encode(new PatientCodec(), PATIENT)));
+
+		assertEquals(111, patient.getId().intValue());
+		assertEquals("email@email.com", patient.getEmail().toString());
+		assertNull(patient.getFirstName());
+		assertEquals(0, patient.getAge().intValue());
+	}
+
+	public void testFallsBackForOtherWriterSchema() throws IOException {
+		Schema writerSchema = SchemaBuilder.record("Patient").namespace("com.asnworks.meditrack.model").fields()
+				.requiredInt("id").requiredString("firstName").requiredString("lastName").requiredInt("age").requiredString("gender")
+				.requiredString("address").requiredString("phoneNumber").requiredString("email").requiredString("insurance").endRecord();
+		GenericData.Record written = new GenericData.Record(writerSchema);
+		for (Schema.Field field : Patient.getClassSchema().getFields()) {
+			written.put(field.name(), PATIENT.get(field.pos()));
+		}
+		written.put("insurance", "none");
+		DatumReader<Patient> reader = DatumCodecs.readerFor(Patient.getClassSchema());
+		reader.setSchema(writerSchema);
+
+		Patient patient = reader.read(null, decoder(encode(new GenericDatumWriter<GenericData.Record>(writerSchema), written)));
+
+		assertEquals(PATIENT.toString(), patient.toString());
+	}
+
+	private static <T> byte[] encode(DatumWriter<T> writer, T record) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+		writer.write(record, encoder);
+		encoder.flush();
+		return out.toByteArray();
+	}
+
+	private static BinaryDecoder decoder(byte[] bytes) {
+		return DecoderFactory.get().binaryDecoder(bytes, null);
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.asnworks.meditrack.model.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.util.Utf8;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Patient;
+
+public class ColumnarStoreTest extends TestCase {
+
+	public void testGetsAddedPatientsIntoReusedRecord() {
+		PatientStore store = new PatientStore(2);
+		for (int id = 0; id < 1000; id++) {
+			assertEquals(id, store.add(TestPatients.patient(id)));
+		}
+		store.trimToSize();
+
+		assertEquals(1000, store.size());
+		assertEquals(999, store.getId(999));
+		assertEquals(20 + 999 % 70, store.getAge(999));
+		Patient reuse = store.get(7, null);
+		assertEquals(TestPatients.patient(7).toString(), reuse.toString());
+		Utf8 address = (Utf8) reuse.getAddress();
+		Utf8 gender = (Utf8) reuse.getGender();
+		for (int row = 0; row < 1000; row += 37) {
+			assertSame(reuse, store.get(row, reuse));
+			assertEquals(TestPatients.patient(row).toString(), reuse.toString());
+			assertSame(address, reuse.getAddress());
+			assertSame(gender, reuse.getGender());
+		}
+		// modifying the record does not change the store
+		gender.set("Other");
+		assertEquals("Female", store.get(7, reuse).getGender().toString());
+	}
+
+	public void testSetsIntFieldsWithoutBoxing() {
+		PatientStore store = new PatientStore(10);
+		store.add(TestPatients.patient(1000));
+		final List<String> put = new ArrayList<String>();
+		Patient reuse = new Patient() {
+
+			@Override
+			public void put(int field, Object value) {
+				put.add(getSchema().getFields().get(field).name());
+				super.put(field, value);
+			}
+		};
+
+		store.get(0, reuse);
+		assertEquals(1000, reuse.getId().intValue());
+		assertEquals(20 + 1000 % 70, reuse.getAge().intValue());
+		assertFalse(put.toString(), put.contains("id"));
+		assertFalse(put.toString(), put.contains("age"));
+
+		DoctorStore doctors = new DoctorStore(10);
+		doctors.add(new Doctor(4096, "MRN-1", "AAA", "A", "Female", "Cardiology", "Addr", "9591543252", "a@example.com"));
+		Doctor doctor = new Doctor() {
+
+			@Override
+			public void put(int field, Object value) {
+				assertFalse("id is boxed", field == Doctor.SCHEMA$.getField("id").pos());
+				super.put(field, value);
+			}
+		};
+		assertEquals(4096, doctors.get(0, doctor).getId().intValue());
+		assertEquals(4096, doctors.getId(0));
+	}
+
+	public void testDictionaryEncodesSpecialisation() {
+		ColumnarStore<Doctor> store = new ColumnarStore<Doctor>(Doctor.SCHEMA$);
+		Doctor reused = new Doctor(0, "", "", "", "", "", "", "", "");
+		for (int id = 0; id < 100; id++) {
+			reused.setId(id);
+			reused.setMedicalRegistrationNumber(new Utf8("MRN" + id));
+			reused.setSpecialisation(new Utf8(id % 3 == 0 ? "Cardiology" : "Oncology"));
+			store.add(reused);
+		}
+
+		assertEquals("Cardiology", store.get(99, null).getSpecialisation().toString());
+		assertEquals("MRN42", store.get(42, null).getMedicalRegistrationNumber().toString());
+		assertEquals("Oncology", store.get(41, null).getSpecialisation().toString());
+	}
+
+	public void testRejectsMissingRow() {
+		PatientStore store = new PatientStore(10);
+		store.add(TestPatients.patient(1));
+		try {
+			store.get(1, null);
+			fail("Expected IndexOutOfBoundsException for row after the last row");
+		} catch (IndexOutOfBoundsException e) {
+			assertEquals("Row 1 of 1", e.getMessage());
+		}
+	}
+
+}
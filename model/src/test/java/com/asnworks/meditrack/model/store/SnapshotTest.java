@@ -0,0 +1,83 @@
+package com.asnworks.meditrack.model.store;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.util.Utf8;
+
+import com.asnworks.meditrack.model.Doctor;
+import com.asnworks.meditrack.model.Patient;
+
+public class SnapshotTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("patients", ".snapshot");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testLooksUpPatientsById() throws IOException {
+		SnapshotWriter<Patient> writer = new SnapshotWriter<Patient>(file, Patient.SCHEMA$);
+		for (int i = 0; i < 5000; i++) {
+			writer.append(TestPatients.patient(i * 7));
+		}
+		writer.append(new Patient(14, "Dup", "Licate", 30, "Male", "Addr", "95915", "dup@example.com"));
+		writer.close();
+		assertFalse(new File(file.getPath() + ".slots").exists());
+
+		Snapshot<Patient> snapshot = Snapshot.open(file, Patient.SCHEMA$);
+		assertEquals(5001, snapshot.size());
+		Patient reuse = null;
+		for (int i = 0; i < 5000; i += 13) {
+			reuse = snapshot.get(i * 7, reuse);
+			assertEquals(TestPatients.patient(i * 7).toString(), reuse.toString());
+		}
+		assertEquals(2, snapshot.rowOf(14));
+		assertEquals("First14", snapshot.get(14, reuse).getFirstName().toString());
+		assertNull(snapshot.get(15, reuse));
+		assertEquals(-1, snapshot.rowOf(-7));
+		assertEquals(20 + 21 % 70, snapshot.getInt(3, Patient.SCHEMA$.getField("age").pos()));
+		assertEquals(new Utf8("user21@example.com"), snapshot.getUtf8(3, Patient.SCHEMA$.getField("email").pos(), null));
+	}
+
+	public void testKeepsRowsAlignedAfterRejectedRecord() throws IOException {
+		SnapshotWriter<Patient> writer = new SnapshotWriter<Patient>(file, Patient.SCHEMA$);
+		writer.append(TestPatients.patient(1));
+		try {
+			// the id, names and age are valid, the email is checked last
+			writer.append(new Patient(2, "First2", "Last2", 30, "Male", "Addr", "95915", null));
+			fail("Expected IllegalArgumentException for a null field");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Field email of record 1 is null", e.getMessage());
+		}
+		writer.append(TestPatients.patient(3));
+		writer.close();
+
+		Snapshot<Patient> snapshot = Snapshot.open(file, Patient.SCHEMA$);
+		assertEquals(2, snapshot.size());
+		assertEquals(TestPatients.patient(1).toString(), snapshot.get(1, null).toString());
+		assertEquals(TestPatients.patient(3).toString(), snapshot.get(3, null).toString());
+		assertNull(snapshot.get(2, null));
+	}
+
+	public void testRejectsOtherSchema() throws IOException {
+		SnapshotWriter<Patient> writer = new SnapshotWriter<Patient>(file, Patient.SCHEMA$);
+		writer.close();
+		assertEquals(0, Snapshot.<Patient>open(file, Patient.SCHEMA$).size());
+		try {
+			Snapshot.<Doctor>open(file, Doctor.SCHEMA$);
+			fail("Expected IOException for a snapshot of patients opened as doctors");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("com.asnworks.meditrack.model.Patient"));
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.asnworks.meditrack.model.store;
+
+import com.asnworks.meditrack.model.Patient;
+
+/**
+ * Patients for the tests of the stores, with every value derived from the id and a last name that is not ASCII.
+ */
+final class TestPatients {
+
+	private TestPatients() {
+	}
+
+	static Patient patient(int id) {
+		return new Patient(id, "First" + id, "Lást" + id, 20 + id % 70, id % 2 == 0 ? "Male" : "Female", id + " Main Street",
+				"95915" + id, "user" + id + "@example.com");
+	}
+
+}
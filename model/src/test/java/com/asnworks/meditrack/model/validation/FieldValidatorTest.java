@@ -0,0 +1,57 @@
+package com.asnworks.meditrack.model.validation;
+
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.apache.avro.util.Utf8;
+
+public class FieldValidatorTest extends TestCase {
+
+	private static final String[] EMAILS = { "user0@example.com", "a.b+c@mail.example.co.uk", "jürgen@bücher.de", "a@b.c", "", "@b.c",
+			"a@", "a@b", "a@.b", "a@b.", "a@b..c", "a@@b.c", "a b@c.d", "a@b.c\t", "a@b@c.d", "a@b.c.", "a b@c.d" };
+
+	private static final String[] PHONE_NUMBERS = { "9591500000", "+1 (555) 123-4567", "555.123.4567", "(555) 1234567)", "1234567",
+			"123456789012345", "1234567890123456", "123456", "", "+", "++1234567", "1234567+", "12 34 56 7-", "555-1234567 -",
+			"(((1234567", "1234567(", "12345ab", " 1234567 ", "-1234567", "١٢٣٤٥٦٧" };
+
+	private static final String[] REGISTRATION_NUMBERS = { "MRN00012345", "KA/2011-0042", "MRN-42", "1234", "ABCD", "A1", "-MRN1",
+			"MRN1-", "MRN 1", "12345678901234567890", "123456789012345678901", "MRN1é" };
+
+	public void testEmailMatchesPattern() {
+		assertMatchesPattern(FieldValidator.EMAIL, "[^@\\s]+@[^@\\s.]+(?:\\.[^@\\s.]+)+", EMAILS);
+	}
+
+	public void testPhoneNumberMatchesPattern() {
+		assertMatchesPattern(FieldValidator.PHONE_NUMBER, "\\+?(?:[ ().-]*[0-9]){7,15}[ )]*", PHONE_NUMBERS);
+	}
+
+	public void testMedicalRegistrationNumber() {
+		boolean[] expected = { true, true, true, true, false, false, false, false, false, true, false, false };
+		for (int i = 0; i < REGISTRATION_NUMBERS.length; i++) {
+			assertValid(expected[i], FieldValidator.MEDICAL_REGISTRATION_NUMBER, REGISTRATION_NUMBERS[i]);
+		}
+	}
+
+	public void testNotBlank() {
+		assertValid(true, FieldValidator.NOT_BLANK, "A");
+		assertValid(true, FieldValidator.NOT_BLANK, " \tA ");
+		assertValid(false, FieldValidator.NOT_BLANK, "");
+		assertValid(false, FieldValidator.NOT_BLANK, " \t\r\n");
+		assertFalse(FieldValidator.NOT_BLANK.isValid(null));
+	}
+
+	private static void assertMatchesPattern(FieldValidator validator, String regex, String[] values) {
+		Pattern pattern = Pattern.compile(regex);
+		for (String value : values) {
+			assertValid(pattern.matcher(value).matches(), validator, value);
+		}
+	}
+
+	private static void assertValid(boolean expected, FieldValidator validator, String value) {
+		assertEquals("'" + value + "'", expected, validator.isValid(value));
+		assertEquals("Utf8 '" + value + "'", expected, validator.isValid(new Utf8(value)));
+		assertEquals("StringBuilder '" + value + "'", expected, validator.isValid(new StringBuilder(value)));
+	}
+
+}